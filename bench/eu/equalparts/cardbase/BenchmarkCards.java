@@ -0,0 +1,72 @@
+package eu.equalparts.cardbase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.cardfield.IntegerCardField;
+import eu.equalparts.cardbase.cardfield.StringCardField;
+import eu.equalparts.cardbase.json.JSON;
+
+/**
+ * Generates large lists of cards for the benchmarks. The cards are copies of
+ * the test cards with their set code, number and cmc shuffled about, so that
+ * every generated card is distinct but the field values stay realistic.
+ *
+ * @author Eduardo Pedroni
+ */
+public final class BenchmarkCards {
+
+	private static final String[] SET_CODES = { "LEA", "M12", "M15", "FRF", "BOK", "GTC", "ROE", "KLD", "EMN", "SOI" };
+
+	private BenchmarkCards() {}
+
+	/**
+	 * @param count the number of cards to generate.
+	 * @return a new list with {@code count} distinct cards, always the same for the same count.
+	 * @throws IOException if the test cards could not be read.
+	 */
+	public static List<Card> generate(int count) throws IOException {
+		List<Card> templates = JSON.mapper.readValue(BenchmarkCards.class.getResourceAsStream("/testcards.json"), new TypeReference<List<Card>>() {});
+		Random random = new Random(count);
+		List<Card> cards = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Card template = templates.get(random.nextInt(templates.size()));
+			Card card = copy(template);
+			card.setCode.set(SET_CODES[i % SET_CODES.length] + (i / 1000));
+			card.number.set(Integer.toString(random.nextInt(300)) + (random.nextInt(10) == 0 ? "a" : ""));
+			card.cmc.set(random.nextInt(10));
+			cards.add(card);
+		}
+		return cards;
+	}
+
+	/**
+	 * @param card the card to copy.
+	 * @return a copy of the card with its own field objects.
+	 */
+	public static Card copy(Card card) {
+		Card copy = new Card();
+		copy.name = new StringCardField("name", card.name.get());
+		copy.layout = new StringCardField("layout", card.layout.get());
+		copy.manaCost = new StringCardField("manaCost", card.manaCost.get());
+		copy.cmc = new IntegerCardField("cmc", card.cmc.get());
+		copy.type = new StringCardField("type", card.type.get());
+		copy.rarity = new StringCardField("rarity", card.rarity.get());
+		copy.text = new StringCardField("text", card.text.get());
+		copy.flavor = new StringCardField("flavor", card.flavor.get());
+		copy.artist = new StringCardField("artist", card.artist.get());
+		copy.number = new StringCardField("number", card.number.get());
+		copy.power = new StringCardField("power", card.power.get());
+		copy.toughness = new StringCardField("toughness", card.toughness.get());
+		copy.loyalty = new IntegerCardField("loyalty", card.loyalty.get());
+		copy.multiverseid = new IntegerCardField("multiverseid", card.multiverseid.get());
+		copy.imageName = new StringCardField("imageName", card.imageName.get());
+		copy.setCode = new StringCardField("setCode", card.setCode.get());
+		return copy;
+	}
+}
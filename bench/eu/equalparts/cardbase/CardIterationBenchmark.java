@@ -0,0 +1,81 @@
+package eu.equalparts.cardbase;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import eu.equalparts.cardbase.card.Card;
+
+/**
+ * Visits every card in a cardbase along with its count, by copying the cards with
+ * {@code getCards()} and looking up each count, with {@code forEach()}, through the
+ * card view and through the spliterator. Run with {@code -prof gc} to compare allocation.
+ *
+ * @author Eduardo Pedroni
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardIterationBenchmark {
+
+	@Param({"50000"})
+	public int cardCount;
+
+	private Cardbase cardbase;
+
+	@Setup
+	public void setUp() throws Exception {
+		cardbase = new Cardbase();
+		int count = 1;
+		for (Card card : BenchmarkCards.generate(cardCount)) {
+			cardbase.addCard(card, count++ % 4 + 1);
+		}
+	}
+
+	@Benchmark
+	public int copyAndCount(Blackhole blackhole) {
+		int total = 0;
+		for (Card card : cardbase.getCards()) {
+			blackhole.consume(card);
+			total += cardbase.getCount(card);
+		}
+		return total;
+	}
+
+	@Benchmark
+	public int forEachWithCount(Blackhole blackhole) {
+		int[] total = {0};
+		cardbase.forEach((card, count) -> {
+			blackhole.consume(card);
+			total[0] += count;
+		});
+		return total[0];
+	}
+
+	@Benchmark
+	public void iterateView(Blackhole blackhole) {
+		for (Card card : cardbase.getCardView()) {
+			blackhole.consume(card);
+		}
+	}
+
+	@Benchmark
+	public long stream() {
+		return StreamSupport.stream(cardbase.spliterator(), false).filter(card -> card.cmc.get() != null).count();
+	}
+}
@@ -0,0 +1,111 @@
+package eu.equalparts.cardbase;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.containers.BinaryContainerFormat;
+import eu.equalparts.cardbase.containers.CardOffsetIndex;
+
+/**
+ * Loads and saves the same cardbase in JSON and in the binary format, and saves it
+ * as references only in both. JSON is also loaded lazily, with and without its index. The size of each full file is printed when the benchmark
+ * is set up.
+ *
+ * @author Eduardo Pedroni
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardbaseFormatBenchmark {
+
+	@Param({"50000", "100000"})
+	public int cardCount;
+
+	private File directory, jsonFile, indexFile, binaryFile;
+	private Cardbase cardbase;
+
+	@Setup
+	public void setUp() throws Exception {
+		cardbase = new Cardbase();
+		int count = 1;
+		for (Card card : BenchmarkCards.generate(cardCount)) {
+			cardbase.addCard(card, count++ % 4 + 1);
+		}
+		directory = Files.createTempDirectory("cardbase-bench").toFile();
+		jsonFile = new File(directory, "cardbase.cb");
+		indexFile = new File(jsonFile.getPath() + CardOffsetIndex.EXTENSION);
+		binaryFile = new File(directory, "cardbase" + BinaryContainerFormat.EXTENSION);
+		cardbase.write(jsonFile);
+		cardbase.write(binaryFile);
+		// as if the file had been saved in an earlier session, so that its index can be trusted by its modification time
+		jsonFile.setLastModified(System.currentTimeMillis() - 60000);
+		System.out.println("JSON: " + jsonFile.length() + " bytes, binary: " + binaryFile.length() + " bytes");
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		jsonFile.delete();
+		indexFile.delete();
+		binaryFile.delete();
+		directory.delete();
+	}
+
+	@Benchmark
+	public Cardbase loadJson() throws Exception {
+		return Cardbase.load(jsonFile);
+	}
+
+	@Benchmark
+	public Cardbase loadJsonLazily() throws Exception {
+		return Cardbase.loadLazily(jsonFile, null);
+	}
+
+	@Benchmark
+	public Cardbase loadJsonLazilyWithoutIndex() throws Exception {
+		indexFile.delete();
+		return Cardbase.loadLazily(jsonFile, null);
+	}
+
+	@Benchmark
+	public Cardbase loadBinary() throws Exception {
+		return Cardbase.load(binaryFile);
+	}
+
+	@Benchmark
+	public void saveJson() throws Exception {
+		cardbase.write(jsonFile);
+	}
+
+	@Benchmark
+	public void saveBinary() throws Exception {
+		cardbase.write(binaryFile);
+	}
+
+	@Benchmark
+	public void saveJsonReferences() throws Exception {
+		cardbase.write(jsonFile, Cardbase.SaveMode.REFERENCES);
+	}
+
+	@Benchmark
+	public void saveBinaryReferences() throws Exception {
+		cardbase.write(binaryFile, Cardbase.SaveMode.REFERENCES);
+	}
+}
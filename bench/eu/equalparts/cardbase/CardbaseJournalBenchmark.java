@@ -0,0 +1,121 @@
+package eu.equalparts.cardbase;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.equalparts.cardbase.card.Card;
+
+/**
+ * Saves a large cardbase after adding one card, once by writing the whole file and once
+ * by committing the change to its journal. The journal is never compacted, so that only
+ * the cost of committing is measured. Also measures adding a card with autosave on, which
+ * is all the CLI waits for while the changes are saved in the background.
+ *
+ * @author Eduardo Pedroni
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardbaseJournalBenchmark {
+
+	@Param({"50000"})
+	public int cardCount;
+
+	private File directory, fullFile, journalledFile;
+	private Cardbase cardbase;
+	private CardbaseJournal journal;
+	private List<Card> cards;
+	private int next = 0;
+
+	@Setup
+	public void setUp() throws Exception {
+		cardbase = new Cardbase();
+		cards = BenchmarkCards.generate(cardCount);
+		for (Card card : cards) {
+			cardbase.addCard(card, 1);
+		}
+		directory = Files.createTempDirectory("cardbase-bench").toFile();
+		fullFile = new File(directory, "full.cb");
+		journalledFile = new File(directory, "journalled.cb");
+		CardbaseJournal.create(cardbase, journalledFile, Cardbase.SaveMode.FULL).close();
+		journal = CardbaseJournal.open(cardbase, journalledFile, Integer.MAX_VALUE);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		journal.close();
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Benchmark
+	public void saveWholeFile() throws Exception {
+		cardbase.addCard(nextCard(), 1);
+		cardbase.write(fullFile);
+	}
+
+	@Benchmark
+	public void commitToJournal() throws Exception {
+		Card card = nextCard();
+		journal.addCard(card, 1);
+		journal.commit();
+	}
+
+	@Benchmark
+	public void addWithAutosave(Autosaving autosaving) throws Exception {
+		autosaving.journal.addCard(nextCard(), 1);
+	}
+
+	private Card nextCard() {
+		return cards.get(next++ % cards.size());
+	}
+
+	/**
+	 * A separate cardbase of the same size, autosaving every 10 changes.
+	 */
+	@State(Scope.Benchmark)
+	public static class Autosaving {
+		private File directory;
+		private CardbaseJournal journal;
+
+		@Setup
+		public void setUp(CardbaseJournalBenchmark benchmark) throws Exception {
+			Cardbase cardbase = new Cardbase();
+			for (Card card : benchmark.cards) {
+				cardbase.addCard(card, 1);
+			}
+			directory = Files.createTempDirectory("cardbase-bench").toFile();
+			journal = CardbaseJournal.create(cardbase, new File(directory, "autosaved.cb"), Cardbase.SaveMode.FULL);
+			journal.startAutosave(10, 30, TimeUnit.SECONDS);
+		}
+
+		@TearDown
+		public void tearDown() throws Exception {
+			journal.close();
+			for (File file : directory.listFiles()) {
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+}
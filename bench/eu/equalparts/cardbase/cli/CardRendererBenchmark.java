@@ -0,0 +1,110 @@
+package eu.equalparts.cardbase.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.equalparts.cardbase.BenchmarkCards;
+import eu.equalparts.cardbase.card.Card;
+
+/**
+ * Glances and peruses a large list of cards with {@code CardRenderer} and by printing each
+ * line separately, as the CLI used to. Both print to a stream set up like {@code System.out},
+ * which flushes on every line, writing to /dev/null so that only the cost of printing is measured.
+ *
+ * @author Eduardo Pedroni
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardRendererBenchmark {
+
+	@Param({"50000"})
+	public int cardCount;
+
+	private List<Card> cards;
+	private FileOutputStream devNull;
+	private PrintStream out;
+
+	@Setup
+	public void setUp() throws IOException {
+		cards = BenchmarkCards.generate(cardCount);
+		devNull = new FileOutputStream("/dev/null");
+		out = new PrintStream(new BufferedOutputStream(devNull, 128), true);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		devNull.close();
+	}
+
+	@Benchmark
+	public void glanceLineByLine() {
+		for (int i = 0; i < cards.size(); i++) {
+			printGlance(cards.get(i), i % 4 + 1);
+		}
+	}
+
+	@Benchmark
+	public void glanceRendered() {
+		CardRenderer renderer = new CardRenderer(out);
+		for (int i = 0; i < cards.size(); i++) {
+			renderer.glance(cards.get(i), i % 4 + 1);
+		}
+		renderer.flush();
+	}
+
+	@Benchmark
+	public void peruseLineByLine() {
+		for (int i = 0; i < cards.size(); i++) {
+			printPerusal(cards.get(i), i % 4 + 1);
+		}
+	}
+
+	@Benchmark
+	public void peruseRendered() {
+		CardRenderer renderer = new CardRenderer(out);
+		for (int i = 0; i < cards.size(); i++) {
+			renderer.perusal(cards.get(i), i % 4 + 1);
+		}
+		renderer.flush();
+	}
+
+	private void printGlance(Card card, int count) {
+		out.println(String.format("%1$-4d %2$s (%3$s, %4$s)", count, card.name.get(), card.setCode.get(), card.number.get()));
+	}
+
+	private void printPerusal(Card card, int count) {
+		printGlance(card, count);
+		if (card.type.get() != null) out.println("\t" + card.type.get());
+		if (card.manaCost.get() != null) out.println("\tCost: " + card.manaCost.get());
+		if (card.power.get() != null && card.toughness.get() != null) out.println("\t" + card.power.get() + "/" + card.toughness.get());
+		if (card.loyalty.get() != null) out.println("\tLoyalty: " + card.loyalty.get());
+
+		if (card.text.get() != null) out.println("\t" + card.text.get().replaceAll("\n", "\n\t"));
+		if (card.flavor.get() != null) out.println("\t" + card.flavor.get().replaceAll("\n", "\n\t"));
+
+		if (card.rarity.get() != null) out.println("\t" + card.rarity.get());
+		if (card.multiverseid.get() != null) out.println("\tMID: " + card.multiverseid.get());
+		if (card.artist.get() != null) out.println("\tIllus. " + card.artist.get());
+	}
+}
@@ -0,0 +1,108 @@
+package eu.equalparts.cardbase.json;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.cardfield.IntegerCardField;
+import eu.equalparts.cardbase.cardfield.StringCardField;
+
+/**
+ * Compares the streaming {@code CardDeserializer} against the tree-based
+ * deserializer it replaced. The sample is the card array of the M15 test set.
+ *
+ * @author Eduardo Pedroni
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardDeserializerBenchmark {
+
+	private static final TypeReference<List<Card>> CARD_LIST = new TypeReference<List<Card>>() {};
+
+	private byte[] cards;
+	private ObjectMapper treeMapper;
+
+	@Setup
+	public void setUp() throws IOException {
+		JsonNode set = JSON.mapper.readTree(CardDeserializerBenchmark.class.getResourceAsStream("/eu/equalparts/cardbase/cli/M15.json"));
+		cards = JSON.mapper.writeValueAsBytes(set.get("cards"));
+
+		treeMapper = new ObjectMapper();
+		treeMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		SimpleModule sm = new SimpleModule();
+		sm.addDeserializer(Card.class, new TreeCardDeserializer());
+		treeMapper.registerModule(sm);
+	}
+
+	@Benchmark
+	public List<Card> streaming() throws IOException {
+		return JSON.mapper.readValue(cards, CARD_LIST);
+	}
+
+	@Benchmark
+	public List<Card> tree() throws IOException {
+		return treeMapper.readValue(cards, CARD_LIST);
+	}
+
+	/**
+	 * The previous, tree-based implementation of {@code CardDeserializer}, kept here as a baseline.
+	 */
+	private static class TreeCardDeserializer extends StdDeserializer<Card> {
+		private static final long serialVersionUID = 1L;
+
+		TreeCardDeserializer() {
+			super(Card.class);
+		}
+
+		@Override
+		public Card deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+			JsonNode node = jp.getCodec().readTree(jp);
+
+			Card newCard = new Card();
+
+			newCard.name = new StringCardField("name", node.hasNonNull("name") ? node.get("name").asText() : null);
+			newCard.layout = new StringCardField("layout", node.hasNonNull("layout") ? node.get("layout").asText() : null);
+			newCard.manaCost = new StringCardField("manaCost", node.hasNonNull("manaCost") ? node.get("manaCost").asText() : null);
+			newCard.cmc = new IntegerCardField("cmc", node.hasNonNull("cmc") ? node.get("cmc").asInt() : null);
+			newCard.type = new StringCardField("type", node.hasNonNull("type") ? node.get("type").asText() : null);
+			newCard.rarity = new StringCardField("rarity", node.hasNonNull("rarity") ? node.get("rarity").asText() : null);
+			newCard.text = new StringCardField("text", node.hasNonNull("text") ? node.get("text").asText() : null);
+			newCard.flavor = new StringCardField("flavor", node.hasNonNull("flavor") ? node.get("flavor").asText() : null);
+			newCard.artist = new StringCardField("artist", node.hasNonNull("artist") ? node.get("artist").asText() : null);
+			newCard.number = new StringCardField("number", node.hasNonNull("number") ? node.get("number").asText() : null);
+			newCard.power = new StringCardField("power", node.hasNonNull("power") ? node.get("power").asText() : null);
+			newCard.toughness = new StringCardField("toughness", node.hasNonNull("toughness") ? node.get("toughness").asText() : null);
+			newCard.loyalty = new IntegerCardField("loyalty", node.hasNonNull("loyalty") ? node.get("loyalty").asInt() : null);
+			newCard.multiverseid = new IntegerCardField("multiverseid", node.hasNonNull("multiverseid") ? node.get("multiverseid").asInt() : null);
+			newCard.imageName = new StringCardField("imageName", node.hasNonNull("imageName") ? node.get("imageName").asText() : null);
+			newCard.setCode = new StringCardField("setCode", node.hasNonNull("setCode") ? node.get("setCode").asText() : null);
+
+			return newCard;
+		}
+	}
+}
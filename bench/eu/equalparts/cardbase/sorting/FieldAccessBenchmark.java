@@ -0,0 +1,124 @@
+package eu.equalparts.cardbase.sorting;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.equalparts.cardbase.BenchmarkCards;
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.cardfield.CardField;
+import eu.equalparts.cardbase.filtering.CardFiltering;
+import eu.equalparts.cardbase.filtering.Filter;
+import eu.equalparts.cardbase.filtering.Filter.FilterType;
+
+/**
+ * Sorts and filters a million cards through {@code CardSorting} and {@code CardFiltering},
+ * against a baseline which reads the field with {@code java.lang.reflect.Field} for every card
+ * and prepares the filter value for every card, as {@code CardFiltering} used to.
+ * Each operation works on a fresh copy of the card list, in both cases.
+ *
+ * @author Eduardo Pedroni
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FieldAccessBenchmark {
+
+	@Param({"1000000"})
+	public int cardCount;
+
+	@Param({"name", "cmc"})
+	public String fieldName;
+
+	private List<Card> cards;
+	private Filter filter;
+	private Field field;
+
+	@Setup
+	public void setUp() throws Exception {
+		cards = BenchmarkCards.generate(cardCount);
+		filter = new Filter(FilterType.CONTAINS, fieldName, "4");
+		field = Card.class.getDeclaredField(fieldName);
+	}
+
+	@Benchmark
+	public List<Card> sortWithAccessor() throws Exception {
+		List<Card> copy = new ArrayList<>(cards);
+		CardSorting.sortByField(copy, fieldName);
+		return copy;
+	}
+
+	@Benchmark
+	public List<Card> sortWithReflection() throws Exception {
+		List<Card> copy = new ArrayList<>(cards);
+		copy.sort(new ReflectiveComparator(field));
+		return copy;
+	}
+
+	@Benchmark
+	public List<Card> filterWithAccessor() throws Exception {
+		List<Card> copy = new ArrayList<>(cards);
+		CardFiltering.filterByField(copy, filter);
+		return copy;
+	}
+
+	@Benchmark
+	public List<Card> filterWithReflection() throws Exception {
+		List<Card> copy = new ArrayList<>(cards);
+		copy.removeIf(card -> {
+			try {
+				Object value = ((CardField<?>) field.get(card)).get();
+				return value == null || !value.toString().toLowerCase().contains(filter.value.toLowerCase());
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		return copy;
+	}
+
+	/**
+	 * Compares cards the way {@code CardComparator} used to, without the special delegates.
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static class ReflectiveComparator implements Comparator<Card> {
+		private final Field field;
+
+		ReflectiveComparator(Field field) {
+			this.field = field;
+		}
+
+		@Override
+		public int compare(Card o1, Card o2) {
+			try {
+				CardField field1 = (CardField) field.get(o1);
+				CardField field2 = (CardField) field.get(o2);
+				if (field1.get() == null) {
+					return field2.get() == null ? 0 : -1;
+				} else if (field2.get() == null) {
+					return 1;
+				} else {
+					return field1.compareTo(field2);
+				}
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package eu.equalparts.cardbase.sorting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.equalparts.cardbase.BenchmarkCards;
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.comparator.CompositeCardComparator;
+import eu.equalparts.cardbase.comparator.SortCriterion;
+
+/**
+ * Sorts cards by rarity, then cmc, then name, with the precomputed keys of
+ * {@code CardSorting.sortByFields()}, with a {@code CompositeCardComparator},
+ * and with one stable sort per field, least significant first.
+ * Each operation sorts a fresh copy of the card list.
+ *
+ * @author Eduardo Pedroni
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiFieldSortBenchmark {
+
+	@Param({"100000"})
+	public int cardCount;
+
+	private List<Card> cards;
+	private List<SortCriterion> criteria;
+
+	@Setup
+	public void setUp() throws Exception {
+		cards = BenchmarkCards.generate(cardCount);
+		criteria = Arrays.asList(new SortCriterion("rarity"), new SortCriterion("cmc"), new SortCriterion("name"));
+	}
+
+	@Benchmark
+	public List<Card> precomputedKeys() throws Exception {
+		List<Card> copy = new ArrayList<>(cards);
+		CardSorting.sortByFields(copy, criteria);
+		return copy;
+	}
+
+	@Benchmark
+	public List<Card> compositeComparator() throws Exception {
+		List<Card> copy = new ArrayList<>(cards);
+		copy.sort(new CompositeCardComparator(criteria));
+		return copy;
+	}
+
+	@Benchmark
+	public List<Card> repeatedStableSorts() throws Exception {
+		List<Card> copy = new ArrayList<>(cards);
+		for (int i = criteria.size() - 1; i >= 0; i--) {
+			CardSorting.sortByField(copy, criteria.get(i).fieldName);
+		}
+		return copy;
+	}
+}
@@ -0,0 +1,86 @@
+package eu.equalparts.cardbase.sorting;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.equalparts.cardbase.BenchmarkCards;
+import eu.equalparts.cardbase.card.Card;
+
+/**
+ * Sorts cards by number, a dirty number field, with the precomputed keys used by
+ * {@code CardSorting} and with the regex-based comparison that used to run on every
+ * comparison. Each operation sorts a fresh copy of the card list.
+ *
+ * @author Eduardo Pedroni
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortKeyBenchmark {
+
+	@Param({"100000"})
+	public int cardCount;
+
+	private List<Card> cards;
+
+	@Setup
+	public void setUp() throws Exception {
+		cards = BenchmarkCards.generate(cardCount);
+	}
+
+	@Benchmark
+	public List<Card> precomputedKeys() throws Exception {
+		List<Card> copy = new ArrayList<>(cards);
+		CardSorting.sortByField(copy, "number");
+		return copy;
+	}
+
+	@Benchmark
+	public List<Card> regexComparator() throws Exception {
+		List<Card> copy = new ArrayList<>(cards);
+		copy.sort(Comparator.comparing((Card card) -> card.number.get(), SortKeyBenchmark::compareDirtyNumber));
+		return copy;
+	}
+
+	/**
+	 * The previous dirty number comparison, cards in the benchmark always have a number.
+	 */
+	private static int compareDirtyNumber(String field1, String field2) {
+		String number1 = field1.replaceAll("[^0-9]+", "");
+		String number2 = field2.replaceAll("[^0-9]+", "");
+
+		Integer int1 = number1.matches("[0-9]+") ? Integer.parseInt(number1) : null;
+		Integer int2 = number2.matches("[0-9]+") ? Integer.parseInt(number2) : null;
+
+		if (int1 == null) {
+			if (int2 != null) {
+				return -1;
+			}
+		} else if (int2 == null) {
+			return 1;
+		} else {
+			if (int1 != int2)
+				return int1.compareTo(int2);
+		}
+		String letter1 = number1.replaceAll("[0-9]+", "");
+		String letter2 = number2.replaceAll("[0-9]+", "");
+		return letter1.compareTo(letter2);
+	}
+}
@@ -0,0 +1,79 @@
+package eu.equalparts.cardbase.utils;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.card.FullCardSet;
+import eu.equalparts.cardbase.json.JSON;
+
+/**
+ * Looks up one card in a freshly created {@code MTGUniverse}, as the CLI does when
+ * it starts, once by fetching and parsing the set's JSON from a local directory
+ * and once from an offline card database holding the same set.
+ *
+ * @author Eduardo Pedroni
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OfflineCardDatabaseBenchmark {
+
+	private File dataDirectory, emptyDirectory, databaseFile;
+
+	@Setup
+	public void setUp() throws Exception {
+		dataDirectory = Files.createTempDirectory("cardbase-bench").toFile();
+		emptyDirectory = Files.createTempDirectory("cardbase-bench").toFile();
+		for (String fileName : Arrays.asList("SetList.json", "M15.json")) {
+			try (InputStream in = OfflineCardDatabaseBenchmark.class.getResourceAsStream("/eu/equalparts/cardbase/cli/" + fileName)) {
+				Files.copy(in, new File(dataDirectory, fileName).toPath());
+			}
+		}
+
+		FullCardSet m15 = JSON.mapper.readValue(new File(dataDirectory, "M15.json"), FullCardSet.class);
+		databaseFile = new File(dataDirectory, "cards.db");
+		OfflineCardDatabase.write(Arrays.asList(m15), databaseFile);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		for (File file : dataDirectory.listFiles()) {
+			file.delete();
+		}
+		dataDirectory.delete();
+		emptyDirectory.delete();
+	}
+
+	@Benchmark
+	public Card json() throws Exception {
+		return new MTGUniverse(dataDirectory.toURI().toString()).getCard("M15", "281");
+	}
+
+	@Benchmark
+	public Card offlineDatabase() throws Exception {
+		try (OfflineCardDatabase database = OfflineCardDatabase.open(databaseFile)) {
+			// nothing can be fetched, the set list comes from the database as well
+			MTGUniverse universe = new MTGUniverse(emptyDirectory.toURI().toString(), null, FullCardSetCache.DEFAULT_MAX_CARDS, database);
+			return universe.getCard("M15", "281");
+		}
+	}
+}
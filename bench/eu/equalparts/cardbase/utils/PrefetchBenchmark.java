@@ -0,0 +1,79 @@
+package eu.equalparts.cardbase.utils;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Prefetches a number of sets from a local file data source into a fresh
+ * {@code MTGUniverse}, with different levels of parallelism. Every set is
+ * a copy of the M15 test set under its own code.
+ *
+ * @author Eduardo Pedroni
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrefetchBenchmark {
+
+	@Param({"40"})
+	public int setCount;
+
+	@Param({"1", "2", "4", "8"})
+	public int parallelism;
+
+	private File dataDirectory;
+	private List<String> setCodes;
+
+	@Setup
+	public void setUp() throws Exception {
+		dataDirectory = Files.createTempDirectory("cardbase-bench").toFile();
+		byte[] set;
+		try (InputStream in = PrefetchBenchmark.class.getResourceAsStream("/eu/equalparts/cardbase/cli/M15.json")) {
+			set = new byte[in.available()];
+			for (int read = 0; read < set.length; read += in.read(set, read, set.length - read));
+		}
+
+		setCodes = new ArrayList<>();
+		StringBuilder setList = new StringBuilder("[");
+		for (int i = 0; i < setCount; i++) {
+			String code = String.format("S%03d", i);
+			setCodes.add(code);
+			setList.append(i == 0 ? "" : ",").append("{\"name\":\"Set ").append(i).append("\",\"code\":\"").append(code).append("\",\"releaseDate\":\"2014-07-18\"}");
+			Files.write(new File(dataDirectory, code + ".json").toPath(), set);
+		}
+		Files.write(new File(dataDirectory, "SetList.json").toPath(), setList.append("]").toString().getBytes("UTF-8"));
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		for (File file : dataDirectory.listFiles()) {
+			file.delete();
+		}
+		dataDirectory.delete();
+	}
+
+	@Benchmark
+	public List<PrefetchTiming> prefetch() {
+		return new MTGUniverse(dataDirectory.toURI().toString()).prefetch(setCodes, parallelism);
+	}
+}
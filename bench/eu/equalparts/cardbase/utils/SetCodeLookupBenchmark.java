@@ -0,0 +1,93 @@
+package eu.equalparts.cardbase.utils;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import eu.equalparts.cardbase.card.CardSetInformation;
+
+/**
+ * Resolves a million set codes, spread across every set in the bundled set list
+ * and in random case, with the set code index of {@code MTGUniverse} and with the
+ * linear scan it used to do for every lookup.
+ *
+ * @author Eduardo Pedroni
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SetCodeLookupBenchmark {
+
+	@Param({"1000000"})
+	public int lookupCount;
+
+	private File dataDirectory;
+	private MTGUniverse universe;
+	private String[] setCodes;
+
+	@Setup
+	public void setUp() throws Exception {
+		// serve the full bundled set list as if it were the upstream one
+		dataDirectory = Files.createTempDirectory("cardbase-bench").toFile();
+		try (InputStream setList = MTGUniverse.class.getResourceAsStream("/fallbackSetList.json")) {
+			Files.copy(setList, new File(dataDirectory, "SetList.json").toPath());
+		}
+		universe = new MTGUniverse(dataDirectory.toURI().toString());
+
+		List<CardSetInformation> sets = universe.getCardSetList();
+		Random random = new Random(lookupCount);
+		setCodes = new String[lookupCount];
+		for (int i = 0; i < lookupCount; i++) {
+			String code = sets.get(random.nextInt(sets.size())).getCode();
+			setCodes[i] = random.nextBoolean() ? code.toLowerCase() : code;
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		new File(dataDirectory, "SetList.json").delete();
+		dataDirectory.delete();
+	}
+
+	@Benchmark
+	public void index(Blackhole blackhole) {
+		for (String setCode : setCodes) {
+			blackhole.consume(universe.validateSetCode(setCode));
+		}
+	}
+
+	@Benchmark
+	public void linearScan(Blackhole blackhole) {
+		List<CardSetInformation> sets = universe.getCardSetList();
+		for (String setCode : setCodes) {
+			String validCode = null;
+			for (CardSetInformation cardSet : sets) {
+				if (cardSet.getCode().equalsIgnoreCase(setCode)) {
+					validCode = cardSet.getCode();
+					break;
+				}
+			}
+			blackhole.consume(validCode);
+		}
+	}
+}
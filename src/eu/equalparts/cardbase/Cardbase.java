@@ -1,22 +1,62 @@
 package eu.equalparts.cardbase;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
 
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 
+import eu.equalparts.cardbase.containers.BinaryContainerFormat;
+import eu.equalparts.cardbase.containers.CardOffsetIndex;
+import eu.equalparts.cardbase.containers.CardSource;
+import eu.equalparts.cardbase.containers.ReferenceCardContainer;
 import eu.equalparts.cardbase.containers.StandaloneCardContainer;
 import eu.equalparts.cardbase.json.JSON;
 
 /**
  * Provides a variety of utility methods to interact with an optionally loaded cardbase.
+ * <br><br>
+ * A cardbase file may have a journal next to it, kept by {@code CardbaseJournal}, which holds
+ * changes that have not been written into the file yet. The {@code load} methods read the file
+ * alone and leave those changes out, so whatever loads a file which may have a journal must
+ * open the journal with {@code CardbaseJournal.open()} straight after loading, which applies them.
  * 
  * @author Eduardo Pedroni
  */
 public class Cardbase extends StandaloneCardContainer {
 	
+	/**
+	 * What to write when saving a cardbase.
+	 */
+	public enum SaveMode {
+		/**
+		 * The full data of every card along with its count. Cards which were loaded as references
+		 * only are looked up first, and nothing is written if any of them cannot be.
+		 */
+		FULL,
+		/**
+		 * Only the set code, number and count of every card. The cards are looked up
+		 * through a {@code CardSource} when the file is loaded again.
+		 */
+		REFERENCES
+	}
+	
+	/**
+	 * The mode in which the file the cardbase was loaded from was written.
+	 */
+	private SaveMode loadedSaveMode = SaveMode.FULL;
+	
 	/**
 	 * The decks which have been saved along with this collection of cards.
 	 */
@@ -29,10 +69,30 @@ public class Cardbase extends StandaloneCardContainer {
 		
 	}
 	
+	private Cardbase(Cardbase original) {
+		super(original);
+		loadedSaveMode = original.loadedSaveMode;
+	}
+	
 	/**
-	 * Creates and returns a cardbase with the contents of a file.
+	 * Returns a copy of the cardbase as it is now, which can be written out on another
+	 * thread while the cardbase keeps changing. Taking the copy is cheap: the copy shares
+	 * the data of the cardbase, and the cardbase copies its data the first time it changes.
+	 * The two must not be accessed concurrently while the copy is taken.
+	 * 
+	 * @return a copy of the cardbase.
+	 */
+	public Cardbase snapshot() {
+		return new Cardbase(this);
+	}
+	
+	/**
+	 * Creates and returns a cardbase with the contents of a file, which may be in JSON
+	 * or in the binary format of {@code BinaryContainerFormat}, whatever its extension.
+	 * <br><br>
+	 * Changes kept in the file's journal are not applied, see {@code CardbaseJournal.open()}.
 	 *
-	 * @param cardbaseFile the cardbase JSON to load.
+	 * @param cardbaseFile the cardbase file to load.
 	 * 
 	 * @throws JsonParseException if the specified file does not contain valid JSON.
 	 * @throws JsonMappingException if the specified file structure does not match that of {@code Cardbase}.
@@ -41,11 +101,69 @@ public class Cardbase extends StandaloneCardContainer {
 	 * @return the initialised {@code Cardbase} object.
 	 */
 	public static Cardbase load(File cardbaseFile) throws JsonParseException, JsonMappingException, IOException {
-		return JSON.mapper.readValue(cardbaseFile, Cardbase.class);
+		byte[] contents = Files.readAllBytes(cardbaseFile.toPath());
+		Cardbase cardbase;
+		if (BinaryContainerFormat.isBinary(cardbaseFile)) {
+			cardbase = new Cardbase();
+			BinaryContainerFormat.read(new ByteArrayInputStream(contents), cardbase);
+		} else {
+			cardbase = JSON.mapper.readValue(contents, Cardbase.class);
+		}
+		cardbase.setFileChecksum(checksum(contents));
+		cardbase.loadedSaveMode = cardbase.hasCardData() ? SaveMode.FULL : SaveMode.REFERENCES;
+		return cardbase;
+	}
+	
+	/**
+	 * Creates and returns a cardbase with the contents of a file, as {@code load(File)} does,
+	 * looking up any cards which were saved as references only in the specified source
+	 * as they are needed. Changes kept in the file's journal are not applied.
+	 *
+	 * @param cardbaseFile the cardbase file to load.
+	 * @param cardSource where to look up cards saved as references only.
+	 * 
+	 * @throws JsonParseException if the specified file does not contain valid JSON.
+	 * @throws JsonMappingException if the specified file structure does not match that of {@code Cardbase}.
+	 * @throws IOException if a low-level I/O problem (unexpected end-of-input, network error) occurs.
+	 * 
+	 * @return the initialised {@code Cardbase} object.
+	 */
+	public static Cardbase load(File cardbaseFile, CardSource cardSource) throws JsonParseException, JsonMappingException, IOException {
+		Cardbase cardbase = load(cardbaseFile);
+		cardbase.setCardSource(cardSource);
+		return cardbase;
+	}
+	
+	/**
+	 * Creates and returns a cardbase with the contents of a file, as {@code load(File, CardSource)} does,
+	 * without parsing any cards up front. The cards are found through a side index of the file
+	 * made by {@code CardOffsetIndex}, and each one is parsed the first time it is needed.
+	 * Binary files, and JSON files written by older versions, are loaded in full.
+	 * Changes kept in the file's journal are not applied.
+	 * 
+	 * @param cardbaseFile the cardbase file to load.
+	 * @param cardSource where to look up cards saved as references only.
+	 * 
+	 * @throws JsonParseException if the specified file does not contain valid JSON.
+	 * @throws JsonMappingException if the specified file structure does not match that of {@code Cardbase}.
+	 * @throws IOException if a low-level I/O problem (unexpected end-of-input, network error) occurs.
+	 * 
+	 * @return the initialised {@code Cardbase} object.
+	 */
+	public static Cardbase loadLazily(File cardbaseFile, CardSource cardSource) throws JsonParseException, JsonMappingException, IOException {
+		if (!BinaryContainerFormat.isBinary(cardbaseFile)) {
+			Cardbase cardbase = new Cardbase();
+			if (CardOffsetIndex.load(cardbaseFile, cardbase, cardSource)) {
+				cardbase.loadedSaveMode = cardbase.hasCardData() ? SaveMode.FULL : SaveMode.REFERENCES;
+				return cardbase;
+			}
+		}
+		return load(cardbaseFile, cardSource);
 	}
 	
 	/**
-	 * Writes the {@code Cardbase} instance to the provided file in JSON format.
+	 * Writes the {@code Cardbase} instance to the provided file in JSON format, or in the
+	 * binary format of {@code BinaryContainerFormat} if the file name ends with its extension.
 	 * 
 	 * @param file the file to which to write the {@code Cardbase}.
 	 * @param cardbase the {@code Cardbase} to write out.
@@ -55,6 +173,120 @@ public class Cardbase extends StandaloneCardContainer {
 	 * @throws IOException if a low-level I/O problem (unexpected end-of-input, network error) occurs.
 	 */
 	public void write(File outputFile) throws JsonGenerationException, JsonMappingException, IOException {
-		JSON.mapper.writeValue(outputFile, this);
+		write(outputFile, SaveMode.FULL);
+	}
+	
+	/**
+	 * Writes the {@code Cardbase} instance to the provided file as {@code write(File)} does,
+	 * optionally leaving out the card data so that only the card counts are written.
+	 * <br><br>
+	 * The file is replaced atomically: the new contents are written to a temporary file next to it,
+	 * which is then renamed over it, so a crash while writing leaves the previous contents intact.
+	 * <br><br>
+	 * In {@code FULL} mode, cards which have no data are looked up first, which may block, see
+	 * {@code lookUpMissingCards()}. If any of them cannot be looked up, nothing is written.
+	 * 
+	 * @param outputFile the file to which to write the {@code Cardbase}.
+	 * @param mode what to write.
+	 * 
+	 * @throws JsonGenerationException if the data structure given does not generate valid JSON.
+	 * @throws JsonMappingException if the data structure given does not generate valid JSON as well?
+	 * @throws IOException if a low-level I/O problem (unexpected end-of-input, network error) occurs,
+	 * or if some cards cannot be looked up in {@code FULL} mode.
+	 */
+	public void write(File outputFile, SaveMode mode) throws JsonGenerationException, JsonMappingException, IOException {
+		writeAtomically(outputFile, toBytes(outputFile, mode));
+	}
+	
+	/**
+	 * Returns the contents which {@code write(File, SaveMode)} would write to the specified file.
+	 * 
+	 * @param outputFile the file whose name determines the format.
+	 * @param mode what to write.
+	 * @return the contents of the file.
+	 * @throws IOException if the cardbase cannot be serialised, or if some cards cannot be looked up in {@code FULL} mode.
+	 */
+	byte[] toBytes(File outputFile, SaveMode mode) throws IOException {
+		if (mode == SaveMode.FULL) {
+			int missing = lookUpMissingCards();
+			if (missing > 0) {
+				throw new IOException(missing + " cards could not be looked up, so the cardbase cannot be written in full.");
+			}
+		}
+		if (BinaryContainerFormat.isBinaryFileName(outputFile)) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			BinaryContainerFormat.write(this, out, mode == SaveMode.FULL);
+			return out.toByteArray();
+		} else if (mode == SaveMode.FULL) {
+			return JSON.mapper.writeValueAsBytes(this);
+		} else {
+			// the fields of ReferenceCardContainer are exactly the counts
+			return JSON.mapper.writerFor(ReferenceCardContainer.class).writeValueAsBytes(this);
+		}
+	}
+	
+	/**
+	 * @return the mode in which the file the cardbase was loaded from was written, as determined when it
+	 * was loaded: {@code REFERENCES} if the file had cards but data for none of them, {@code FULL} otherwise.
+	 */
+	SaveMode getLoadedSaveMode() {
+		return loadedSaveMode;
+	}
+	
+	/**
+	 * @param contents the contents of a file.
+	 * @return the CRC32 of the contents.
+	 */
+	static long checksum(byte[] contents) {
+		CRC32 crc = new CRC32();
+		crc.update(contents, 0, contents.length);
+		return crc.getValue();
+	}
+	
+	/**
+	 * Replaces the contents of a file with the specified bytes, such that the file has either its old
+	 * or its new contents should the program or system crash at any point. The bytes are written and
+	 * synced to a temporary file in the same directory, which is then renamed over the file.
+	 * 
+	 * @param file the file to write.
+	 * @param contents the new contents of the file.
+	 * @throws IOException if the file exists but cannot be written, or if writing or renaming fails.
+	 */
+	static void writeAtomically(File file, byte[] contents) throws IOException {
+		// renaming would succeed regardless, but a read-only file should stay as it is
+		if (file.exists() && !file.canWrite()) {
+			throw new IOException("Cannot write to " + file.getAbsolutePath() + ".");
+		}
+		Path target = file.getAbsoluteFile().toPath();
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer buffer = ByteBuffer.wrap(contents);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(true);
+			}
+			try {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		syncDirectory(target.getParent());
+	}
+	
+	/**
+	 * Syncs a directory so that a rename within it survives a system crash.
+	 * Not every platform allows directories to be opened, in which case this does nothing.
+	 */
+	private static void syncDirectory(Path directory) {
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			// the rename is as durable as the platform makes it
+		}
 	}
 }
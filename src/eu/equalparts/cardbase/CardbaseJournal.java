@@ -0,0 +1,716 @@
+package eu.equalparts.cardbase;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import eu.equalparts.cardbase.Cardbase.SaveMode;
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.json.JSON;
+
+/**
+ * Keeps the changes made to a cardbase since it was last written in full in an append-only journal
+ * next to its file, so that saving costs as much as the changes rather than the whole cardbase.
+ * <br><br>
+ * Cards are added and removed through the journal, which records each change as it makes it to the
+ * cardbase, and {@code commit()} appends the recorded changes to the journal and syncs it to disk.
+ * Opening the journal of a cardbase file applies the committed changes to the cardbase loaded from that
+ * file. Once enough changes have been committed, the whole cardbase is written to its file and the
+ * journal is removed. With {@code startAutosave()}, changes are also committed in the background
+ * after a number of changes or a delay, whichever comes first, and changes made in quick succession
+ * are committed together.
+ * <br><br>
+ * All writing, including serialising the cardbase, happens on a background thread, which works from
+ * a snapshot of the cardbase so that it can keep changing meanwhile. The cardbase is locked only while
+ * the snapshot is taken and while changes are made through the journal, so anything else which changes
+ * the cardbase while the journal is in use, or reads it from a thread other than the one which changes it,
+ * should hold its lock too. The thread which changes the cardbase can read it without the lock, as the
+ * background thread only ever reads it.
+ * <br><br>
+ * The journal is a text file. Its first line holds a checksum of the cardbase file to which its
+ * changes apply, and each following line is either a change, with the card in JSON, or a snapshot
+ * line. Snapshot lines are appended before the cardbase file is rewritten and hold the checksum of
+ * the new file, which includes every change before them. Because the journal is only ever removed
+ * after the cardbase file is rewritten, a crash at any point loses no committed change and applies
+ * none twice. A last line which was not fully written is ignored.
+ * <br><br>
+ * A journal which does not belong to the current contents of the cardbase file, as happens if the file
+ * is replaced by other means, or which cannot be read at all, is stale: opening the cardbase file moves
+ * it aside, to a file named after it with {@code STALE_EXTENSION} appended, rather than failing.
+ *
+ * @author Eduardo Pedroni
+ */
+public final class CardbaseJournal implements Closeable {
+
+	/**
+	 * The journal of a cardbase file is named after it, with this appended.
+	 */
+	public static final String EXTENSION = ".journal";
+	/**
+	 * A stale journal is moved aside to a file named after it, with this appended.
+	 */
+	public static final String STALE_EXTENSION = ".stale";
+	/**
+	 * The number of committed changes after which the journal is compacted, by default.
+	 */
+	public static final int DEFAULT_COMPACTION_THRESHOLD = 500;
+
+	private static final String HEADER = "cardbase-journal 1 ", ADD = "add", REMOVE = "remove", SNAPSHOT = "snapshot";
+
+	private final Cardbase cardbase;
+	private final File cardbaseFile, journalFile;
+	private final int compactionThreshold;
+	/**
+	 * Does all of the writing, one task at a time.
+	 */
+	private final ScheduledThreadPoolExecutor writer;
+
+	/*
+	 * Guarded by the lock of the cardbase.
+	 */
+	/**
+	 * Changes which have been made but not committed.
+	 */
+	private List<Change> pending = new ArrayList<>();
+	/**
+	 * The next autosave, null if none is scheduled.
+	 */
+	private ScheduledFuture<?> scheduledAutosave;
+	/**
+	 * The number of changes after which they are autosaved, 0 if autosave is off.
+	 */
+	private int autosaveChanges = 0;
+	/**
+	 * How long after a change it is autosaved at the latest, in milliseconds.
+	 */
+	private long autosaveDelay;
+
+	/*
+	 * Only accessed by the writer thread, once the journal has been opened.
+	 */
+	/**
+	 * The checksum of the cardbase file as it currently is on disk.
+	 */
+	private long baseChecksum;
+	/**
+	 * The length of the journal file up to its last complete line, 0 if it does not exist.
+	 */
+	private long length = 0;
+	/**
+	 * The number of changes in the journal file which are not yet in the cardbase file.
+	 */
+	private int journalled = 0;
+	/**
+	 * Appends to the journal file, null until something is appended.
+	 */
+	private FileChannel channel;
+	/**
+	 * The mode in which the cardbase file is written when the journal is compacted.
+	 */
+	private volatile SaveMode mode;
+	/**
+	 * Where a stale journal was moved when the journal was opened, null if there was none.
+	 */
+	private File staleJournalFile;
+	/**
+	 * Released once each time an autosave is done, so that tests can wait for autosaves.
+	 */
+	private final Semaphore autosaved = new Semaphore(0);
+
+	private CardbaseJournal(Cardbase cardbase, File cardbaseFile, SaveMode mode, int compactionThreshold, long baseChecksum) {
+		this.cardbase = cardbase;
+		this.cardbaseFile = cardbaseFile;
+		this.journalFile = new File(cardbaseFile.getPath() + EXTENSION);
+		this.mode = mode;
+		this.compactionThreshold = compactionThreshold;
+		this.baseChecksum = baseChecksum;
+
+		writer = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "cardbase-journal");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// autosaves still scheduled when the journal is closed are done by close() itself
+		writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+
+	/**
+	 * Opens the journal of a cardbase file, applying any changes committed to it to the specified
+	 * cardbase, which must have just been loaded from that file. The journal is compacted after
+	 * {@code DEFAULT_COMPACTION_THRESHOLD} changes, and the cardbase file is then written in the
+	 * mode it was last written in.
+	 * <br><br>
+	 * A stale journal is moved aside and none of its changes are applied, see {@code getStaleJournalFile()}.
+	 *
+	 * @param cardbase the cardbase loaded from {@code cardbaseFile}.
+	 * @param cardbaseFile the file from which the cardbase was loaded.
+	 * @return the journal.
+	 * @throws IOException if the journal cannot be read or moved aside.
+	 */
+	public static CardbaseJournal open(Cardbase cardbase, File cardbaseFile) throws IOException {
+		return open(cardbase, cardbaseFile, DEFAULT_COMPACTION_THRESHOLD);
+	}
+
+	/**
+	 * Opens the journal of a cardbase file as {@code open(Cardbase, File)} does, compacting it
+	 * after the specified number of changes.
+	 *
+	 * @param cardbase the cardbase loaded from {@code cardbaseFile}.
+	 * @param cardbaseFile the file from which the cardbase was loaded.
+	 * @param compactionThreshold the number of committed changes after which the journal is compacted.
+	 * @return the journal.
+	 * @throws IOException if the journal cannot be read or moved aside.
+	 */
+	public static CardbaseJournal open(Cardbase cardbase, File cardbaseFile, int compactionThreshold) throws IOException {
+		// the file was checksummed as it was loaded, if it was read in full
+		long baseChecksum = cardbase.getFileChecksum() >= 0 ? cardbase.getFileChecksum() : checksum(cardbaseFile);
+		CardbaseJournal journal = new CardbaseJournal(cardbase, cardbaseFile, cardbase.getLoadedSaveMode(), compactionThreshold, baseChecksum);
+		journal.replay();
+		return journal;
+	}
+
+	/**
+	 * Writes the whole cardbase to the specified file, replacing any previous contents
+	 * and journal, and returns a new journal for it.
+	 *
+	 * @param cardbase the cardbase to write.
+	 * @param cardbaseFile the file to which to write the cardbase.
+	 * @param mode what to write, now and when the journal is compacted.
+	 * @return the journal.
+	 * @throws IOException if the cardbase cannot be written.
+	 */
+	public static CardbaseJournal create(Cardbase cardbase, File cardbaseFile, SaveMode mode) throws IOException {
+		CardbaseJournal journal = new CardbaseJournal(cardbase, cardbaseFile, mode, DEFAULT_COMPACTION_THRESHOLD, 0);
+		// an old journal is only discarded once the file no longer matches it
+		if (journal.journalFile.isFile()) {
+			journal.length = committedLength(Files.readAllBytes(journal.journalFile.toPath()));
+		}
+		try {
+			journal.rewrite(mode);
+		} catch (IOException e) {
+			journal.writer.shutdown();
+			throw e;
+		}
+		return journal;
+	}
+
+	/**
+	 * Adds some of a card to the cardbase and records the change.
+	 *
+	 * @param card the card to add.
+	 * @param count the amount to add.
+	 */
+	public void addCard(Card card, int count) {
+		synchronized (cardbase) {
+			cardbase.addCard(card, count);
+			record(new Change(ADD, card, count));
+		}
+	}
+
+	/**
+	 * Removes some of a card from the cardbase and records the change.
+	 *
+	 * @param card the card to remove.
+	 * @param count the amount to remove.
+	 * @return the amount that was effectively removed, as returned by {@code Cardbase.removeCard()}.
+	 */
+	public int removeCard(Card card, int count) {
+		synchronized (cardbase) {
+			int removed = cardbase.removeCard(card, count);
+			if (removed > 0) {
+				record(new Change(REMOVE, card, removed));
+			}
+			return removed;
+		}
+	}
+
+	/**
+	 * Appends the recorded changes to the journal and syncs it, so that they survive a crash,
+	 * and waits for that to be done. If enough changes have been committed, the journal is
+	 * then compacted.
+	 *
+	 * @throws IOException if the changes cannot be appended, in which case they stay recorded.
+	 */
+	public void commit() throws IOException {
+		await(writer.submit(() -> {
+			save();
+			return null;
+		}));
+	}
+
+	/**
+	 * Writes the whole cardbase to its file, including any changes which have not been committed,
+	 * and removes the journal, waiting for that to be done.
+	 *
+	 * @param mode what to write, now and when the journal is compacted.
+	 * @throws IOException if the cardbase cannot be written.
+	 */
+	public void rewrite(SaveMode mode) throws IOException {
+		await(writer.submit(() -> {
+			List<Change> included;
+			Cardbase snapshot;
+			synchronized (cardbase) {
+				cancelAutosave();
+				included = drainPending();
+				snapshot = cardbase.snapshot();
+			}
+			try {
+				compact(snapshot, mode);
+			} catch (IOException e) {
+				restorePending(included);
+				throw e;
+			}
+			this.mode = mode;
+			return null;
+		}));
+	}
+
+	/**
+	 * Starts committing changes in the background, once the specified number of changes has been
+	 * made or once the specified time has passed since the first change which was not committed,
+	 * whichever comes first. If committing fails, it is tried again after the same time.
+	 *
+	 * @param changes the number of changes after which they are committed.
+	 * @param delay the longest time for which a change is left uncommitted.
+	 * @param unit the unit of {@code delay}.
+	 */
+	public void startAutosave(int changes, long delay, TimeUnit unit) {
+		if (changes <= 0) {
+			throw new IllegalArgumentException("Autosave must happen after at least 1 change.");
+		}
+		synchronized (cardbase) {
+			autosaveChanges = changes;
+			autosaveDelay = unit.toMillis(delay);
+			if (!pending.isEmpty()) {
+				scheduleAutosave();
+			}
+		}
+	}
+
+	/**
+	 * Stops committing changes in the background. Changes which have not been committed
+	 * stay recorded, to be committed with {@code commit()}.
+	 */
+	public void stopAutosave() {
+		synchronized (cardbase) {
+			autosaveChanges = 0;
+			cancelAutosave();
+		}
+	}
+
+	/**
+	 * @return true if changes are being committed in the background.
+	 */
+	public boolean isAutosaving() {
+		synchronized (cardbase) {
+			return autosaveChanges > 0;
+		}
+	}
+
+	/**
+	 * @return true if some changes have been made which have not been committed yet.
+	 */
+	public boolean hasUncommittedChanges() {
+		synchronized (cardbase) {
+			return !pending.isEmpty();
+		}
+	}
+
+	/**
+	 * @return the cardbase file whose changes are kept in this journal.
+	 */
+	public File getCardbaseFile() {
+		return cardbaseFile;
+	}
+
+	/**
+	 * @return the mode in which the cardbase file is written when the journal is compacted.
+	 */
+	public SaveMode getSaveMode() {
+		return mode;
+	}
+
+	/**
+	 * @return the file to which a stale journal was moved when the journal was opened, or null if
+	 * the journal was not stale.
+	 */
+	public File getStaleJournalFile() {
+		return staleJournalFile;
+	}
+
+	/**
+	 * Waits for any writing in progress and closes the journal file. If autosave is on, the recorded
+	 * changes are committed first; otherwise, changes which have not been committed are discarded.
+	 *
+	 * @throws IOException if autosave is on and the changes cannot be committed, in which case
+	 * the journal stays open.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (isAutosaving()) {
+			commit();
+			stopAutosave();
+		}
+		writer.shutdown();
+		try {
+			writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while closing the journal.");
+		}
+		closeChannel();
+	}
+
+	/**
+	 * Waits for the next autosave which has not been waited for to be done. This is for tests,
+	 * which would otherwise have to poll the journal file.
+	 *
+	 * @param timeout the longest time to wait.
+	 * @param unit the unit of {@code timeout}.
+	 * @return true if an autosave was done, false if none was done in time.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	boolean awaitAutosave(long timeout, TimeUnit unit) throws InterruptedException {
+		return autosaved.tryAcquire(timeout, unit);
+	}
+
+	/**
+	 * Applies the changes in the journal file which are not in the cardbase file to the cardbase,
+	 * or moves the journal file aside if it is stale. Every change is read before any is applied,
+	 * so a stale journal leaves the cardbase as it was.
+	 */
+	private void replay() throws IOException {
+		if (!journalFile.isFile()) {
+			return;
+		}
+		byte[] contents = Files.readAllBytes(journalFile.toPath());
+		int committed = (int) committedLength(contents);
+		if (committed == 0) {
+			return;
+		}
+		List<Change> changes;
+		try {
+			changes = changesToReplay(new String(contents, 0, committed, StandardCharsets.UTF_8).split("\n"));
+		} catch (IOException e) {
+			changes = null;
+		}
+		if (changes == null) {
+			staleJournalFile = new File(journalFile.getPath() + STALE_EXTENSION);
+			Files.move(journalFile.toPath(), staleJournalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			return;
+		}
+
+		length = committed;
+		for (Change change : changes) {
+			if (change.operation.equals(ADD)) {
+				cardbase.addCard(change.card, change.count);
+			} else {
+				cardbase.removeCard(change.card, change.count);
+			}
+		}
+		journalled = changes.size();
+	}
+
+	/**
+	 * Reads the changes in the specified journal lines which are not in the cardbase file.
+	 *
+	 * @return the changes, or null if the lines do not belong to the current contents of the cardbase file.
+	 * @throws IOException if the lines are not a well-formed journal.
+	 */
+	private List<Change> changesToReplay(String[] lines) throws IOException {
+		if (!lines[0].startsWith(HEADER)) {
+			return null;
+		}
+
+		// the last snapshot of the current file is the latest point the file is known to include
+		int start = -1;
+		for (int i = lines.length - 1; i > 0 && start < 0; i--) {
+			if (lines[i].equals(SNAPSHOT + " " + Long.toHexString(baseChecksum))) {
+				start = i + 1;
+			}
+		}
+		if (start < 0 && lines[0].equals(HEADER + Long.toHexString(baseChecksum))) {
+			start = 1;
+		}
+		if (start < 0) {
+			return null;
+		}
+
+		List<Change> changes = new ArrayList<>();
+		for (int i = start; i < lines.length; i++) {
+			if (!lines[i].startsWith(SNAPSHOT)) {
+				changes.add(parse(lines[i]));
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * Reads a single change line.
+	 */
+	private static Change parse(String line) throws IOException {
+		int countStart = line.indexOf(' ') + 1, cardStart = line.indexOf(' ', countStart) + 1;
+		if (countStart == 0 || cardStart == 0) {
+			throw new IOException("Malformed journal entry: " + line);
+		}
+		String operation = line.substring(0, countStart - 1);
+		if (!operation.equals(ADD) && !operation.equals(REMOVE)) {
+			throw new IOException("Malformed journal entry: " + line);
+		}
+		int count;
+		try {
+			count = Integer.parseInt(line.substring(countStart, cardStart - 1));
+		} catch (NumberFormatException e) {
+			throw new IOException("Malformed journal entry: " + line, e);
+		}
+		return new Change(operation.equals(ADD) ? ADD : REMOVE, JSON.mapper.readValue(line.substring(cardStart), Card.class), count);
+	}
+
+	/**
+	 * Records a change which has just been made, scheduling an autosave if autosave is on.
+	 * Must be called while holding the lock of the cardbase.
+	 */
+	private void record(Change change) {
+		pending.add(change);
+		if (autosaveChanges > 0) {
+			scheduleAutosave();
+		}
+	}
+
+	/**
+	 * Makes sure an autosave is scheduled, now if enough changes have been made, otherwise after the delay.
+	 * An autosave which is already scheduled earlier is left as it is, so that the changes made before
+	 * it runs are all committed together. Must be called while holding the lock of the cardbase.
+	 */
+	private void scheduleAutosave() {
+		long delay = pending.size() >= autosaveChanges ? 0 : autosaveDelay;
+		if (scheduledAutosave != null) {
+			if (scheduledAutosave.getDelay(TimeUnit.MILLISECONDS) <= delay) {
+				return;
+			}
+			scheduledAutosave.cancel(false);
+		}
+		scheduledAutosave = writer.schedule(this::autosave, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Must be called while holding the lock of the cardbase.
+	 */
+	private void cancelAutosave() {
+		if (scheduledAutosave != null) {
+			scheduledAutosave.cancel(false);
+			scheduledAutosave = null;
+		}
+	}
+
+	/**
+	 * Runs on the writer thread when an autosave is due.
+	 */
+	private void autosave() {
+		try {
+			save();
+			autosaved.release();
+		} catch (IOException e) {
+			// the changes are still recorded, try again later
+			synchronized (cardbase) {
+				if (autosaveChanges > 0) {
+					scheduledAutosave = writer.schedule(this::autosave, autosaveDelay, TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Appends the recorded changes to the journal file, then compacts it if enough changes
+	 * have been committed. Runs on the writer thread.
+	 */
+	private void save() throws IOException {
+		List<Change> batch;
+		Cardbase snapshot = null;
+		synchronized (cardbase) {
+			// this covers any autosave which was due
+			cancelAutosave();
+			batch = drainPending();
+			if (!batch.isEmpty() && journalled + batch.size() >= compactionThreshold) {
+				snapshot = cardbase.snapshot();
+			}
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		try {
+			StringBuilder lines = new StringBuilder();
+			for (Change change : batch) {
+				lines.append(change.operation).append(' ').append(change.count).append(' ')
+						.append(JSON.mapper.writeValueAsString(change.card)).append('\n');
+			}
+			append(lines.toString(), batch.size());
+		} catch (IOException e) {
+			restorePending(batch);
+			throw e;
+		}
+
+		if (snapshot != null) {
+			try {
+				compact(snapshot, mode);
+			} catch (IOException e) {
+				// the changes are still in the journal, compaction is tried again after the next commit
+			}
+		}
+	}
+
+	/**
+	 * Must be called while holding the lock of the cardbase.
+	 *
+	 * @return the recorded changes, which are no longer recorded.
+	 */
+	private List<Change> drainPending() {
+		List<Change> drained = pending;
+		pending = new ArrayList<>();
+		return drained;
+	}
+
+	/**
+	 * Records changes which could not be committed again, ahead of any made since.
+	 */
+	private void restorePending(List<Change> changes) {
+		synchronized (cardbase) {
+			changes.addAll(pending);
+			pending = changes;
+		}
+	}
+
+	/**
+	 * Appends complete lines to the journal file and syncs it. Runs on the writer thread.
+	 */
+	private void append(String lines, int changes) throws IOException {
+		if (channel == null) {
+			channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			// anything past the last complete line was never committed
+			channel.truncate(length);
+		}
+		if (length == 0) {
+			lines = HEADER + Long.toHexString(baseChecksum) + "\n" + lines;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer, length + buffer.position());
+			}
+			channel.force(false);
+		} catch (IOException e) {
+			// the partly written lines are truncated when the journal is next opened
+			closeChannel();
+			throw e;
+		}
+		length += buffer.limit();
+		journalled += changes;
+	}
+
+	/**
+	 * Writes a snapshot of the cardbase to the cardbase file, then removes the journal, whose
+	 * changes the snapshot includes. If the journal has any contents, a snapshot line is appended
+	 * first, so that its changes are not applied again if the journal outlives the rewrite.
+	 * Runs on the writer thread.
+	 */
+	private void compact(Cardbase snapshot, SaveMode mode) throws IOException {
+		byte[] contents = snapshot.toBytes(cardbaseFile, mode);
+		long checksum = Cardbase.checksum(contents);
+		if (length > 0) {
+			append(SNAPSHOT + " " + Long.toHexString(checksum) + "\n", 0);
+		}
+		Cardbase.writeAtomically(cardbaseFile, contents);
+		baseChecksum = checksum;
+		journalled = 0;
+		closeChannel();
+		Files.deleteIfExists(journalFile.toPath());
+		length = 0;
+	}
+
+	private void closeChannel() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	/**
+	 * Waits for a task of the writer thread, rethrowing whatever it threw.
+	 */
+	private static void await(Future<?> task) throws IOException {
+		try {
+			task.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the journal.");
+		}
+	}
+
+	/**
+	 * @return the length of the specified journal contents up to and including their last line break.
+	 */
+	private static long committedLength(byte[] contents) {
+		int length = contents.length;
+		while (length > 0 && contents[length - 1] != '\n') {
+			length--;
+		}
+		return length;
+	}
+
+	/**
+	 * @return the CRC32 of the specified file, which is read a buffer at a time.
+	 */
+	private static long checksum(File file) throws IOException {
+		try (CheckedInputStream in = new CheckedInputStream(new FileInputStream(file), new CRC32())) {
+			byte[] buffer = new byte[8192];
+			while (in.read(buffer) >= 0) {
+				// the checksum is updated as the file is read
+			}
+			return in.getChecksum().getValue();
+		}
+	}
+
+	/**
+	 * A change which has been made but not committed.
+	 */
+	private static final class Change {
+		final String operation;
+		final Card card;
+		final int count;
+
+		Change(String operation, Card card, int count) {
+			this.operation = operation;
+			this.card = card;
+			this.count = count;
+		}
+	}
+}
@@ -3,18 +3,23 @@ package eu.equalparts.cardbase.card;
 import eu.equalparts.cardbase.cardfield.IntegerCardField;
 import eu.equalparts.cardbase.cardfield.StringCardField;
 import eu.equalparts.cardbase.comparator.SpecialFields.DirtyNumber;
+import eu.equalparts.cardbase.comparator.SpecialFields.LowCardinality;
 import eu.equalparts.cardbase.comparator.SpecialFields.Rarity;
 
 public class Card {
 	public StringCardField name;
+	@LowCardinality
 	public StringCardField layout;
 	public StringCardField manaCost;
 	public IntegerCardField cmc;
+	@LowCardinality
 	public StringCardField type;
 	@Rarity
+	@LowCardinality
 	public StringCardField rarity;
 	public StringCardField text;
 	public StringCardField flavor;
+	@LowCardinality
 	public StringCardField artist;
 	@DirtyNumber
 	public StringCardField number;
@@ -27,6 +32,7 @@ public class Card {
 	public StringCardField imageName;
 
 	// Not part of upstream JSON
+	@LowCardinality
 	public StringCardField setCode;
 	
 	public static int makeHash(String setCode, String number) {
@@ -8,6 +8,22 @@ public class CardSetInformation {
 	@JsonProperty private String code;
 	@JsonProperty private String releaseDate;
 	
+	/**
+	 * Used by Jackson, which fills in the fields itself.
+	 */
+	public CardSetInformation() {}
+	
+	/**
+	 * @param name the set's name.
+	 * @param code the set code.
+	 * @param releaseDate the set's release date.
+	 */
+	public CardSetInformation(String name, String code, String releaseDate) {
+		this.name = name;
+		this.code = code;
+		this.releaseDate = releaseDate;
+	}
+	
 	/**
 	 * @return the set's name.
 	 */
@@ -1,5 +1,4 @@
 package eu.equalparts.cardbase.cardfield;
-import eu.equalparts.cardbase.filtering.Filter;
 
 public abstract class CardField<T extends Comparable<T>> implements Comparable<CardField<T>> {
 	private String name;
@@ -24,8 +23,6 @@ public abstract class CardField<T extends Comparable<T>> implements Comparable<C
 	
 	@Override
 	public int compareTo(CardField<T> o) {
-		return value.compareTo(o.get());
+		return get().compareTo(o.get());
 	}
-	
-	public abstract boolean filter(Filter filter);
 }
@@ -0,0 +1,127 @@
+package eu.equalparts.cardbase.cardfield;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.comparator.SpecialFields.DirtyNumber;
+import eu.equalparts.cardbase.comparator.SpecialFields.Rarity;
+import eu.equalparts.cardbase.utils.Utils;
+
+/**
+ * Resolves {@code Card} field names into plain getters, so that filtering and
+ * sorting don't have to go through reflection for every card they look at.
+ * <br><br>
+ * Reflection is still used, but only once per field when this class is loaded,
+ * to work out the type of the field and whether it carries any of the
+ * annotations in {@code SpecialFields}.
+ *
+ * @author Eduardo Pedroni
+ *
+ */
+public final class CardFieldAccessor {
+
+	/**
+	 * All accessors, indexed by the name of the field they access.
+	 */
+	private static final Map<String, CardFieldAccessor> accessors = new HashMap<>();
+
+	static {
+		register("name", card -> card.name);
+		register("layout", card -> card.layout);
+		register("manaCost", card -> card.manaCost);
+		register("cmc", card -> card.cmc);
+		register("type", card -> card.type);
+		register("rarity", card -> card.rarity);
+		register("text", card -> card.text);
+		register("flavor", card -> card.flavor);
+		register("artist", card -> card.artist);
+		register("number", card -> card.number);
+		register("power", card -> card.power);
+		register("toughness", card -> card.toughness);
+		register("loyalty", card -> card.loyalty);
+		register("multiverseid", card -> card.multiverseid);
+		register("imageName", card -> card.imageName);
+		register("setCode", card -> card.setCode);
+
+		// make sure no field was left out of the table above
+		for (Field field : Card.class.getDeclaredFields()) {
+			if (CardField.class.isAssignableFrom(field.getType()) && !accessors.containsKey(field.getName())) {
+				throw new IllegalStateException("Card field \"" + field.getName() + "\" has no accessor.");
+			}
+		}
+	}
+
+	private final String name;
+	private final Function<Card, CardField<?>> getter;
+	private final boolean integer, dirtyNumber, rarity;
+
+	private CardFieldAccessor(Field field, Function<Card, CardField<?>> getter) {
+		this.name = field.getName();
+		this.getter = getter;
+		this.integer = field.getType().equals(IntegerCardField.class);
+		this.dirtyNumber = Utils.hasAnnotation(field, DirtyNumber.class);
+		this.rarity = Utils.hasAnnotation(field, Rarity.class);
+	}
+
+	private static void register(String fieldName, Function<Card, CardField<?>> getter) {
+		try {
+			accessors.put(fieldName, new CardFieldAccessor(Card.class.getDeclaredField(fieldName), getter));
+		} catch (NoSuchFieldException e) {
+			throw new IllegalStateException("Card does not declare field \"" + fieldName + "\".", e);
+		}
+	}
+
+	/**
+	 * Returns the accessor for the specified field.
+	 *
+	 * @param fieldName the name of the field, as declared in {@code Card}.
+	 * @return the accessor for the field.
+	 * @throws NoSuchFieldException if {@code Card} has no such field.
+	 */
+	public static CardFieldAccessor forName(String fieldName) throws NoSuchFieldException {
+		CardFieldAccessor accessor = accessors.get(fieldName);
+		if (accessor == null) {
+			throw new NoSuchFieldException(fieldName);
+		}
+		return accessor;
+	}
+
+	/**
+	 * @param card the card from which to get the field.
+	 * @return the field of the specified card.
+	 */
+	public CardField<?> get(Card card) {
+		return getter.apply(card);
+	}
+
+	/**
+	 * @return the name of the field, as declared in {@code Card}.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return true if the field is an {@code IntegerCardField}.
+	 */
+	public boolean isInteger() {
+		return integer;
+	}
+
+	/**
+	 * @return true if the field is annotated with {@code DirtyNumber}.
+	 */
+	public boolean isDirtyNumber() {
+		return dirtyNumber;
+	}
+
+	/**
+	 * @return true if the field is annotated with {@code Rarity}.
+	 */
+	public boolean isRarity() {
+		return rarity;
+	}
+}
@@ -0,0 +1,144 @@
+package eu.equalparts.cardbase.cli;
+
+import java.io.PrintStream;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+import eu.equalparts.cardbase.card.Card;
+
+/**
+ * Renders glances and perusals of cards into a buffer, which is printed in large
+ * chunks rather than a line at a time, so that listing a big cardbase does not spend
+ * its time formatting and flushing each line separately.
+ * <br><br>
+ * The output is exactly what printing each line with {@code String.format()} and
+ * {@code println()} would produce, including the platform's line separator.
+ *
+ * @author Eduardo Pedroni
+ */
+final class CardRenderer {
+
+	/**
+	 * The buffer is printed whenever it grows past this many characters.
+	 */
+	private static final int CHUNK_SIZE = 1 << 16;
+	/**
+	 * Glances pad the count to this width.
+	 */
+	private static final int COUNT_WIDTH = 4;
+
+	private final PrintStream out;
+	private final StringBuilder buffer = new StringBuilder(CHUNK_SIZE + 1024);
+	private final String lineSeparator = System.lineSeparator();
+	/**
+	 * Counts are formatted by hand only if the default locale writes numbers with ASCII digits,
+	 * otherwise they are left to {@code String.format()}, which would localise them.
+	 */
+	private final boolean asciiDigits = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getZeroDigit() == '0';
+
+	/**
+	 * Creates a renderer which prints to the specified stream.
+	 *
+	 * @param out the stream to print to.
+	 */
+	CardRenderer(PrintStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Renders a glance of the specified card. A glance contains simply
+	 * the card count, name, set code and set number.
+	 *
+	 * @param card the card to glance.
+	 * @param count the amount of the card in the cardbase.
+	 */
+	void glance(Card card, int count) {
+		if (asciiDigits) {
+			int start = buffer.length();
+			buffer.append(count);
+			for (int padding = COUNT_WIDTH - (buffer.length() - start); padding > 0; padding--) {
+				buffer.append(' ');
+			}
+		} else {
+			buffer.append(String.format("%1$-4d", count));
+		}
+		buffer.append(' ').append(card.name.get())
+			.append(" (").append(card.setCode.get()).append(", ").append(card.number.get()).append(')');
+		endLine();
+	}
+
+	/**
+	 * Renders a perusal of the specified card. A perusal contains more
+	 * information than a glance, but not every single field the card has
+	 * as that would be too verbose while adding little value.
+	 *
+	 * @param card the card to peruse.
+	 * @param count the amount of the card in the cardbase.
+	 */
+	void perusal(Card card, int count) {
+		glance(card, count);
+		if (card.type.get() != null) indented("", card.type.get());
+		if (card.manaCost.get() != null) indented("Cost: ", card.manaCost.get());
+		if (card.power.get() != null && card.toughness.get() != null) {
+			buffer.append('\t').append(card.power.get()).append('/').append(card.toughness.get());
+			endLine();
+		}
+		if (card.loyalty.get() != null) indented("Loyalty: ", card.loyalty.get());
+
+		if (card.text.get() != null) indentedParagraph(card.text.get());
+		if (card.flavor.get() != null) indentedParagraph(card.flavor.get());
+
+		if (card.rarity.get() != null) indented("", card.rarity.get());
+		if (card.multiverseid.get() != null) indented("MID: ", card.multiverseid.get());
+		if (card.artist.get() != null) indented("Illus. ", card.artist.get());
+	}
+
+	/**
+	 * Renders a line of text as it is.
+	 *
+	 * @param line the line to render.
+	 */
+	void line(String line) {
+		buffer.append(line);
+		endLine();
+	}
+
+	/**
+	 * Prints whatever is left in the buffer.
+	 */
+	void flush() {
+		if (buffer.length() > 0) {
+			out.print(buffer);
+			buffer.setLength(0);
+		}
+	}
+
+	/**
+	 * Renders a tab-indented line.
+	 */
+	private void indented(String label, Object value) {
+		buffer.append('\t').append(label).append(value);
+		endLine();
+	}
+
+	/**
+	 * Renders text which may span several lines, indenting every line.
+	 */
+	private void indentedParagraph(String text) {
+		buffer.append('\t');
+		int lineStart = 0;
+		for (int newline = text.indexOf('\n'); newline >= 0; newline = text.indexOf('\n', lineStart)) {
+			buffer.append(text, lineStart, newline + 1).append('\t');
+			lineStart = newline + 1;
+		}
+		buffer.append(text, lineStart, text.length());
+		endLine();
+	}
+
+	private void endLine() {
+		buffer.append(lineSeparator);
+		if (buffer.length() >= CHUNK_SIZE) {
+			flush();
+		}
+	}
+}
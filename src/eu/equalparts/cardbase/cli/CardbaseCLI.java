@@ -7,16 +7,21 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Arrays;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 
 import eu.equalparts.cardbase.Cardbase;
+import eu.equalparts.cardbase.CardbaseJournal;
 import eu.equalparts.cardbase.card.Card;
 import eu.equalparts.cardbase.card.CardSetInformation;
 import eu.equalparts.cardbase.card.FullCardSet;
+import eu.equalparts.cardbase.containers.BinaryContainerFormat;
+import eu.equalparts.cardbase.utils.FullCardSetCache;
 import eu.equalparts.cardbase.utils.MTGUniverse;
+import eu.equalparts.cardbase.utils.OfflineCardDatabase;
 
 /**
  * This provides a lightweight CLI for interacting with cardbase files. 
@@ -53,6 +58,22 @@ public final class CardbaseCLI {
 	 * This is the default remote URL from where card data is queried.
 	 */
 	private static final String REMOTE_URL = "http://mtgjson.com/json/";
+	/**
+	 * Fetched set data is kept in this directory so that it need not be downloaded again on every run.
+	 */
+	private static final File CACHE_DIRECTORY = new File(System.getProperty("user.home"), ".cardbase" + File.separator + "cache");
+	/**
+	 * If this file exists, it is used as an offline card database, so that cards can be looked up without a connection.
+	 */
+	private static final File OFFLINE_DATABASE_FILE = new File(System.getProperty("user.home"), ".cardbase" + File.separator + "cards.db");
+	/**
+	 * When autosave is on, changes are saved once this many have been made...
+	 */
+	private static final int AUTOSAVE_CHANGES = 10;
+	/**
+	 * ...or this many seconds after the first unsaved change, whichever comes first.
+	 */
+	private static final int AUTOSAVE_DELAY_SECONDS = 30;
 	/**
 	 * The last action performed by the user.
 	 */
@@ -68,7 +89,9 @@ public final class CardbaseCLI {
 	 */
 	private FullCardSet selectedSet = null;
 	/**
-	 * The actual cardbase being interfaced with.
+	 * The actual cardbase being interfaced with. It is only ever changed from the interface's own thread,
+	 * and the journal's background thread only reads it, so the interface reads it without taking its lock,
+	 * and cards are looked up while reading without holding up the journal.
 	 */
 	private Cardbase cardbase;
 	/**
@@ -79,6 +102,14 @@ public final class CardbaseCLI {
 	 * The cardbase file off which we are currently working, if any.
 	 */
 	private File cardbaseFile = null;
+	/**
+	 * Keeps the changes made since the cardbase file was last written in full, null if there is no cardbase file.
+	 */
+	private CardbaseJournal journal = null;
+	/**
+	 * Autosave flag is raised when changes are to be saved in the background as they are made.
+	 */
+	private boolean autosave = false;
 	/**
 	 * Save flag is raised when cards are added or removed and causes a prompt to be shown
 	 * if the user tries to exit with unsaved changed.
@@ -96,7 +127,7 @@ public final class CardbaseCLI {
 	 */
 	public static void main(String... args) {
 		try {
-			new CardbaseCLI(REMOTE_URL, args).startInterface();
+			new CardbaseCLI(REMOTE_URL, CACHE_DIRECTORY, OFFLINE_DATABASE_FILE, args).startInterface();
 		} catch (JsonParseException e) {
 			System.out.println("Error: poorly formatted cardbase, check the syntax and try again.");
 			// although the problem could also be with the upstream CardSetList json.
@@ -129,20 +160,68 @@ public final class CardbaseCLI {
 	 * @throws JsonParseException if the provided file did not contain valid json.
 	 */
 	CardbaseCLI(String remoteURL, String... args) throws JsonParseException, JsonMappingException, IOException {
+		this(remoteURL, null, args);
+	}
+
+	/**
+	 * Reads in an optional cardbase JSON and initialises other necessary components,
+	 * keeping fetched set data in the specified directory.
+	 * 
+	 * @param remoteURL the remote URL used to query for card and set data.
+	 * @param cacheDirectory the directory in which fetched set data is kept, or null to keep it in memory only.
+	 * @param args a list of arguments. Only the first argument is used, as a cardbase JSON.
+	 * @throws IOException if something goes wrong while reading the provided file.
+	 * @throws JsonMappingException if the provided json did not correspond to the expected format.
+	 * @throws JsonParseException if the provided file did not contain valid json.
+	 */
+	CardbaseCLI(String remoteURL, File cacheDirectory, String... args) throws JsonParseException, JsonMappingException, IOException {
+		this(remoteURL, cacheDirectory, null, args);
+	}
+
+	/**
+	 * Reads in an optional cardbase JSON and initialises other necessary components,
+	 * keeping fetched set data in the specified directory and looking cards up in
+	 * the specified offline database, if it exists.
+	 * 
+	 * @param remoteURL the remote URL used to query for card and set data.
+	 * @param cacheDirectory the directory in which fetched set data is kept, or null to keep it in memory only.
+	 * @param offlineDatabaseFile an offline card database file, or null. It is ignored if it does not exist.
+	 * @param args a list of arguments. Only the first argument is used, as a cardbase JSON.
+	 * @throws IOException if something goes wrong while reading the provided file.
+	 * @throws JsonMappingException if the provided json did not correspond to the expected format.
+	 * @throws JsonParseException if the provided file did not contain valid json.
+	 */
+	CardbaseCLI(String remoteURL, File cacheDirectory, File offlineDatabaseFile, String... args) throws JsonParseException, JsonMappingException, IOException {
 		System.out.println("Welcome to Cardbase CLI!");
 
 		// set debug flag if we are debugging
 		if (DEBUG) System.out.println("Debug mode is on.");
 
 		// initialise the universe
-		mtgUniverse = new MTGUniverse(remoteURL);
+		OfflineCardDatabase offlineDatabase = null;
+		if (offlineDatabaseFile != null && offlineDatabaseFile.isFile()) {
+			try {
+				offlineDatabase = OfflineCardDatabase.open(offlineDatabaseFile);
+			} catch (IOException e) {
+				System.out.println("Error: could not open offline card database \"" + offlineDatabaseFile.getAbsolutePath() + "\", ignoring it.");
+				if (DEBUG) e.printStackTrace();
+			}
+		}
+		mtgUniverse = new MTGUniverse(remoteURL, cacheDirectory, FullCardSetCache.DEFAULT_MAX_CARDS, offlineDatabase, MTGUniverse.DEFAULT_MAX_CACHE_AGE_MILLIS);
 		
 		// make the Cardbase
 		if (args != null && args.length > 0 && !args[0].isEmpty()) {
 			cardbaseFile = new File(args[0]);
 			if (cardbaseFile.exists() && cardbaseFile.isFile() && cardbaseFile.canRead()) {
 				System.out.println("Loading cardbase from \"" + args[0] + "\".");
-				cardbase = Cardbase.load(cardbaseFile);
+				// cards are parsed as they are needed, and those saved as references only are looked up in the universe
+				cardbase = Cardbase.loadLazily(cardbaseFile, mtgUniverse::getCard);
+				// changes saved since the file was last written in full are kept in its journal
+				journal = CardbaseJournal.open(cardbase, cardbaseFile);
+				if (journal.getStaleJournalFile() != null) {
+					System.out.println("Warning: unsaved changes found for a different version of \"" + args[0] + "\" were not applied, they have been moved to \""
+							+ journal.getStaleJournalFile().getPath() + "\".");
+				}
 			} else {
 				throw new IllegalArgumentException();
 			}
@@ -206,6 +285,8 @@ public final class CardbaseCLI {
 		} else if (command.equalsIgnoreCase("write")
 				|| command.equalsIgnoreCase("save")) {
 			write(args);
+		} else if (command.equalsIgnoreCase("autosave")) {
+			autosave(args);
 		} else if (command.equalsIgnoreCase("version")) {
 			version();
 		} else if (command.equalsIgnoreCase("exit")) {
@@ -239,9 +320,14 @@ public final class CardbaseCLI {
 	/**
 	 * Write current cardbase to file.
 	 *
-	 * @param args optionally the file to which to write.
+	 * @param args optionally "-r" to write card counts only, then optionally the file to which to write.
 	 */
 	private void write(String... args) {
+		Cardbase.SaveMode mode = Cardbase.SaveMode.FULL;
+		if (args != null && args.length > 0 && args[0].equals("-r")) {
+			mode = Cardbase.SaveMode.REFERENCES;
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
 		File outputFile;
 		// user-provided file overrides everything else
 		if (args != null && args.length > 0) {
@@ -254,9 +340,38 @@ public final class CardbaseCLI {
 			if (outputFile.exists() && (!outputFile.isFile() || !outputFile.canWrite())) {
 				System.out.println("Could not write to \"" + outputFile.getAbsolutePath() + "\".");
 			} else {
+				// only the changes are written, unless the mode or the file changed
+				boolean commit = journal != null && outputFile.getAbsoluteFile().equals(cardbaseFile.getAbsoluteFile()) && mode == journal.getSaveMode();
+				if (!commit && mode == Cardbase.SaveMode.FULL) {
+					// cards saved as references only are looked up here, outside the lock, rather than while writing
+					int missing = cardbase.lookUpMissingCards();
+					if (missing > 0) {
+						System.out.println("Error: " + missing + " cards could not be looked up, so the cardbase cannot be written in full. "
+								+ "Use \"write -r\" to write card counts only.");
+						return;
+					}
+				}
 				// handle these exceptions locally - they don't necessarily mean the program should exit
 				try {
-					cardbase.write(outputFile);
+					if (journal != null && outputFile.getAbsoluteFile().equals(cardbaseFile.getAbsoluteFile())) {
+						if (commit) {
+							journal.commit();
+						} else {
+							journal.rewrite(mode);
+						}
+					} else {
+						CardbaseJournal previousJournal = journal;
+						journal = null;
+						if (previousJournal != null) {
+							// the new file gets every change, the old one keeps only what was already committed to it
+							previousJournal.stopAutosave();
+							previousJournal.close();
+						}
+						journal = CardbaseJournal.create(cardbase, outputFile, mode);
+						if (autosave) {
+							journal.startAutosave(AUTOSAVE_CHANGES, AUTOSAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+						}
+					}
 					// we are now working off outputFile, which may or may not be the same as cardbaseFile at this point
 					cardbaseFile = outputFile;
 					System.out.println("Cardbase was saved to \"" + outputFile.getAbsolutePath() + "\". "
@@ -275,6 +390,36 @@ public final class CardbaseCLI {
 		}
 	}
 
+	/**
+	 * Turn autosave on or off, or show whether it is on.
+	 *
+	 * @param args optionally "on" or "off".
+	 */
+	private void autosave(String... args) {
+		if (args != null && args.length > 0 && args[0].equalsIgnoreCase("on")) {
+			if (journal != null) {
+				journal.startAutosave(AUTOSAVE_CHANGES, AUTOSAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+				autosave = true;
+				savePrompt = false;
+			} else {
+				System.out.println("Please write the cardbase to a file before turning autosave on.");
+				return;
+			}
+		} else if (args != null && args.length > 0 && args[0].equalsIgnoreCase("off")) {
+			if (journal != null) {
+				journal.stopAutosave();
+				savePrompt = journal.hasUncommittedChanges();
+			}
+			autosave = false;
+		}
+		if (autosave) {
+			System.out.println("Autosave is on, changes are saved to \"" + cardbaseFile.getAbsolutePath() + "\" every "
+					+ AUTOSAVE_CHANGES + " changes or " + AUTOSAVE_DELAY_SECONDS + " seconds.");
+		} else {
+			System.out.println("Autosave is off.");
+		}
+	}
+
 	/**
 	 * Print program version.
 	 */
@@ -290,6 +435,19 @@ public final class CardbaseCLI {
 			System.out.println("Don't forget to save. If you really wish to quit without saving, type \"exit\" again.");
 			savePrompt = false;
 		} else {
+			if (journal != null) {
+				try {
+					// with autosave on, this saves the latest changes
+					journal.close();
+				} catch (IOException e) {
+					System.out.println("Error: the latest changes could not be saved. If you really wish to quit without saving, type \"exit\" again.");
+					if (DEBUG) e.printStackTrace();
+					// the next close discards the changes
+					journal.stopAutosave();
+					autosave = false;
+					return;
+				}
+			}
 			exit = true;
 		}
 	}
@@ -340,12 +498,14 @@ public final class CardbaseCLI {
 	 * Print a brief list of the whole cardbase.
 	 */
 	private void glance() {
-		int total = 0;
-		for (Card card : cardbase.getCards()) {
-			printGlance(card);
-			total += cardbase.getCount(card);
-		}
-		System.out.println("Total: " + total);
+		CardRenderer renderer = new CardRenderer(System.out);
+		int[] total = {0};
+		cardbase.forEach((card, count) -> {
+			renderer.glance(card, count);
+			total[0] += count;
+		});
+		renderer.line("Total: " + total[0]);
+		renderer.flush();
 	}
 
 	/**
@@ -359,7 +519,9 @@ public final class CardbaseCLI {
 			if (selectedSet != null) {
 				Card card = cardbase.getCard(selectedSet.code, args[0]);
 				if (card != null) {
-					printPerusal(card);
+					CardRenderer renderer = new CardRenderer(System.out);
+					renderer.perusal(card, cardbase.getCount(card));
+					renderer.flush();
 				} else {
 					System.out.println("Card not in cardbase.");
 				}
@@ -368,12 +530,14 @@ public final class CardbaseCLI {
 			}
 		} else {
 			// peruse all cards in cardbase
-			int total = 0;
-			for (Card card : cardbase.getCards()) {
-				printPerusal(card);
-				total += cardbase.getCount(card);
-			}
-			System.out.println("Total: " + total);
+			CardRenderer renderer = new CardRenderer(System.out);
+			int[] total = {0};
+			cardbase.forEach((card, count) -> {
+				renderer.perusal(card, count);
+				total[0] += count;
+			});
+			renderer.line("Total: " + total[0]);
+			renderer.flush();
 		}
 	}
 
@@ -476,8 +640,12 @@ public final class CardbaseCLI {
 	 */
 	private void addCard(Card card, int count) {
 		System.out.println("Added " + count + "x " + card.name.get() + ".");
-		cardbase.addCard(card, count);
-		savePrompt = true;
+		if (journal != null) {
+			journal.addCard(card, count);
+		} else {
+			cardbase.addCard(card, count);
+		}
+		savePrompt = !autosave;
 		lastAction = Action.ADD;
 		lastAction.card = card;
 		lastAction.count = count;
@@ -492,10 +660,10 @@ public final class CardbaseCLI {
 	 * TODO comment
 	 */
 	private void removeCard(Card card, int count) {
-		Integer removed = cardbase.removeCard(card, count); 
+		Integer removed = journal != null ? journal.removeCard(card, count) : cardbase.removeCard(card, count);
 		if (removed > 0) {
 			System.out.println("Removed " + removed + "x " + card.name.get() + ".");
-			savePrompt = true;
+			savePrompt = !autosave;
 			lastAction = Action.REMOVE;
 			lastAction.card = card;
 			lastAction.count = removed;
@@ -514,41 +682,9 @@ public final class CardbaseCLI {
 		// POSIX-compliant valid filename characters
 		name = name.replaceAll("[^-_./A-Za-z0-9]", "");
 		// extension is not indispensable, but good practice
-		if (!name.endsWith(".cb")) {
+		if (!name.endsWith(".cb") && !name.endsWith(BinaryContainerFormat.EXTENSION)) {
 			name = name.concat(".cb");
 		}
 		return name;
 	}
-
-	/**
-	 * Prints a glance of the specified card. A glance contains simply
-	 * the card count, name, set code and set number. 
-	 * 
-	 * @param card the card to glance.
-	 */
-	private void printGlance(Card card) {
-		System.out.println(String.format("%1$-4d %2$s (%3$s, %4$s)", cardbase.getCount(card), card.name.get(), card.setCode.get(), card.number.get()));
-	}
-
-	/**
-	 * Prints a perusal of the specified card. A perusal contains more
-	 * information than a glance, but not every single field the card has
-	 * as that would be too verbose while adding little value.
-	 * 
-	 * @param card the card to peruse.
-	 */
-	private void printPerusal(Card card) {
-		printGlance(card);
-		if (card.type.get() != null) System.out.println("\t" + card.type.get());
-		if (card.manaCost.get() != null) System.out.println("\tCost: " + card.manaCost.get());
-		if (card.power.get() != null && card.toughness.get() != null) System.out.println("\t" + card.power.get() + "/" + card.toughness.get());
-		if (card.loyalty.get() != null) System.out.println("\tLoyalty: " + card.loyalty.get());
-
-		if (card.text.get() != null) System.out.println("\t" + card.text.get().replaceAll("\n", "\n\t"));
-		if (card.flavor.get() != null) System.out.println("\t" + card.flavor.get().replaceAll("\n", "\n\t"));
-
-		if (card.rarity.get() != null) System.out.println("\t" + card.rarity.get());
-		if (card.multiverseid.get() != null) System.out.println("\tMID: " + card.multiverseid.get());
-		if (card.artist.get() != null) System.out.println("\tIllus. " + card.artist.get());
-	}
 }
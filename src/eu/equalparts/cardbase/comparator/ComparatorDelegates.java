@@ -21,51 +21,11 @@ final class ComparatorDelegates {
 	 * @return a value smaller than, equal to or greater than 0 according to the standard comparison convention.
 	 */
 	public static Integer compareDirtyNumber(CardField<String> field1, CardField<String> field2) {
-		// this assumes that the format is uninterrupted numbers and letters
-		String number1 = field1.get().replaceAll("[^0-9]+", "");
-		String number2 = field2.get().replaceAll("[^0-9]+", "");
-		
-		Integer int1 = number1.matches("[0-9]+") ? Integer.parseInt(number1) : null;
-		Integer int2 = number2.matches("[0-9]+") ? Integer.parseInt(number2) : null;
-		
-		if (int1 == null) {
-			if (int2 != null) {
-				// field1 has no numbers but field2 does, field1 is less by default
-				// if neither have numbers, letters will be looked at below
-				return -1;
-			}
-		} else if (int2 == null) {
-			// field2 has no numbers but field1 does, field1 is more by default
-			return 1;
-		} else {
-			// both have numbers, perform comparison if not identical
-			// if identical, look at letters below
-			if (int1 != int2)
-				return int1.compareTo(int2);
-		}
-		// compare by letters
-		String letter1 = number1.replaceAll("[0-9]+", "");
-		String letter2 = number2.replaceAll("[0-9]+", "");
-		return letter1.compareTo(letter2);
+		return Integer.compare(SortKeys.dirtyNumber(field1.get()), SortKeys.dirtyNumber(field2.get()));
 	}
 
 	public static Integer compareRarity(CardField<String> field1, CardField<String> field2) {
 		// assign numerical values based on the different possibilities and compare those instead
-		Integer value1 = getRarityValue(field1.get());
-		Integer value2 = getRarityValue(field2.get());
-		
-		return value1.compareTo(value2);
-	}
-	
-	/*
-	 * Internally used utility functions
-	 */
-	private static int getRarityValue(String rarityString) {
-		return rarityString.equalsIgnoreCase("Common") ? 0 :
-			   rarityString.equalsIgnoreCase("Uncommon") ? 1 :
-			   rarityString.equalsIgnoreCase("Rare") ? 2 :
-			   rarityString.equalsIgnoreCase("Mythic Rare") ? 3 : 
-			   rarityString.equalsIgnoreCase("Basic Land") ? 4 : 
-			   rarityString.equalsIgnoreCase("Special") ? 5 : 6;
+		return Integer.compare(SortKeys.rarity(field1.get()), SortKeys.rarity(field2.get()));
 	}
 }
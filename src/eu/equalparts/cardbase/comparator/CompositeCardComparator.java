@@ -0,0 +1,51 @@
+package eu.equalparts.cardbase.comparator;
+
+import java.util.Comparator;
+import java.util.List;
+
+import eu.equalparts.cardbase.card.Card;
+
+/**
+ * Compares cards by several fields in turn, such as rarity, then cmc, then name.
+ * Each field is only compared if all previous fields are equal, and each field
+ * is compared in its own direction. Descending fields are exactly reversed,
+ * so their null values come last.
+ *
+ * @author Eduardo Pedroni
+ *
+ */
+public class CompositeCardComparator implements Comparator<Card> {
+	
+	/**
+	 * The comparators for each field, in order of priority.
+	 */
+	private final CardComparator[] comparators;
+	/**
+	 * Whether each field is sorted in descending order.
+	 */
+	private final boolean[] descending;
+	
+	/**
+	 * @param criteria the fields by which to compare, in order of priority.
+	 * @throws NoSuchFieldException if any of the criteria refers to a field which {@code Card} does not have.
+	 */
+	public CompositeCardComparator(List<SortCriterion> criteria) throws NoSuchFieldException {
+		comparators = new CardComparator[criteria.size()];
+		descending = new boolean[criteria.size()];
+		for (int i = 0; i < comparators.length; i++) {
+			comparators[i] = new CardComparator(criteria.get(i).fieldName);
+			descending[i] = criteria.get(i).direction == SortCriterion.Direction.DESCENDING;
+		}
+	}
+
+	@Override
+	public int compare(Card o1, Card o2) {
+		for (int i = 0; i < comparators.length; i++) {
+			int result = descending[i] ? comparators[i].compare(o2, o1) : comparators[i].compare(o1, o2);
+			if (result != 0) {
+				return result;
+			}
+		}
+		return 0;
+	}
+}
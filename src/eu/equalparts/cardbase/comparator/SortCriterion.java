@@ -0,0 +1,29 @@
+package eu.equalparts.cardbase.comparator;
+
+/**
+ * One field of a multi-field sort, along with the direction in which to sort it.
+ * 
+ * @author Eduardo Pedroni
+ *
+ */
+public class SortCriterion {
+	
+	public enum Direction { ASCENDING, DESCENDING }
+	
+	public String fieldName;
+	public Direction direction;
+	
+	public SortCriterion(String fieldName, Direction direction) {
+		this.fieldName = fieldName;
+		this.direction = direction;
+	}
+	
+	/**
+	 * Creates an ascending criterion for the specified field.
+	 * 
+	 * @param fieldName the name of the field by which to sort.
+	 */
+	public SortCriterion(String fieldName) {
+		this(fieldName, Direction.ASCENDING);
+	}
+}
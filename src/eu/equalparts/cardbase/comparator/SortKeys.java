@@ -0,0 +1,60 @@
+package eu.equalparts.cardbase.comparator;
+
+import eu.equalparts.cardbase.utils.Utils;
+
+/**
+ * Converts the values of fields with special comparison rules into plain
+ * integers which sort in the same order, so that the rules only need to be
+ * applied once per card rather than once per comparison.
+ * <br><br>
+ * Null values map to the smallest key, the same way {@code CardComparator}
+ * sorts them before any other value.
+ * 
+ * @author Eduardo Pedroni
+ *
+ */
+public final class SortKeys {
+	
+	/**
+	 * The key given to null values.
+	 */
+	public static final int NULL_KEY = Integer.MIN_VALUE;
+	/**
+	 * The key given to dirty numbers which contain no digits.
+	 */
+	private static final int NO_DIGITS_KEY = Integer.MIN_VALUE + 1;
+	
+	private SortKeys() {}
+	
+	/**
+	 * Dirty numbers are ordered by the number formed by their digits, and
+	 * dirty numbers with no digits at all come before any that have them.
+	 * For instance, "*" comes before "31a", which comes before "150".
+	 * 
+	 * @param dirtyNumber the value of a field annotated with {@code DirtyNumber}.
+	 * @return the sort key for the value.
+	 */
+	public static int dirtyNumber(String dirtyNumber) {
+		if (dirtyNumber == null) {
+			return NULL_KEY;
+		}
+		int number = Utils.parseDirtyNumber(dirtyNumber);
+		return number < 0 ? NO_DIGITS_KEY : number;
+	}
+	
+	/**
+	 * Rarities are ordered from common to special, and unknown rarities come last.
+	 * 
+	 * @param rarity the value of a field annotated with {@code Rarity}.
+	 * @return the sort key for the value.
+	 */
+	public static int rarity(String rarity) {
+		return rarity == null ? NULL_KEY :
+			   rarity.equalsIgnoreCase("Common") ? 0 :
+			   rarity.equalsIgnoreCase("Uncommon") ? 1 :
+			   rarity.equalsIgnoreCase("Rare") ? 2 :
+			   rarity.equalsIgnoreCase("Mythic Rare") ? 3 : 
+			   rarity.equalsIgnoreCase("Basic Land") ? 4 : 
+			   rarity.equalsIgnoreCase("Special") ? 5 : 6;
+	}
+}
@@ -13,4 +13,11 @@ public final class SpecialFields {
 	
 	@Retention(RetentionPolicy.RUNTIME)
 	public @interface Rarity {}
+	
+	/**
+	 * Marks string fields with few distinct values, which are shared between cards through
+	 * {@code StringDictionary.CARD_VALUES} when cards are read.
+	 */
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface LowCardinality {}
 }
@@ -0,0 +1,393 @@
+package eu.equalparts.cardbase.containers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.cardfield.IntegerCardField;
+import eu.equalparts.cardbase.cardfield.StringCardField;
+import eu.equalparts.cardbase.utils.StringDictionary;
+
+/**
+ * A compact binary alternative to the JSON format of {@code StandaloneCardContainer}.
+ * <br><br>
+ * A file starts with the magic bytes "CBAS" and a format version, followed by the land
+ * counts, a table of every distinct string in the container, the card entries and any
+ * legacy amounts which were never resolved. Strings are written once in the table and
+ * referred to by index everywhere else, and all numbers are written as variable-length
+ * integers, so most fields of a card take a single byte.
+ * <br><br>
+ * Values of {@code LowCardinality} fields are shared through {@code StringDictionary.CARD_VALUES}
+ * when read, as they are when read from JSON.
+ *
+ * @author Eduardo Pedroni
+ */
+public final class BinaryContainerFormat {
+
+	/**
+	 * Files with this extension are written in the binary format. Files are read according
+	 * to their first bytes, whatever their extension.
+	 */
+	public static final String EXTENSION = ".cbb";
+	/**
+	 * "CBAS" in ASCII.
+	 */
+	private static final int MAGIC = 0x43424153;
+	private static final int VERSION = 1;
+
+	/**
+	 * Private constructor, this class is not to be instantiated.
+	 */
+	private BinaryContainerFormat() {}
+
+	/**
+	 * @param file a file.
+	 * @return true if the file is to be written in the binary format, according to its extension.
+	 */
+	public static boolean isBinaryFileName(File file) {
+		return file.getName().endsWith(EXTENSION);
+	}
+
+	/**
+	 * @param file a file.
+	 * @return true if the file starts with the binary format's magic bytes.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static boolean isBinary(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			return in.readInt() == MAGIC;
+		} catch (EOFException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the specified container to a file in the binary format. The file is written in place,
+	 * so a failure part way leaves it damaged; {@code Cardbase.write()} replaces files atomically instead.
+	 *
+	 * @param container the container to write.
+	 * @param file the file to write to.
+	 * @throws IOException if the file cannot be written.
+	 */
+	static void write(StandaloneCardContainer container, File file) throws IOException {
+		write(container, file, true);
+	}
+
+	/**
+	 * Writes the specified container to a file in the binary format, optionally without card data.
+	 * The file is written in place, as with {@code write(StandaloneCardContainer, File)}.
+	 *
+	 * @param container the container to write.
+	 * @param file the file to write to.
+	 * @param includeCards false to write only the set code, number and count of each card.
+	 * @throws IOException if the file cannot be written.
+	 */
+	static void write(StandaloneCardContainer container, File file, boolean includeCards) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			write(container, out, includeCards);
+		}
+	}
+
+	/**
+	 * Writes the specified container to a stream in the binary format. The stream is flushed but not closed.
+	 *
+	 * @param container the container to write.
+	 * @param stream the stream to write to.
+	 * @throws IOException if the stream cannot be written.
+	 */
+	public static void write(StandaloneCardContainer container, OutputStream stream) throws IOException {
+		write(container, stream, true);
+	}
+
+	/**
+	 * Writes the specified container to a stream in the binary format, optionally without
+	 * card data. The stream is flushed but not closed.
+	 * <br><br>
+	 * Cards which the container has not looked up yet are written as references only, rather
+	 * than looked up while writing.
+	 *
+	 * @param container the container to write.
+	 * @param stream the stream to write to.
+	 * @param includeCards false to write only the set code, number and count of each card.
+	 * @throws IOException if the stream cannot be written.
+	 */
+	public static void write(StandaloneCardContainer container, OutputStream stream, boolean includeCards) throws IOException {
+		CardCountMap entries = container.cardReferences;
+		StringTable strings = new StringTable();
+		for (int entry = entries.next(0); entry >= 0; entry = entries.next(entry + 1)) {
+			strings.add(entries.setCode(entry));
+			strings.add(entries.number(entry));
+			Card card = includeCards ? container.savedCard(entry) : null;
+			if (card != null) {
+				for (String value : stringFields(card)) {
+					strings.add(value);
+				}
+			}
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+		out.writeInt(MAGIC);
+		writeVarint(out, VERSION);
+
+		writeVarint(out, container.getPlains());
+		writeVarint(out, container.getIslands());
+		writeVarint(out, container.getSwamps());
+		writeVarint(out, container.getForests());
+		writeVarint(out, container.getMountains());
+
+		writeVarint(out, strings.values.size());
+		for (String value : strings.values) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarint(out, bytes.length);
+			out.write(bytes);
+		}
+
+		writeVarint(out, entries.size());
+		for (int entry = entries.next(0); entry >= 0; entry = entries.next(entry + 1)) {
+			writeVarint(out, strings.reference(entries.setCode(entry)));
+			writeVarint(out, strings.reference(entries.number(entry)));
+			writeVarint(out, zigzag(entries.count(entry)));
+			Card card = includeCards ? container.savedCard(entry) : null;
+			out.writeBoolean(card != null);
+			if (card != null) {
+				writeCard(out, card, strings);
+			}
+		}
+
+		Map<Integer, Integer> legacyReferences = container.legacyReferences;
+		writeVarint(out, legacyReferences == null ? 0 : legacyReferences.size());
+		if (legacyReferences != null) {
+			for (Map.Entry<Integer, Integer> legacyReference : legacyReferences.entrySet()) {
+				writeVarint(out, zigzag(legacyReference.getKey()));
+				writeVarint(out, zigzag(legacyReference.getValue()));
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Reads a file in the binary format into the specified container, which should be empty.
+	 *
+	 * @param file the file to read.
+	 * @param container the container to fill.
+	 * @throws IOException if the file cannot be read, or is not in a supported version of the binary format.
+	 */
+	public static void read(File file, StandaloneCardContainer container) throws IOException {
+		try (InputStream in = new FileInputStream(file)) {
+			read(in, container);
+		}
+	}
+
+	/**
+	 * Reads a container in the binary format from a stream into the specified container,
+	 * which should be empty. The stream is not closed.
+	 *
+	 * @param stream the stream to read.
+	 * @param container the container to fill.
+	 * @throws IOException if the stream cannot be read, or is not in a supported version of the binary format.
+	 */
+	public static void read(InputStream stream, StandaloneCardContainer container) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a binary cardbase.");
+		}
+		int version = readVarint(in);
+		if (version != VERSION) {
+			throw new IOException("Unsupported binary cardbase version " + version + ".");
+		}
+
+		container.setPlains(readVarint(in));
+		container.setIslands(readVarint(in));
+		container.setSwamps(readVarint(in));
+		container.setForests(readVarint(in));
+		container.setMountains(readVarint(in));
+
+		String[] strings = new String[readLength(in)];
+		byte[] buffer = new byte[256];
+		for (int i = 0; i < strings.length; i++) {
+			int length = readLength(in);
+			if (length > buffer.length) {
+				buffer = new byte[Math.max(length, buffer.length * 2)];
+			}
+			in.readFully(buffer, 0, length);
+			strings[i] = new String(buffer, 0, length, StandardCharsets.UTF_8);
+		}
+
+		CardCountMap entries = container.cardReferences;
+		int entryCount = readLength(in);
+		for (int i = 0; i < entryCount; i++) {
+			String setCode = StringDictionary.CARD_VALUES.canonical(readString(in, strings));
+			String number = readString(in, strings);
+			int entry = entries.insert(setCode, number);
+			entries.setCount(entry, unzigzag(readVarint(in)));
+			if (in.readBoolean()) {
+				entries.setCard(entry, readCard(in, strings));
+			}
+		}
+
+		int legacyCount = readLength(in);
+		for (int i = 0; i < legacyCount; i++) {
+			if (container.legacyReferences == null) {
+				container.legacyReferences = new HashMap<>();
+			}
+			container.legacyReferences.put(unzigzag(readVarint(in)), unzigzag(readVarint(in)));
+		}
+		container.resolveLegacyReferences();
+	}
+
+	/**
+	 * @return the values of the string fields of the card, in the order in which they are written.
+	 */
+	private static String[] stringFields(Card card) {
+		return new String[] { card.name.get(), card.layout.get(), card.manaCost.get(), card.type.get(), card.rarity.get(),
+				card.text.get(), card.flavor.get(), card.artist.get(), card.number.get(), card.power.get(),
+				card.toughness.get(), card.imageName.get(), card.setCode.get() };
+	}
+
+	private static void writeCard(DataOutputStream out, Card card, StringTable strings) throws IOException {
+		for (String value : stringFields(card)) {
+			writeVarint(out, strings.reference(value));
+		}
+		writeInteger(out, card.cmc.get());
+		writeInteger(out, card.loyalty.get());
+		writeInteger(out, card.multiverseid.get());
+	}
+
+	private static Card readCard(DataInputStream in, String[] strings) throws IOException {
+		StringDictionary dictionary = StringDictionary.CARD_VALUES;
+		Card card = new Card();
+		card.name = new StringCardField("name", readString(in, strings));
+		card.layout = new StringCardField("layout", dictionary.canonical(readString(in, strings)));
+		card.manaCost = new StringCardField("manaCost", readString(in, strings));
+		card.type = new StringCardField("type", dictionary.canonical(readString(in, strings)));
+		card.rarity = new StringCardField("rarity", dictionary.canonical(readString(in, strings)));
+		card.text = new StringCardField("text", readString(in, strings));
+		card.flavor = new StringCardField("flavor", readString(in, strings));
+		card.artist = new StringCardField("artist", dictionary.canonical(readString(in, strings)));
+		card.number = new StringCardField("number", readString(in, strings));
+		card.power = new StringCardField("power", readString(in, strings));
+		card.toughness = new StringCardField("toughness", readString(in, strings));
+		card.imageName = new StringCardField("imageName", readString(in, strings));
+		card.setCode = new StringCardField("setCode", dictionary.canonical(readString(in, strings)));
+		card.cmc = new IntegerCardField("cmc", readInteger(in));
+		card.loyalty = new IntegerCardField("loyalty", readInteger(in));
+		card.multiverseid = new IntegerCardField("multiverseid", readInteger(in));
+		return card;
+	}
+
+	/**
+	 * Reads a reference to the string table, which is the index of the string plus one, or 0 for null.
+	 */
+	private static String readString(DataInputStream in, String[] strings) throws IOException {
+		int reference = readVarint(in);
+		if (reference > strings.length) {
+			throw new IOException("String reference " + reference + " is out of range.");
+		}
+		return reference == 0 ? null : strings[reference - 1];
+	}
+
+	/**
+	 * Writes an integer field as its zigzag encoding plus one, or 0 for null.
+	 */
+	private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+		writeVarlong(out, value == null ? 0 : (zigzag(value) & 0xFFFFFFFFL) + 1);
+	}
+
+	private static Integer readInteger(DataInputStream in) throws IOException {
+		long encoded = readVarlong(in);
+		return encoded == 0 ? null : unzigzag((int) (encoded - 1));
+	}
+
+	/**
+	 * Maps signed integers to unsigned ones so that small negative numbers stay short: 0, -1, 1, -2, 2...
+	 */
+	private static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Writes an unsigned integer in groups of 7 bits, least significant first, with the
+	 * top bit of each byte set if more bytes follow.
+	 */
+	private static void writeVarint(DataOutputStream out, int value) throws IOException {
+		writeVarlong(out, value & 0xFFFFFFFFL);
+	}
+
+	private static void writeVarlong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static int readVarint(DataInputStream in) throws IOException {
+		long value = readVarlong(in);
+		if (value > 0xFFFFFFFFL) {
+			throw new IOException("Variable-length integer is out of range.");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Reads a count or length, which must fit in a non-negative {@code int}.
+	 */
+	private static int readLength(DataInputStream in) throws IOException {
+		int length = readVarint(in);
+		if (length < 0) {
+			throw new IOException("Length " + (length & 0xFFFFFFFFL) + " is out of range.");
+		}
+		return length;
+	}
+
+	private static long readVarlong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Variable-length integer is too long.");
+	}
+
+	/**
+	 * The distinct strings of a container, in the order in which they were first added.
+	 */
+	private static final class StringTable {
+		private final List<String> values = new ArrayList<>();
+		private final Map<String, Integer> indices = new HashMap<>();
+
+		void add(String value) {
+			if (value != null && indices.putIfAbsent(value, values.size()) == null) {
+				values.add(value);
+			}
+		}
+
+		/**
+		 * @return the index of the string plus one, or 0 for null.
+		 */
+		int reference(String value) {
+			return value == null ? 0 : indices.get(value) + 1;
+		}
+	}
+}
@@ -0,0 +1,328 @@
+package eu.equalparts.cardbase.containers;
+
+import eu.equalparts.cardbase.card.Card;
+
+/**
+ * An insertion-ordered hash map from card identity (set code and number) to
+ * an {@code int} count and, optionally, the card itself.
+ * <br><br>
+ * Entries are kept in parallel arrays in the order in which they were first added,
+ * and are found through an open-addressing table of entry indices with linear probing.
+ * Counts are never boxed, and two different cards never share an entry, even
+ * if their {@code Card.hashCode()} values collide. Set codes are interned, as
+ * there are only a few hundred of them shared between all cards.
+ * <br><br>
+ * Entry indices returned by this class are only valid until the next call to
+ * {@code insert()}, which may compact the entry arrays.
+ * <br><br>
+ * {@code snapshot()} returns a copy which shares the arrays of the original. Whichever
+ * of the two is changed first copies the arrays at that point, so a snapshot costs nothing
+ * until the original changes, and can be read on another thread while it does.
+ *
+ * @author Eduardo Pedroni
+ *
+ */
+final class CardCountMap {
+
+	private static final int INITIAL_CAPACITY = 16;
+	/**
+	 * Marks the number of a removed entry, compared by identity.
+	 */
+	private static final String REMOVED = new String("removed");
+
+	/**
+	 * The hash table, holding entry index + 1 in each slot, 0 for empty slots.
+	 * It is always at least twice as long as the entry arrays, so at most half full.
+	 */
+	private int[] slots;
+	private String[] setCodes;
+	private String[] numbers;
+	private int[] hashes;
+	private int[] counts;
+	/**
+	 * Allocated on the first call to {@code setCard()}, so that containers with counts only don't pay for it.
+	 */
+	private Card[] cards;
+	/**
+	 * The number of entry positions used so far, including removed entries.
+	 */
+	private int used = 0;
+	/**
+	 * The number of entries which have not been removed.
+	 */
+	private int size = 0;
+	/**
+	 * True if the arrays may be shared with a snapshot, in which case they are copied before they are changed.
+	 */
+	private boolean shared = false;
+
+	CardCountMap() {
+		slots = new int[INITIAL_CAPACITY * 2];
+		setCodes = new String[INITIAL_CAPACITY];
+		numbers = new String[INITIAL_CAPACITY];
+		hashes = new int[INITIAL_CAPACITY];
+		counts = new int[INITIAL_CAPACITY];
+	}
+
+	private CardCountMap(CardCountMap original) {
+		slots = original.slots;
+		setCodes = original.setCodes;
+		numbers = original.numbers;
+		hashes = original.hashes;
+		counts = original.counts;
+		cards = original.cards;
+		used = original.used;
+		size = original.size;
+		shared = true;
+	}
+
+	/**
+	 * @return a copy of the map which shares its arrays until either of them is changed.
+	 */
+	CardCountMap snapshot() {
+		shared = true;
+		return new CardCountMap(this);
+	}
+
+	/**
+	 * @param setCode the set code of the card to find.
+	 * @param number the number of the card to find.
+	 * @return the index of the card's entry, or -1 if there is no entry for the card.
+	 */
+	int find(String setCode, String number) {
+		int hash = Card.makeHash(setCode, number);
+		int mask = slots.length - 1;
+		for (int slot = spread(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			int entry = slots[slot] - 1;
+			if (hashes[entry] == hash && matches(entry, setCode, number)) {
+				return entry;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the entry for the specified card, adding one with count 0 if there is none yet.
+	 *
+	 * @param setCode the set code of the card.
+	 * @param number the number of the card.
+	 * @return the index of the card's entry.
+	 */
+	int insert(String setCode, String number) {
+		int entry = find(setCode, number);
+		if (entry >= 0) {
+			return entry;
+		}
+
+		if (used == setCodes.length) {
+			// the capacity must stay a power of two, so that the table can be indexed with a mask
+			resize(Integer.highestOneBit(Math.max(INITIAL_CAPACITY, size * 2) - 1) << 1);
+		} else {
+			unshare();
+		}
+		entry = used++;
+		setCodes[entry] = setCode == null ? null : setCode.intern();
+		numbers[entry] = number;
+		hashes[entry] = Card.makeHash(setCode, number);
+		counts[entry] = 0;
+		placeInTable(entry);
+		size++;
+		return entry;
+	}
+
+	/**
+	 * Makes room for the specified number of entries in total, so that inserting up to that many
+	 * does not grow the arrays one step at a time. Like {@code insert()}, this may compact the entry arrays.
+	 *
+	 * @param entries the number of entries the map should hold without growing.
+	 */
+	void ensureCapacity(int entries) {
+		if (entries > setCodes.length) {
+			resize(Integer.highestOneBit(entries - 1) << 1);
+		}
+	}
+
+	/**
+	 * Removes the specified entry, along with its count and card.
+	 *
+	 * @param entry the index of the entry to remove.
+	 */
+	void remove(int entry) {
+		unshare();
+		int mask = slots.length - 1;
+		int hole = spread(hashes[entry]) & mask;
+		while (slots[hole] != entry + 1) {
+			hole = (hole + 1) & mask;
+		}
+		slots[hole] = 0;
+
+		// shift back any later entries of the same run which would no longer be reachable
+		for (int slot = (hole + 1) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			int home = spread(hashes[slots[slot] - 1]) & mask;
+			if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+				slots[hole] = slots[slot];
+				slots[slot] = 0;
+				hole = slot;
+			}
+		}
+
+		setCodes[entry] = null;
+		numbers[entry] = REMOVED;
+		if (cards != null) {
+			cards[entry] = null;
+		}
+		size--;
+	}
+
+	/**
+	 * @param from the entry index at which to start looking.
+	 * @return the index of the first entry at or after {@code from} which has not been removed, or -1 if there is none.
+	 */
+	int next(int from) {
+		for (int entry = from; entry < used; entry++) {
+			if (numbers[entry] != REMOVED) {
+				return entry;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the number of entries in the map.
+	 */
+	int size() {
+		return size;
+	}
+
+	String setCode(int entry) {
+		return setCodes[entry];
+	}
+
+	String number(int entry) {
+		return numbers[entry];
+	}
+
+	int hash(int entry) {
+		return hashes[entry];
+	}
+
+	int count(int entry) {
+		return counts[entry];
+	}
+
+	void setCount(int entry, int count) {
+		unshare();
+		counts[entry] = count;
+	}
+
+	/**
+	 * @param entry the index of the entry.
+	 * @return the card stored in the entry, or null if no card was stored.
+	 */
+	Card card(int entry) {
+		return cards == null ? null : cards[entry];
+	}
+
+	void setCard(int entry, Card card) {
+		unshare();
+		if (cards == null) {
+			cards = new Card[setCodes.length];
+		}
+		cards[entry] = card;
+	}
+
+	/**
+	 * @param setCode a set code.
+	 * @param number a card number.
+	 * @return a string which uniquely identifies the card, used as a JSON key.
+	 */
+	static String key(String setCode, String number) {
+		return (setCode == null ? "" : setCode) + "/" + (number == null ? "" : number);
+	}
+
+	/**
+	 * @param key a key created with {@code key()}.
+	 * @return the set code and number contained in the key.
+	 * @throws IllegalArgumentException if the key is not in the format created by {@code key()}.
+	 */
+	static String[] parseKey(String key) {
+		int separator = key.indexOf('/');
+		if (separator < 0) {
+			throw new IllegalArgumentException("Card key \"" + key + "\" is missing a separator.");
+		}
+		String setCode = key.substring(0, separator);
+		String number = key.substring(separator + 1);
+		return new String[] { setCode.isEmpty() ? null : setCode, number.isEmpty() ? null : number };
+	}
+
+	/**
+	 * Moves all live entries to new arrays of the specified capacity, preserving their
+	 * order and dropping removed entries, and rebuilds the hash table.
+	 */
+	private void resize(int capacity) {
+		String[] oldSetCodes = setCodes, oldNumbers = numbers;
+		int[] oldHashes = hashes, oldCounts = counts;
+		Card[] oldCards = cards;
+
+		slots = new int[capacity * 2];
+		setCodes = new String[capacity];
+		numbers = new String[capacity];
+		hashes = new int[capacity];
+		counts = new int[capacity];
+		cards = oldCards == null ? null : new Card[capacity];
+		shared = false;
+
+		int oldUsed = used;
+		used = 0;
+		for (int entry = 0; entry < oldUsed; entry++) {
+			if (oldNumbers[entry] != REMOVED) {
+				setCodes[used] = oldSetCodes[entry];
+				numbers[used] = oldNumbers[entry];
+				hashes[used] = oldHashes[entry];
+				counts[used] = oldCounts[entry];
+				if (cards != null) {
+					cards[used] = oldCards[entry];
+				}
+				placeInTable(used++);
+			}
+		}
+	}
+
+	/**
+	 * Copies the arrays if they may be shared with a snapshot, so that they can be changed.
+	 */
+	private void unshare() {
+		if (shared) {
+			slots = slots.clone();
+			setCodes = setCodes.clone();
+			numbers = numbers.clone();
+			hashes = hashes.clone();
+			counts = counts.clone();
+			cards = cards == null ? null : cards.clone();
+			shared = false;
+		}
+	}
+
+	private void placeInTable(int entry) {
+		int mask = slots.length - 1;
+		int slot = spread(hashes[entry]) & mask;
+		while (slots[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		slots[slot] = entry + 1;
+	}
+
+	private boolean matches(int entry, String setCode, String number) {
+		String entrySetCode = setCodes[entry], entryNumber = numbers[entry];
+		return (entrySetCode == setCode || (entrySetCode != null && entrySetCode.equals(setCode)))
+				&& (entryNumber == number || (entryNumber != null && entryNumber.equals(number)));
+	}
+
+	/**
+	 * Mixes the high bits of the hash into the low bits, which are the ones used to index the table.
+	 */
+	private static int spread(int hash) {
+		int mixed = hash * 0x9E3779B9;
+		return mixed ^ (mixed >>> 16);
+	}
+}
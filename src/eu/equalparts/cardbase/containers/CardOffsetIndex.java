@@ -0,0 +1,409 @@
+package eu.equalparts.cardbase.containers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.json.JSON;
+
+/**
+ * Loads containers from JSON files without parsing any of their cards, which are
+ * parsed the first time they are needed instead.
+ * <br><br>
+ * This relies on a side index of the file, which holds the amount of each card and the
+ * position of its data in the file. The index is kept next to the file, named after it with
+ * {@code EXTENSION} appended, and records the length, modification time and CRC32 of the file
+ * it was made from. If the length and modification time of the file still match, the index is
+ * used without reading the file at all. Otherwise, or if the file had been modified too shortly
+ * before the index was made for its modification time to tell changes apart, the file is read
+ * to check its CRC32. Whenever the index does not match the file, the file is scanned with a
+ * streaming parser, which skips over the cards without building them, and the index is written
+ * again for next time.
+ * <br><br>
+ * The file is kept open for as long as some of its cards have not been parsed, and each card is
+ * read from it at its offset when it is needed. The open file can still be read after it has been
+ * replaced, as happens when the container is saved. Once every card has been parsed, the file is closed.
+ *
+ * @author Eduardo Pedroni
+ */
+public final class CardOffsetIndex {
+
+	/**
+	 * The index of a file is named after it, with this appended.
+	 */
+	public static final String EXTENSION = ".idx";
+	/**
+	 * "CBIX" in ASCII.
+	 */
+	private static final int MAGIC = 0x43424958;
+	private static final int VERSION = 3;
+	/**
+	 * Files modified less than this long before their index is made may be changed again
+	 * without their modification time changing, as some file systems only keep it to the second or two.
+	 */
+	private static final long RACY_MILLIS = 2000;
+
+	/**
+	 * Private constructor, this class is not to be instantiated.
+	 */
+	private CardOffsetIndex() {}
+
+	/**
+	 * Loads a JSON file into the specified container, which should be empty, leaving every card
+	 * to be parsed when it is first needed. Cards which are not in the file are looked up in
+	 * the specified source. Files written by older versions, which keyed cards by
+	 * {@code Card.hashCode()}, cannot be loaded this way.
+	 *
+	 * @param file the file to load.
+	 * @param container the container to fill.
+	 * @param cardSource where to look up cards which are not in the file, or null.
+	 * @return true if the file was loaded, false if it was written by an older version, in which
+	 * case the container is left as it was.
+	 * @throws IOException if the file cannot be read or does not contain a container.
+	 */
+	public static boolean load(File file, StandaloneCardContainer container, CardSource cardSource) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long length = channel.size();
+			long modified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+			// the modification time only describes the open file if the file was not replaced while being opened
+			BasicFileAttributes opened = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			boolean knownModified = Objects.equals(attributes.fileKey(), opened.fileKey())
+					&& attributes.lastModifiedTime().equals(opened.lastModifiedTime()) && opened.size() == length;
+
+			File indexFile = new File(file.getPath() + EXTENSION);
+			Index index = read(indexFile);
+			long checksum;
+			List<Location> locations = null;
+			if (index != null && knownModified && index.reliable && index.fileLength == length && index.fileModified == modified) {
+				checksum = index.fileChecksum;
+				locations = index.locations;
+			} else {
+				checksum = checksum(channel, length);
+				if (index != null && index.fileLength == length && index.fileChecksum == checksum) {
+					locations = index.locations;
+					// the contents are the same, but the modification time may be trusted next time
+					long recorded = knownModified ? modified : -1;
+					if (recorded != index.fileModified || isReliable(recorded) != index.reliable) {
+						tryWrite(indexFile, length, recorded, checksum, locations);
+					}
+				}
+			}
+			if (locations == null) {
+				Scan scan = scan(channel);
+				if (scan == null) {
+					channel.close();
+					return false;
+				}
+				locations = scan.locations;
+				if (scan.others.size() > 0) {
+					JSON.mapper.readerForUpdating(container).readValue(scan.others);
+				} else {
+					tryWrite(indexFile, length, knownModified ? modified : -1, checksum, locations);
+				}
+			}
+
+			CardCountMap entries = container.cardReferences;
+			entries.ensureCapacity(entries.size() + locations.size());
+			Map<String, Location> cards = new HashMap<>(locations.size() * 2);
+			for (Location location : locations) {
+				if (location.offset + location.length > length) {
+					throw new IOException("Index of " + file + " does not match the file.");
+				}
+				String[] identity = CardCountMap.parseKey(location.key);
+				entries.setCount(entries.insert(identity[0], identity[1]), location.count);
+				if (location.offset >= 0) {
+					cards.put(location.key, location);
+				}
+			}
+			if (cards.isEmpty()) {
+				channel.close();
+			} else {
+				container.storedCards = new LazyCards(channel, cards);
+			}
+			container.setCardSource(cardSource);
+			container.setFileChecksum(checksum);
+			return true;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads an index, if it exists.
+	 *
+	 * @return the index, or null if it cannot be used.
+	 */
+	private static Index read(File indexFile) {
+		if (!indexFile.isFile()) {
+			return null;
+		}
+		try {
+			// read in one go, the index is small next to the file
+			byte[] bytes = Files.readAllBytes(indexFile.toPath());
+			ByteBuffer in = ByteBuffer.wrap(bytes);
+			if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+				return null;
+			}
+			long fileLength = in.getLong(), fileModified = in.getLong(), fileChecksum = in.getLong();
+			boolean reliable = in.get() != 0;
+			int size = in.getInt();
+			List<Location> locations = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				int keyLength = in.getShort() & 0xffff;
+				String key = new String(bytes, in.position(), keyLength, StandardCharsets.UTF_8);
+				in.position(in.position() + keyLength);
+				locations.add(new Location(key, in.getInt(), in.getLong(), in.getInt()));
+			}
+			return new Index(fileLength, fileModified, fileChecksum, reliable, locations);
+		} catch (IOException | RuntimeException e) {
+			// a damaged index is made again
+			return null;
+		}
+	}
+
+	/**
+	 * Writes an index, if possible, as it is only there to make the next load faster.
+	 *
+	 * @param fileModified the modification time of the file in nanoseconds, or -1 if it is not known.
+	 */
+	private static void tryWrite(File indexFile, long fileLength, long fileModified, long fileChecksum, List<Location> locations) {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(fileLength);
+			out.writeLong(fileModified);
+			out.writeLong(fileChecksum);
+			out.writeBoolean(isReliable(fileModified));
+			out.writeInt(locations.size());
+			for (Location location : locations) {
+				byte[] key = location.key.getBytes(StandardCharsets.UTF_8);
+				out.writeShort(key.length);
+				out.write(key);
+				out.writeInt(location.count);
+				out.writeLong(location.offset);
+				out.writeInt(location.length);
+			}
+		} catch (IOException e) {
+			// the next load scans the file again
+		}
+	}
+
+	/**
+	 * @param fileModified the modification time of a file in nanoseconds, or -1 if it is not known.
+	 * @return true if the modification time is known and is far enough in the past that the file cannot have
+	 * been changed again since without the modification time changing too.
+	 */
+	private static boolean isReliable(long fileModified) {
+		return fileModified >= 0 && System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(fileModified) >= RACY_MILLIS;
+	}
+
+	/**
+	 * @return the CRC32 of the first {@code length} bytes of the file, which are read a buffer at a time.
+	 */
+	private static long checksum(FileChannel channel, long length) throws IOException {
+		CRC32 crc = new CRC32();
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+		for (long position = 0; position < length; ) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new EOFException("File ended while it was being read.");
+			}
+			crc.update(buffer.array(), 0, read);
+			position += read;
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Finds the amount and data of every card in a file, in the order in which the
+	 * container's entries are created when the file is parsed in full.
+	 *
+	 * @return the locations and any other fields in the file, or null if the file was written by an older version.
+	 */
+	private static Scan scan(FileChannel channel) throws IOException {
+		Map<String, Location> locations = new LinkedHashMap<>();
+		ObjectNode others = JSON.mapper.createObjectNode();
+		channel.position(0);
+		try (JsonParser parser = JSON.mapper.getFactory().createParser(Channels.newInputStream(channel))) {
+			// the channel stays open, to read the cards from later
+			parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+			expect(parser, JsonToken.START_OBJECT);
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if (field.equals("cardReferences") && value == JsonToken.START_OBJECT) {
+					while (parser.nextToken() == JsonToken.FIELD_NAME) {
+						String key = parser.getCurrentName();
+						expect(parser, JsonToken.VALUE_NUMBER_INT);
+						if (key.indexOf('/') < 0) {
+							return null;
+						}
+						location(locations, key).count = parser.getIntValue();
+					}
+				} else if (field.equals("cardData") && value == JsonToken.START_OBJECT) {
+					while (parser.nextToken() == JsonToken.FIELD_NAME) {
+						String key = parser.getCurrentName();
+						expect(parser, JsonToken.START_OBJECT);
+						if (key.indexOf('/') < 0) {
+							return null;
+						}
+						Location location = location(locations, key);
+						location.offset = parser.getTokenLocation().getByteOffset();
+						parser.skipChildren();
+						location.length = (int) (parser.getCurrentLocation().getByteOffset() - location.offset);
+					}
+				} else {
+					others.set(field, parser.readValueAsTree());
+				}
+			}
+		}
+		return new Scan(new ArrayList<>(locations.values()), others);
+	}
+
+	private static Location location(Map<String, Location> locations, String key) {
+		Location location = locations.get(key);
+		if (location == null) {
+			location = new Location(key, 0, -1, -1);
+			locations.put(key, location);
+		}
+		return location;
+	}
+
+	private static void expect(JsonParser parser, JsonToken token) throws IOException {
+		if (parser.nextToken() != token) {
+			throw new IOException("Expected " + token + " at " + parser.getCurrentLocation() + ".");
+		}
+	}
+
+	/**
+	 * The contents of an index file.
+	 */
+	private static final class Index {
+		final long fileLength, fileModified, fileChecksum;
+		/**
+		 * Whether the file was modified long enough before the index was made for its
+		 * modification time to be trusted.
+		 */
+		final boolean reliable;
+		final List<Location> locations;
+
+		Index(long fileLength, long fileModified, long fileChecksum, boolean reliable, List<Location> locations) {
+			this.fileLength = fileLength;
+			this.fileModified = fileModified;
+			this.fileChecksum = fileChecksum;
+			this.reliable = reliable;
+			this.locations = locations;
+		}
+	}
+
+	/**
+	 * What a scan found in a file. Files with fields other than the cards, such as land
+	 * amounts, are not indexed, since the index only records the cards.
+	 */
+	private static final class Scan {
+		final List<Location> locations;
+		final ObjectNode others;
+
+		Scan(List<Location> locations, ObjectNode others) {
+			this.locations = locations;
+			this.others = others;
+		}
+	}
+
+	/**
+	 * The amount of a card and where its data is in the file.
+	 */
+	private static final class Location {
+		final String key;
+		int count;
+		/**
+		 * The byte offset of the card's JSON object in the file, -1 if the file has no data for the card.
+		 */
+		long offset;
+		int length;
+		/**
+		 * The card once it has been parsed, so that the container and its snapshots share it.
+		 */
+		Card card;
+
+		Location(String key, int count, long offset, int length) {
+			this.key = key;
+			this.count = count;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * Reads and parses cards from the file as they are looked up, closing the file once
+	 * all of them have been parsed.
+	 */
+	private static final class LazyCards implements CardSource {
+		private FileChannel channel;
+		private final Map<String, Location> cards;
+		private int unparsed;
+
+		LazyCards(FileChannel channel, Map<String, Location> cards) {
+			this.channel = channel;
+			this.cards = cards;
+			this.unparsed = cards.size();
+		}
+
+		@Override
+		public synchronized Card getCard(String setCode, String number) throws IOException {
+			Location location = cards.get(CardCountMap.key(setCode, number));
+			if (location == null) {
+				return null;
+			}
+			if (location.card == null) {
+				location.card = parse(location, setCode, number);
+				if (--unparsed == 0) {
+					channel.close();
+					channel = null;
+				}
+			}
+			return location.card;
+		}
+
+		private Card parse(Location location, String setCode, String number) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(location.length);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, location.offset + buffer.position()) < 0) {
+					throw new EOFException("Card " + location.key + " is past the end of the file.");
+				}
+			}
+			Card card = JSON.mapper.readValue(buffer.array(), 0, location.length, Card.class);
+			if (!CardCountMap.key(card.setCode.get(), card.number.get()).equals(CardCountMap.key(setCode, number))) {
+				throw new IOException("Card " + location.key + " is not where the index says it is.");
+			}
+			return card;
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package eu.equalparts.cardbase.containers;
+
+import java.io.IOException;
+
+import eu.equalparts.cardbase.card.Card;
+
+/**
+ * Somewhere full card data can be looked up by set code and number, such as
+ * {@code MTGUniverse::getCard}. Used to fill in cards which were saved as
+ * references only.
+ *
+ * @author Eduardo Pedroni
+ */
+@FunctionalInterface
+public interface CardSource {
+
+	/**
+	 * @param setCode the set to which the requested card belongs.
+	 * @param number the requested card's set number.
+	 * @return the requested {@code Card} or null if no card is found.
+	 * @throws IOException if the card could not be looked up.
+	 */
+	Card getCard(String setCode, String number) throws IOException;
+}
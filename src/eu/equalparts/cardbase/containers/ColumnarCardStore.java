@@ -0,0 +1,296 @@
+package eu.equalparts.cardbase.containers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.cardfield.IntegerCardField;
+import eu.equalparts.cardbase.cardfield.StringCardField;
+
+/**
+ * A compact, append-only store for large numbers of cards, which keeps each
+ * field of {@code Card} in its own column instead of in 16 field objects per card.
+ * <br><br>
+ * Integer fields are kept in {@code int} arrays. Layout, type, rarity, artist and set code
+ * have few distinct values shared by many cards, so each of those columns keeps
+ * every distinct value once and a code per card. Other string fields are kept in
+ * plain arrays, sharing the strings of the cards which were added.
+ * <br><br>
+ * Cards are read through views created by {@code get()}, which hold no values of their own:
+ * their fields read from and write to the store. Views are cheap to create and can be
+ * thrown away as soon as they have been used. Integer fields cannot hold {@code Integer.MIN_VALUE},
+ * which the store uses to stand for null.
+ * <br><br>
+ * This class is not thread-safe.
+ *
+ * @author Eduardo Pedroni
+ */
+public final class ColumnarCardStore implements Iterable<Card> {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final PlainColumn name = new PlainColumn(), manaCost = new PlainColumn(), text = new PlainColumn(),
+			flavor = new PlainColumn(), number = new PlainColumn(), power = new PlainColumn(), toughness = new PlainColumn(),
+			imageName = new PlainColumn();
+	private final DictionaryColumn layout = new DictionaryColumn(), type = new DictionaryColumn(), rarity = new DictionaryColumn(),
+			artist = new DictionaryColumn(), setCode = new DictionaryColumn();
+	private final IntegerColumn cmc = new IntegerColumn(), loyalty = new IntegerColumn(), multiverseid = new IntegerColumn();
+	private final Column[] columns = { name, manaCost, text, flavor, number, power, toughness, imageName,
+			layout, type, rarity, artist, setCode, cmc, loyalty, multiverseid };
+
+	private int size = 0;
+	private int capacity = 0;
+
+	/**
+	 * Copies the values of the specified card into the store. Later changes to the card do not affect the store.
+	 *
+	 * @param card the card to add.
+	 * @return the index of the card in the store.
+	 */
+	public int add(Card card) {
+		if (size == capacity) {
+			capacity = Math.max(INITIAL_CAPACITY, capacity * 2);
+			for (Column column : columns) {
+				column.grow(capacity);
+			}
+		}
+		int index = size++;
+		name.set(index, card.name.get());
+		layout.set(index, card.layout.get());
+		manaCost.set(index, card.manaCost.get());
+		cmc.set(index, card.cmc.get());
+		type.set(index, card.type.get());
+		rarity.set(index, card.rarity.get());
+		text.set(index, card.text.get());
+		flavor.set(index, card.flavor.get());
+		artist.set(index, card.artist.get());
+		number.set(index, card.number.get());
+		power.set(index, card.power.get());
+		toughness.set(index, card.toughness.get());
+		loyalty.set(index, card.loyalty.get());
+		multiverseid.set(index, card.multiverseid.get());
+		imageName.set(index, card.imageName.get());
+		setCode.set(index, card.setCode.get());
+		return index;
+	}
+
+	/**
+	 * @param cards the cards to add, in order.
+	 */
+	public void addAll(Iterable<Card> cards) {
+		for (Card card : cards) {
+			add(card);
+		}
+	}
+
+	/**
+	 * Returns a view of the card at the specified index. Reading a field of the view reads
+	 * it from the store, and setting a field of the view changes it in the store. Replacing
+	 * a field of the view with a new field object only affects the view.
+	 *
+	 * @param index the index of the card, as returned by {@code add()}.
+	 * @return a view of the card.
+	 * @throws IndexOutOfBoundsException if there is no card at the index.
+	 */
+	public Card get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		}
+		Card card = new Card();
+		card.name = new StringView("name", name, index);
+		card.layout = new StringView("layout", layout, index);
+		card.manaCost = new StringView("manaCost", manaCost, index);
+		card.cmc = new IntegerView("cmc", cmc, index);
+		card.type = new StringView("type", type, index);
+		card.rarity = new StringView("rarity", rarity, index);
+		card.text = new StringView("text", text, index);
+		card.flavor = new StringView("flavor", flavor, index);
+		card.artist = new StringView("artist", artist, index);
+		card.number = new StringView("number", number, index);
+		card.power = new StringView("power", power, index);
+		card.toughness = new StringView("toughness", toughness, index);
+		card.loyalty = new IntegerView("loyalty", loyalty, index);
+		card.multiverseid = new IntegerView("multiverseid", multiverseid, index);
+		card.imageName = new StringView("imageName", imageName, index);
+		card.setCode = new StringView("setCode", setCode, index);
+		return card;
+	}
+
+	/**
+	 * @return the number of cards in the store.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Shrinks the columns to fit the cards in the store, for when no more cards are going to be added.
+	 */
+	public void trimToSize() {
+		if (capacity > size) {
+			capacity = size;
+			for (Column column : columns) {
+				column.grow(capacity);
+			}
+		}
+	}
+
+	/**
+	 * Iterates over views of the cards in the order in which they were added.
+	 */
+	@Override
+	public Iterator<Card> iterator() {
+		return new Iterator<Card>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Card next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				return get(next++);
+			}
+		};
+	}
+
+	/**
+	 * A single field of every card in the store.
+	 */
+	private interface Column {
+		/**
+		 * Changes the length of the column, keeping as many values as fit.
+		 */
+		void grow(int capacity);
+	}
+
+	private static abstract class StringColumn implements Column {
+		abstract String get(int index);
+
+		abstract void set(int index, String value);
+	}
+
+	private static final class PlainColumn extends StringColumn {
+		private String[] values = new String[0];
+
+		@Override
+		String get(int index) {
+			return values[index];
+		}
+
+		@Override
+		void set(int index, String value) {
+			values[index] = value;
+		}
+
+		@Override
+		public void grow(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+	}
+
+	private static final class DictionaryColumn extends StringColumn {
+		/**
+		 * The code of each card's value, -1 for null.
+		 */
+		private int[] codes = new int[0];
+		private final List<String> dictionary = new ArrayList<>();
+		private final Map<String, Integer> codesByValue = new HashMap<>();
+
+		@Override
+		String get(int index) {
+			int code = codes[index];
+			return code < 0 ? null : dictionary.get(code);
+		}
+
+		@Override
+		void set(int index, String value) {
+			int code = -1;
+			if (value != null) {
+				Integer existingCode = codesByValue.get(value);
+				if (existingCode == null) {
+					existingCode = dictionary.size();
+					dictionary.add(value);
+					codesByValue.put(value, existingCode);
+				}
+				code = existingCode;
+			}
+			codes[index] = code;
+		}
+
+		@Override
+		public void grow(int capacity) {
+			codes = Arrays.copyOf(codes, capacity);
+		}
+	}
+
+	private static final class IntegerColumn implements Column {
+		private static final int NULL = Integer.MIN_VALUE;
+		private int[] values = new int[0];
+
+		Integer get(int index) {
+			int value = values[index];
+			return value == NULL ? null : value;
+		}
+
+		void set(int index, Integer value) {
+			values[index] = value == null ? NULL : value;
+		}
+
+		@Override
+		public void grow(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+	}
+
+	private static final class StringView extends StringCardField {
+		private final StringColumn column;
+		private final int index;
+
+		StringView(String name, StringColumn column, int index) {
+			super(name, null);
+			this.column = column;
+			this.index = index;
+		}
+
+		@Override
+		public String get() {
+			return column.get(index);
+		}
+
+		@Override
+		public void set(String newValue) {
+			column.set(index, newValue);
+		}
+	}
+
+	private static final class IntegerView extends IntegerCardField {
+		private final IntegerColumn column;
+		private final int index;
+
+		IntegerView(String name, IntegerColumn column, int index) {
+			super(name, null);
+			this.column = column;
+			this.index = index;
+		}
+
+		@Override
+		public Integer get() {
+			return column.get(index);
+		}
+
+		@Override
+		public void set(Integer newValue) {
+			column.set(index, newValue);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package eu.equalparts.cardbase.containers;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -21,10 +22,40 @@ public class ReferenceCardContainer {
 	 */
 	private int plains = 0, islands = 0, swamps = 0, forests = 0, mountains = 0;
 	/**
-	 * A map with card hashes as entry keys (calculated used {@code Card.hashCode()})
-	 * and card amounts as entry values.
+	 * The card amounts, keyed by set code and number.
 	 */
-	@JsonProperty private Map<Integer, Integer> cardReferences = new HashMap<>();
+	final CardCountMap cardReferences;
+	/**
+	 * Card amounts read from files which keyed them by {@code Card.hashCode()}, still keyed that way.
+	 * Amounts of cards whose data was read along with them are moved into {@code cardReferences} when
+	 * the file is loaded. The rest are counted for any card with a matching hash, and moved the first time
+	 * such a card is added or removed, so that reading the container never changes it. Any which are never
+	 * moved are written back out as they were read. Null if there are none.
+	 */
+	Map<Integer, Integer> legacyReferences;
+
+	/**
+	 * Creates an empty container.
+	 */
+	public ReferenceCardContainer() {
+		cardReferences = new CardCountMap();
+	}
+
+	/**
+	 * Creates a copy of the specified container. The copy shares the card amounts of the
+	 * original until either of them is changed, so it is cheap to make.
+	 * 
+	 * @param original the container to copy.
+	 */
+	protected ReferenceCardContainer(ReferenceCardContainer original) {
+		cardReferences = original.cardReferences.snapshot();
+		legacyReferences = original.legacyReferences == null ? null : new HashMap<>(original.legacyReferences);
+		plains = original.plains;
+		islands = original.islands;
+		swamps = original.swamps;
+		forests = original.forests;
+		mountains = original.mountains;
+	}
 
 	/**
 	 * Returns the amount of the specified card. If the card is not present at all, return 0.
@@ -33,8 +64,12 @@ public class ReferenceCardContainer {
 	 * @return the count of the returned card in the container.
 	 */
 	public int getCount(Card cardToCount){
-		int cardHash = cardToCount.hashCode();
-		return cardReferences.containsKey(cardHash) ? cardReferences.get(cardHash) : 0;
+		int entry = findEntry(cardToCount);
+		if (entry >= 0) {
+			return cardReferences.count(entry);
+		}
+		Integer legacyCount = legacyReferences == null ? null : legacyReferences.get(cardToCount.hashCode());
+		return legacyCount != null ? legacyCount : 0;
 	}
 	
 	/**
@@ -42,7 +77,7 @@ public class ReferenceCardContainer {
 	 * @param count the amount to add.
 	 */
 	public void addCard(Card cardToAdd, int count) {
-		cardReferences.put(cardToAdd.hashCode(), getCount(cardToAdd) + count);
+		addCount(cardToAdd, count);
 	}
 	
 	/**
@@ -52,18 +87,115 @@ public class ReferenceCardContainer {
 	 * depending on how many of the card were present.
 	 */
 	public int removeCard(Card cardToRemove, int count) {
-		int cardHash = cardToRemove.hashCode();
-		if (count <= 0 || !cardReferences.containsKey(cardHash)) {
+		migrateLegacyReference(cardToRemove);
+		int entry = findEntry(cardToRemove);
+		if (count <= 0 || entry < 0) {
 			return 0;
 		}
 		
-		if (count >= cardReferences.get(cardHash)) {
-			return cardReferences.remove(cardHash);
+		int present = cardReferences.count(entry);
+		if (count >= present) {
+			cardReferences.remove(entry);
+			return present;
 		} else {
-			cardReferences.put(cardHash, cardReferences.get(cardHash) - count);
+			cardReferences.setCount(entry, present - count);
 			return count;
 		}
 	}
+	
+	/**
+	 * Adds to the amount of the specified card, creating its entry if necessary.
+	 * 
+	 * @param cardToAdd the card to add the container.
+	 * @param count the amount to add.
+	 * @return the index of the card's entry in {@code cardReferences}.
+	 */
+	int addCount(Card cardToAdd, int count) {
+		migrateLegacyReference(cardToAdd);
+		int entry = cardReferences.insert(cardToAdd.setCode.get(), cardToAdd.number.get());
+		cardReferences.setCount(entry, cardReferences.count(entry) + count);
+		return entry;
+	}
+	
+	/**
+	 * @param card the card to look for.
+	 * @return the index of the card's entry in {@code cardReferences}, or -1 if it has none.
+	 */
+	int findEntry(Card card) {
+		return cardReferences.find(card.setCode.get(), card.number.get());
+	}
+	
+	/**
+	 * Moves the legacy amounts of every card which already has an entry into that entry.
+	 * Called once when a container is loaded, after both its amounts and its cards have been read.
+	 */
+	void resolveLegacyReferences() {
+		if (legacyReferences == null) {
+			return;
+		}
+		for (int entry = cardReferences.next(0); entry >= 0 && !legacyReferences.isEmpty(); entry = cardReferences.next(entry + 1)) {
+			Integer legacyCount = legacyReferences.remove(cardReferences.hash(entry));
+			if (legacyCount != null) {
+				cardReferences.setCount(entry, cardReferences.count(entry) + legacyCount);
+			}
+		}
+	}
+	
+	/**
+	 * If there is a legacy amount stored under the hash of the specified card,
+	 * moves it into {@code cardReferences} under the card's identity.
+	 * Two cards with the same hash were indistinguishable in the legacy format,
+	 * so the amount goes to whichever of them is added or removed first.
+	 */
+	private void migrateLegacyReference(Card card) {
+		if (legacyReferences != null && !legacyReferences.isEmpty()) {
+			Integer legacyCount = legacyReferences.remove(card.hashCode());
+			if (legacyCount != null) {
+				int entry = cardReferences.insert(card.setCode.get(), card.number.get());
+				cardReferences.setCount(entry, cardReferences.count(entry) + legacyCount);
+			}
+		}
+	}
+	
+	/**
+	 * @return the card amounts as written to JSON, keyed by set code and number.
+	 */
+	@JsonProperty("cardReferences")
+	private Map<String, Integer> getCardReferences() {
+		Map<String, Integer> references = new LinkedHashMap<>();
+		for (int entry = cardReferences.next(0); entry >= 0; entry = cardReferences.next(entry + 1)) {
+			references.put(CardCountMap.key(cardReferences.setCode(entry), cardReferences.number(entry)), cardReferences.count(entry));
+		}
+		if (legacyReferences != null) {
+			for (Map.Entry<Integer, Integer> legacyReference : legacyReferences.entrySet()) {
+				references.put(legacyReference.getKey().toString(), legacyReference.getValue());
+			}
+		}
+		return references;
+	}
+
+	/**
+	 * Reads card amounts from JSON. Keys which are plain integers were written
+	 * by older versions, which keyed amounts by {@code Card.hashCode()}.
+	 * 
+	 * @param references the card amounts as read from JSON.
+	 */
+	@JsonProperty("cardReferences")
+	private void setCardReferences(Map<String, Integer> references) {
+		for (Map.Entry<String, Integer> reference : references.entrySet()) {
+			String key = reference.getKey();
+			if (key.indexOf('/') < 0) {
+				if (legacyReferences == null) {
+					legacyReferences = new HashMap<>();
+				}
+				legacyReferences.put(Integer.valueOf(key), reference.getValue());
+			} else {
+				String[] identity = CardCountMap.parseKey(key);
+				cardReferences.setCount(cardReferences.insert(identity[0], identity[1]), reference.getValue());
+			}
+		}
+		resolveLegacyReferences();
+	}
 
 	/**
 	 * @return the plains
@@ -1,10 +1,20 @@
 package eu.equalparts.cardbase.containers;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import eu.equalparts.cardbase.card.Card;
@@ -12,27 +22,145 @@ import eu.equalparts.cardbase.card.Card;
 /**
  * TODO fix comments
  * Holds actual card data in addition to the card counts in {@code ReferenceCardContainer}.
+ * Each card is stored in the same entry as its count.
+ * <br><br>
+ * Containers saved with references only have entries without cards when they are read.
+ * If a {@code CardSource} is set, such cards are looked up the first time they are needed.
+ * Looked up cards are kept apart from the entries, in a concurrent map which the container
+ * shares with its copies, so reading from a container never changes it.
+ * <br><br>
+ * Every method which returns cards may have to look some of them up, and so may block on
+ * whatever the card source does, such as fetching from the network. Callers which hold a
+ * lock while reading should read from a copy outside the lock instead.
  * 
  * @author Eduardo Pedroni
  *
  */
 public class StandaloneCardContainer extends ReferenceCardContainer {
+
+	/**
+	 * Where missing cards are looked up, null if they are to stay missing.
+	 */
+	private CardSource cardSource;
+	/**
+	 * Where the cards of the file the container was loaded from are read the first time they are
+	 * needed, null if the file was read in full. Unlike {@code cardSource}, reading from it never
+	 * goes beyond that file, so it is also used when the container is written out.
+	 */
+	CardSource storedCards;
+	/**
+	 * The cards which have been looked up in {@code cardSource}, keyed by set code and number.
+	 * Cards are never removed from it, as copies of the container may still have their entries.
+	 */
+	private final ConcurrentHashMap<String, Card> lookedUpCards;
+	/**
+	 * The CRC32 of the file from which the container was loaded, -1 if it is not known.
+	 */
+	private long fileChecksum = -1;
+
+	/**
+	 * The view returned by {@code getCardView()}.
+	 */
+	private final Collection<Card> cardView = new CardView();
+
+	/**
+	 * Creates an empty container.
+	 */
+	public StandaloneCardContainer() {
+		lookedUpCards = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Creates a copy of the specified container, which shares its cards and their amounts
+	 * with the original until either of them is changed. Missing cards are looked up
+	 * in the same source as the original's, and cards looked up by either are kept for both.
+	 * 
+	 * @param original the container to copy.
+	 */
+	protected StandaloneCardContainer(StandaloneCardContainer original) {
+		super(original);
+		cardSource = original.cardSource;
+		storedCards = original.storedCards;
+		lookedUpCards = original.lookedUpCards;
+	}
+
+	/**
+	 * Sets where cards which have a count but no data, as read from files saved with
+	 * references only, are looked up. Each card is looked up the first time it is needed
+	 * and kept from then on.
+	 * 
+	 * @param cardSource where to look up missing cards, or null to leave them missing.
+	 */
+	@JsonIgnore
+	public void setCardSource(CardSource cardSource) {
+		this.cardSource = cardSource;
+	}
+
+	/**
+	 * @return the CRC32 of the file from which the container was loaded, as it was read,
+	 * or -1 if the container was not loaded from a file or the file was not read in full.
+	 */
+	public long getFileChecksum() {
+		return fileChecksum;
+	}
+
+	/**
+	 * @param fileChecksum the CRC32 of the file from which the container was loaded.
+	 */
+	@JsonIgnore
+	protected void setFileChecksum(long fileChecksum) {
+		this.fileChecksum = fileChecksum;
+	}
+
+	/**
+	 * Checks whether the container holds the data of any of its cards, without looking any up.
+	 * 
+	 * @return false if the container has cards but the data of none of them, as when it is read
+	 * from a file saved with references only, true otherwise.
+	 */
+	protected boolean hasCardData() {
+		if (storedCards != null || cardReferences.next(0) < 0) {
+			return true;
+		}
+		for (int entry = cardReferences.next(0); entry >= 0; entry = cardReferences.next(entry + 1)) {
+			if (cardReferences.card(entry) != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
-	 * A map with card hashes as entry keys (calculated used {@code Card.hashCode()})
-	 * and card objects as entry values.
+	 * Looks up every card which the container has a count of but no data for, as when it is read
+	 * from a file saved with references only, so that all of them can be written out in full.
+	 * This may block on the card source, so it should not be called while holding a lock which
+	 * others are waiting on; looking cards up in a copy of the container is just as good, as
+	 * looked up cards are kept for the container and all of its copies.
+	 * 
+	 * @return the number of cards which are still missing, as they could not be looked up.
 	 */
-	@JsonProperty private Map<Integer, Card> cardData = new HashMap<>();
+	public int lookUpMissingCards() {
+		int missing = 0;
+		for (int entry = cardReferences.next(0); entry >= 0; entry = cardReferences.next(entry + 1)) {
+			if (card(entry) == null) {
+				missing++;
+			}
+		}
+		return missing;
+	}
 
 	/**
 	 * Returns a card from the cardbase by set code and number.
 	 * If no such card is in the cardbase, returns null.
+	 * The card is looked up in the card source if the cardbase only has its count.
 	 * 
 	 * @param setCode the set to which the requested card belongs.
 	 * @param number the requested card's set number.
 	 * @return the requested {@code Card} or null if no card is found.
 	 */
 	public Card getCard(String setCode, String number) {
-		return cardData.get(Card.makeHash(setCode, number));
+		int entry = cardReferences.find(setCode, number);
+		return entry >= 0 ? card(entry) : null;
 	}
 	
 	/**
@@ -40,27 +168,229 @@ public class StandaloneCardContainer extends ReferenceCardContainer {
 	 * while at the same time retaining control over the insert and remove procedures.
 	 * The returned {@code List} is a copy of the list kept internally by {@code StandaloneCardContainer};
 	 * modifying its structure is possible but will not affect the container instance from which it came.
+	 * <br><br>
+	 * Cards which have no data are looked up, which may block, and are left out if they cannot be.
 	 * 
-	 * @return an unmodifiable list of all the cards in the cardbase.
+	 * @return an array-backed list of all the cards in the cardbase, in the order in which they were added.
 	 */
 	public List<Card> getCards() {
-		return new LinkedList<Card>(cardData.values());
+		List<Card> cards = new ArrayList<>(cardReferences.size());
+		for (int entry = cardReferences.next(0); entry >= 0; entry = cardReferences.next(entry + 1)) {
+			Card card = card(entry);
+			if (card != null) {
+				cards.add(card);
+			}
+		}
+		return cards;
+	}
+
+	/**
+	 * Returns an unmodifiable view of the cards in the container, in the order in which
+	 * they were added. Unlike {@code getCards()}, this copies nothing, and the view reflects
+	 * later changes to the container. The container must not be changed while the view
+	 * is being iterated over.
+	 * <br><br>
+	 * Cards which have no data are looked up as they are reached, and left out if they cannot be.
+	 * The size of the view is the number of entries in the container, which is known without
+	 * looking anything up, so iterating over the view may reach fewer cards than its size if
+	 * some cannot be looked up.
+	 * 
+	 * @return a view of all the cards in the container.
+	 */
+	public Collection<Card> getCardView() {
+		return cardView;
+	}
+
+	/**
+	 * Performs an action on every card in the container along with its count, in the order
+	 * in which the cards were added. This is cheaper than iterating over the cards and calling
+	 * {@code getCount()} on each, since the count is in the same entry as the card.
+	 * <br><br>
+	 * Cards which have no data are looked up as they are reached, and left out if they cannot be.
+	 * 
+	 * @param action the action to perform on each card and its count.
+	 */
+	public void forEach(ObjIntConsumer<? super Card> action) {
+		for (int entry = cardReferences.next(0); entry >= 0; entry = cardReferences.next(entry + 1)) {
+			Card card = card(entry);
+			if (card != null) {
+				action.accept(card, cardReferences.count(entry));
+			}
+		}
+	}
+
+	/**
+	 * Returns a spliterator over the cards in the container, in the order in which they were added,
+	 * for streaming them with {@code StreamSupport.stream()}. The container must not be changed
+	 * while the spliterator is in use.
+	 * <br><br>
+	 * Missing cards are looked up as they are reached. The spliterator does not split, as
+	 * the container is not meant to be read by several threads while it may be changed.
+	 * 
+	 * @return a spliterator over all the cards in the container.
+	 */
+	public Spliterator<Card> spliterator() {
+		return new CardSpliterator();
 	}
 	
 	@Override
 	public void addCard(Card cardToAdd, int count) {
-		super.addCard(cardToAdd, count);
-		cardData.putIfAbsent(cardToAdd.hashCode(), cardToAdd);
+		int entry = addCount(cardToAdd, count);
+		if (cardReferences.card(entry) == null) {
+			cardReferences.setCard(entry, cardToAdd);
+		}
 	}
 
-	@Override
-	public int removeCard(Card cardToRemove, int count) {
-		int removed = super.removeCard(cardToRemove, count);
-		
-		if (getCount(cardToRemove) <= 0) {
-			cardData.remove(cardToRemove.hashCode());
-		}
-		
-		return removed;
+	/**
+	 * Returns the card in the specified entry, looking it up if the entry has none. Looked up
+	 * cards are kept in {@code lookedUpCards}, the entry itself is left as it is.
+	 * 
+	 * @param entry the index of the entry.
+	 * @return the card, or null if the entry has none and it could not be looked up.
+	 */
+	Card card(int entry) {
+		Card card;
+		try {
+			card = savedCard(entry);
+		} catch (IOException e) {
+			// the file the container was loaded from is no use, but the card may still be looked up
+			card = null;
+		}
+		if (card == null && cardSource != null) {
+			try {
+				card = cardSource.getCard(cardReferences.setCode(entry), cardReferences.number(entry));
+			} catch (IOException e) {
+				// the card stays missing for now, it is looked up again next time
+			}
+			if (card != null) {
+				lookedUpCards.put(CardCountMap.key(cardReferences.setCode(entry), cardReferences.number(entry)), card);
+			}
+		}
+		return card;
+	}
+	
+	/**
+	 * Returns the card in the specified entry as it is written out: the entry's own card, the card
+	 * in the file the container was loaded from, or the card as it was looked up before. Unlike
+	 * {@code card()}, this never looks the card up in the card source; containers which are to be
+	 * written in full look their missing cards up first, with {@code lookUpMissingCards()}.
+	 * 
+	 * @param entry the index of the entry.
+	 * @return the card, or null if the entry has none and it has not been looked up yet.
+	 * @throws IOException if the card is in the file but cannot be read.
+	 */
+	Card savedCard(int entry) throws IOException {
+		Card card = cardReferences.card(entry);
+		if (card == null && storedCards != null) {
+			card = storedCards.getCard(cardReferences.setCode(entry), cardReferences.number(entry));
+		}
+		if (card == null && !lookedUpCards.isEmpty()) {
+			card = lookedUpCards.get(CardCountMap.key(cardReferences.setCode(entry), cardReferences.number(entry)));
+		}
+		return card;
+	}
+	
+	/**
+	 * Cards which have not been looked up are left out. {@code Cardbase} looks them up before
+	 * writing itself in full, and writes nothing if some cannot be.
+	 * 
+	 * @return the cards as written to JSON, keyed by set code and number.
+	 * @throws IOException if a card in the file the container was loaded from cannot be read.
+	 */
+	@JsonProperty("cardData")
+	private Map<String, Card> getCardData() throws IOException {
+		Map<String, Card> cardData = new LinkedHashMap<>();
+		for (int entry = cardReferences.next(0); entry >= 0; entry = cardReferences.next(entry + 1)) {
+			Card card = savedCard(entry);
+			if (card != null) {
+				cardData.put(CardCountMap.key(cardReferences.setCode(entry), cardReferences.number(entry)), card);
+			}
+		}
+		return cardData;
+	}
+	
+	/**
+	 * Reads cards from JSON. The keys are ignored, as each card is identified by its own
+	 * set code and number, so files which keyed cards by {@code Card.hashCode()} are read the same way.
+	 * 
+	 * @param cardData the cards as read from JSON.
+	 */
+	@JsonProperty("cardData")
+	private void setCardData(Map<String, Card> cardData) {
+		for (Card card : cardData.values()) {
+			int entry = cardReferences.insert(card.setCode.get(), card.number.get());
+			if (cardReferences.card(entry) == null) {
+				cardReferences.setCard(entry, card);
+			}
+		}
+		resolveLegacyReferences();
+	}
+
+	/**
+	 * A read-only view of the cards in the container.
+	 */
+	private final class CardView extends AbstractCollection<Card> {
+		@Override
+		public Iterator<Card> iterator() {
+			return Spliterators.iterator(spliterator());
+		}
+
+		@Override
+		public Spliterator<Card> spliterator() {
+			return StandaloneCardContainer.this.spliterator();
+		}
+
+		@Override
+		public int size() {
+			return cardReferences.size();
+		}
+
+		@Override
+		public boolean contains(Object object) {
+			if (object instanceof Card) {
+				Card card = (Card) object;
+				int entry = cardReferences.find(card.setCode.get(), card.number.get());
+				return entry >= 0 && card(entry) != null;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Traverses the entries in order, skipping those without a card.
+	 */
+	private final class CardSpliterator implements Spliterator<Card> {
+		/**
+		 * The entry index from which to look for the next card.
+		 */
+		private int from = 0;
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Card> action) {
+			for (int entry = cardReferences.next(from); entry >= 0; entry = cardReferences.next(from)) {
+				from = entry + 1;
+				Card card = card(entry);
+				if (card != null) {
+					action.accept(card);
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public Spliterator<Card> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return cardReferences.size();
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | DISTINCT | NONNULL;
+		}
 	}
 }
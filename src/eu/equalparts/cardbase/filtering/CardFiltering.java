@@ -1,15 +1,13 @@
 package eu.equalparts.cardbase.filtering;
 
-import java.lang.reflect.Field;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import eu.equalparts.cardbase.card.Card;
-import eu.equalparts.cardbase.cardfield.CardField;
-import eu.equalparts.cardbase.cardfield.IntegerCardField;
-import eu.equalparts.cardbase.comparator.SpecialFields.DirtyNumber;
+import eu.equalparts.cardbase.cardfield.CardFieldAccessor;
 import eu.equalparts.cardbase.filtering.Filter.FilterType;
-import eu.equalparts.cardbase.utils.Utils;
 
 /**
  * Contains and equals are not case sensitive. Regex is.
@@ -19,17 +17,74 @@ import eu.equalparts.cardbase.utils.Utils;
  */
 public class CardFiltering {
 	
+	/**
+	 * Collections with at least this many cards are filtered in parallel, using the common
+	 * fork-join pool. Smaller collections are filtered sequentially, as splitting them
+	 * up costs more than it saves. The result is the same either way, down to the order.
+	 */
+	public static final int PARALLEL_THRESHOLD = 50000;
+	
 	public static void filterByField(List<Card> cards, Filter filter) throws NoSuchFieldException {	
-		Field fieldToFilter = Card.class.getDeclaredField(filter.fieldName);
-		try {
-			for (Iterator<Card> iterator = cards.iterator(); iterator.hasNext();) {
-				if (!((CardField<?>) fieldToFilter.get(iterator.next())).filter(filter)) {
-					iterator.remove();
+		retain(cards, filter.compile());
+	}
+	
+	/**
+	 * Removes every card which does not match the specified expression, in a single pass over the list.
+	 * 
+	 * @param cards the cards to filter.
+	 * @param expression the expression which remaining cards must match.
+	 * @throws NoSuchFieldException if any filter in the expression refers to a field which does not exist in {@code Card}.
+	 */
+	public static void filterByExpression(List<Card> cards, FilterExpression expression) throws NoSuchFieldException {
+		retain(cards, expression.compile());
+	}
+	
+	/**
+	 * Returns the cards which match the specified filter, leaving the original collection untouched.
+	 * 
+	 * @param cards the cards to filter.
+	 * @param filter the filter which returned cards must match.
+	 * @return a new array-backed list of the matching cards, in iteration order.
+	 * @throws NoSuchFieldException if the filter's field does not exist in {@code Card}.
+	 */
+	public static List<Card> selectByField(Collection<Card> cards, Filter filter) throws NoSuchFieldException {
+		return select(cards, filter.compile());
+	}
+	
+	/**
+	 * Returns the cards which match the specified expression, leaving the original collection untouched.
+	 * 
+	 * @param cards the cards to filter.
+	 * @param expression the expression which returned cards must match.
+	 * @return a new array-backed list of the matching cards, in iteration order.
+	 * @throws NoSuchFieldException if any filter in the expression refers to a field which does not exist in {@code Card}.
+	 */
+	public static List<Card> selectByExpression(Collection<Card> cards, FilterExpression expression) throws NoSuchFieldException {
+		return select(cards, expression.compile());
+	}
+	
+	private static List<Card> select(Collection<Card> cards, CompiledFilter compiledFilter) {
+		if (cards.size() >= PARALLEL_THRESHOLD) {
+			// the stream is ordered, so the collected list keeps the iteration order
+			return cards.parallelStream().filter(compiledFilter).collect(Collectors.toCollection(ArrayList::new));
+		} else {
+			ArrayList<Card> selected = new ArrayList<>();
+			for (Card card : cards) {
+				if (compiledFilter.test(card)) {
+					selected.add(card);
 				}
 			}
-		} catch (IllegalAccessException e) {
-			System.out.println("Error: field " + fieldToFilter.getName() + " in Card is not visible.");
-			e.printStackTrace();
+			return selected;
+		}
+	}
+	
+	private static void retain(List<Card> cards, CompiledFilter compiledFilter) {
+		if (cards.size() >= PARALLEL_THRESHOLD) {
+			List<Card> selected = select(cards, compiledFilter);
+			cards.clear();
+			cards.addAll(selected);
+		} else {
+			cards.removeIf(compiledFilter.negate());
 		}
 	}
 	
@@ -40,18 +95,17 @@ public class CardFiltering {
 		}
 		
 		// Check that the specified field exists
-		Field fieldToFilter;
+		CardFieldAccessor fieldToFilter;
 		try {
-			fieldToFilter = Card.class.getDeclaredField(filter.fieldName);
-		} catch (NoSuchFieldException | SecurityException e) {
+			fieldToFilter = CardFieldAccessor.forName(filter.fieldName);
+		} catch (NoSuchFieldException e) {
 			return false;
 		}
 		
 		// If filter is numeric, check that the field and value are valid
 		if (filter.type == FilterType.GREATER_THAN || filter.type == FilterType.SMALLER_THAN) {
 			// Check that the field is of type integer
-			if (!fieldToFilter.getType().equals(IntegerCardField.class)
-					&& !Utils.hasAnnotation(fieldToFilter, DirtyNumber.class)) {
+			if (!fieldToFilter.isInteger() && !fieldToFilter.isDirtyNumber()) {
 				return false;
 			}
 			
@@ -0,0 +1,217 @@
+package eu.equalparts.cardbase.filtering;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.cardfield.CardFieldAccessor;
+import eu.equalparts.cardbase.utils.Utils;
+
+/**
+ * An immutable, ready to run version of a {@code Filter} or a {@code FilterExpression}.
+ * Everything that depends only on the filter, such as the field accessor, the
+ * compiled regex or the parsed integer, is worked out once when the
+ * filter is compiled, leaving only the comparison itself to be done
+ * for each card.
+ * <br><br>
+ * Cards whose filtered field is null never match.
+ * <br><br>
+ * Each compiled filter carries a rough estimate of how expensive it is to
+ * run on a single card, which is used to run the cheapest operands of
+ * a composite filter first.
+ *
+ * @author Eduardo Pedroni
+ *
+ */
+public final class CompiledFilter implements Predicate<Card> {
+
+	/*
+	 * Relative per-card costs of the different kinds of test.
+	 */
+	private static final int INTEGER_COMPARISON_COST = 1;
+	private static final int STRING_EQUALS_COST = 2;
+	private static final int DIRTY_NUMBER_COMPARISON_COST = 3;
+	private static final int INTEGER_TO_STRING_COST = 3;
+	private static final int STRING_CONTAINS_COST = 4;
+	private static final int REGEX_COST = 10;
+
+	/**
+	 * Orders compiled filters from cheapest to most expensive.
+	 */
+	private static final Comparator<CompiledFilter> BY_COST = Comparator.comparingInt(CompiledFilter::cost);
+
+	/**
+	 * The test to run on each card.
+	 */
+	private final Predicate<Card> test;
+	/**
+	 * The estimated cost of running the test on a single card.
+	 */
+	private final int cost;
+
+	private CompiledFilter(Predicate<Card> test, int cost) {
+		this.test = test;
+		this.cost = cost;
+	}
+
+	/**
+	 * Compiles the specified filter. Later changes to the filter do not affect the returned object.
+	 *
+	 * @param filter the filter to compile.
+	 * @return the compiled filter.
+	 * @throws NoSuchFieldException if the filter's field does not exist in {@code Card}.
+	 * @throws IllegalArgumentException if the filter is numeric but its field is not.
+	 * @throws NumberFormatException if the filter is numeric, its field is an integer field, and its value is not an integer.
+	 * @throws java.util.regex.PatternSyntaxException if the filter is a regex filter and its value is not a valid regex.
+	 */
+	static CompiledFilter compile(Filter filter) throws NoSuchFieldException {
+		CardFieldAccessor field = CardFieldAccessor.forName(filter.fieldName);
+		Predicate<Object> valueTest = field.isInteger() ? compileIntegerTest(filter.type, filter.value)
+				: compileStringTest(filter.type, filter.value, field.isDirtyNumber());
+
+		return new CompiledFilter(card -> {
+			Object value = field.get(card).get();
+			return value != null && valueTest.test(value);
+		}, estimateCost(filter.type, field));
+	}
+
+	/**
+	 * @param operands the filters which must all match.
+	 * @return a filter which matches if all operands match, running the cheapest operands first.
+	 */
+	static CompiledFilter and(List<CompiledFilter> operands) {
+		CompiledFilter[] ordered = sortByCost(operands);
+		return new CompiledFilter(card -> {
+			for (CompiledFilter operand : ordered) {
+				if (!operand.test(card)) {
+					return false;
+				}
+			}
+			return true;
+		}, totalCost(ordered));
+	}
+
+	/**
+	 * @param operands the filters of which at least one must match.
+	 * @return a filter which matches if any operand matches, running the cheapest operands first.
+	 */
+	static CompiledFilter or(List<CompiledFilter> operands) {
+		CompiledFilter[] ordered = sortByCost(operands);
+		return new CompiledFilter(card -> {
+			for (CompiledFilter operand : ordered) {
+				if (operand.test(card)) {
+					return true;
+				}
+			}
+			return false;
+		}, totalCost(ordered));
+	}
+
+	/**
+	 * @param operand the filter to negate.
+	 * @return a filter which matches exactly when the operand does not.
+	 */
+	static CompiledFilter not(CompiledFilter operand) {
+		return new CompiledFilter(operand.test.negate(), operand.cost);
+	}
+
+	@Override
+	public boolean test(Card card) {
+		return test.test(card);
+	}
+
+	/**
+	 * @return the estimated relative cost of running this filter on a single card.
+	 */
+	int cost() {
+		return cost;
+	}
+
+	private static CompiledFilter[] sortByCost(List<CompiledFilter> operands) {
+		CompiledFilter[] ordered = operands.toArray(new CompiledFilter[operands.size()]);
+		Arrays.sort(ordered, BY_COST);
+		return ordered;
+	}
+
+	private static int totalCost(CompiledFilter[] operands) {
+		int total = 0;
+		for (CompiledFilter operand : operands) {
+			total += operand.cost;
+		}
+		return total;
+	}
+
+	private static int estimateCost(Filter.FilterType type, CardFieldAccessor field) {
+		switch (type) {
+		case REGEX:
+			return REGEX_COST;
+		case CONTAINS:
+			return field.isInteger() ? INTEGER_TO_STRING_COST : STRING_CONTAINS_COST;
+		case EQUALS:
+			return field.isInteger() ? INTEGER_TO_STRING_COST : STRING_EQUALS_COST;
+		default:
+			return field.isInteger() ? INTEGER_COMPARISON_COST : DIRTY_NUMBER_COMPARISON_COST;
+		}
+	}
+
+	private static Predicate<Object> compileIntegerTest(Filter.FilterType type, String filterValue) {
+		switch (type) {
+		case CONTAINS:
+			return value -> value.toString().contains(filterValue);
+		case EQUALS:
+			return value -> value.toString().equalsIgnoreCase(filterValue);
+		case REGEX:
+			Pattern pattern = Pattern.compile(filterValue);
+			return value -> pattern.matcher(value.toString()).matches();
+		case GREATER_THAN:
+			int lowerBound = Integer.parseInt(filterValue);
+			return value -> (Integer) value > lowerBound;
+		case SMALLER_THAN:
+			int upperBound = Integer.parseInt(filterValue);
+			return value -> (Integer) value < upperBound;
+		default:
+			return value -> false;
+		}
+	}
+
+	private static Predicate<Object> compileStringTest(Filter.FilterType type, String filterValue, boolean dirtyNumber) {
+		switch (type) {
+		case CONTAINS:
+			String needle = filterValue.toLowerCase();
+			return value -> ((String) value).toLowerCase().contains(needle);
+		case EQUALS:
+			return value -> ((String) value).equalsIgnoreCase(filterValue);
+		case REGEX:
+			Pattern pattern = Pattern.compile(filterValue);
+			return value -> pattern.matcher((String) value).matches();
+		case GREATER_THAN:
+		case SMALLER_THAN:
+			if (!dirtyNumber) {
+				throw new IllegalArgumentException("Numeric filters can only be applied to numeric fields.");
+			}
+			int bound;
+			try {
+				bound = Integer.parseInt(filterValue);
+			} catch (NumberFormatException e) {
+				// a dirty number cannot be compared with a non-number, nothing matches
+				return value -> false;
+			}
+			if (type == Filter.FilterType.GREATER_THAN) {
+				return value -> {
+					int number = Utils.parseDirtyNumber((String) value);
+					return number >= 0 && number > bound;
+				};
+			} else {
+				return value -> {
+					int number = Utils.parseDirtyNumber((String) value);
+					return number >= 0 && number < bound;
+				};
+			}
+		default:
+			throw new IllegalArgumentException();
+		}
+	}
+}
@@ -13,4 +13,15 @@ public class Filter {
 		this.value = value;
 	}
 	
+	/**
+	 * Compiles this filter into an immutable predicate which can be applied to
+	 * many cards without repeating any of the per-filter work.
+	 * 
+	 * @return the compiled filter.
+	 * @throws NoSuchFieldException if the filter's field does not exist in {@code Card}.
+	 * @throws IllegalArgumentException if the filter is numeric but its field is not.
+	 */
+	public CompiledFilter compile() throws NoSuchFieldException {
+		return CompiledFilter.compile(this);
+	}
 }
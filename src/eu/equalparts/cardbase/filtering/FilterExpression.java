@@ -0,0 +1,96 @@
+package eu.equalparts.cardbase.filtering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A boolean combination of {@code Filter}s, such as "rarity equals rare and
+ * (cmc smaller than 4 or type contains instant)". Expressions are built with
+ * the static factory methods in this class, and are compiled into a single
+ * {@code CompiledFilter} so that a whole query can be applied in one pass.
+ * <br><br>
+ * When compiled, the operands of every "and" and "or" are reordered so that
+ * the cheapest tests, such as integer comparisons, run before the more
+ * expensive ones, such as regular expressions. The result is unaffected,
+ * as none of the tests have side effects.
+ *
+ * @author Eduardo Pedroni
+ *
+ */
+public abstract class FilterExpression {
+
+	private FilterExpression() {}
+
+	/**
+	 * @param filter a single filter.
+	 * @return an expression which matches the cards matched by the filter.
+	 */
+	public static FilterExpression of(Filter filter) {
+		return new FilterExpression() {
+			@Override
+			public CompiledFilter compile() throws NoSuchFieldException {
+				return filter.compile();
+			}
+		};
+	}
+
+	/**
+	 * @param operands the expressions which must all match.
+	 * @return an expression which matches the cards matched by all operands.
+	 */
+	public static FilterExpression and(FilterExpression... operands) {
+		List<FilterExpression> operandList = Arrays.asList(operands.clone());
+		return new FilterExpression() {
+			@Override
+			public CompiledFilter compile() throws NoSuchFieldException {
+				return CompiledFilter.and(compileAll(operandList));
+			}
+		};
+	}
+
+	/**
+	 * @param operands the expressions of which at least one must match.
+	 * @return an expression which matches the cards matched by any operand.
+	 */
+	public static FilterExpression or(FilterExpression... operands) {
+		List<FilterExpression> operandList = Arrays.asList(operands.clone());
+		return new FilterExpression() {
+			@Override
+			public CompiledFilter compile() throws NoSuchFieldException {
+				return CompiledFilter.or(compileAll(operandList));
+			}
+		};
+	}
+
+	/**
+	 * @param operand the expression to negate.
+	 * @return an expression which matches the cards not matched by the operand.
+	 */
+	public static FilterExpression not(FilterExpression operand) {
+		return new FilterExpression() {
+			@Override
+			public CompiledFilter compile() throws NoSuchFieldException {
+				return CompiledFilter.not(operand.compile());
+			}
+		};
+	}
+
+	/**
+	 * Compiles this expression. Filters which are part of the expression
+	 * are read at this point, later changes to them do not affect the result.
+	 *
+	 * @return the compiled expression.
+	 * @throws NoSuchFieldException if any filter in the expression refers to a field which does not exist in {@code Card}.
+	 * @throws IllegalArgumentException if any numeric filter in the expression refers to a non-numeric field.
+	 */
+	public abstract CompiledFilter compile() throws NoSuchFieldException;
+
+	private static List<CompiledFilter> compileAll(List<FilterExpression> expressions) throws NoSuchFieldException {
+		List<CompiledFilter> compiled = new ArrayList<>(expressions.size());
+		for (FilterExpression expression : expressions) {
+			compiled.add(expression.compile());
+		}
+		return compiled;
+	}
+}
@@ -5,14 +5,26 @@ import java.io.IOException;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 
 import eu.equalparts.cardbase.card.Card;
 import eu.equalparts.cardbase.cardfield.IntegerCardField;
 import eu.equalparts.cardbase.cardfield.StringCardField;
+import eu.equalparts.cardbase.utils.StringDictionary;
 
+/**
+ * Reads a {@code Card} straight off the parser's token stream, without
+ * building an intermediate tree for each card. Fields which are not
+ * part of {@code Card} are skipped, and fields which are missing or
+ * null in the JSON are set to null.
+ * <br><br>
+ * Values of fields annotated with {@code LowCardinality} are replaced with their
+ * instance in {@code StringDictionary.CARD_VALUES}, so that cards share them.
+ *
+ * @author Eduardo Pedroni
+ */
 public class CardDeserializer extends StdDeserializer<Card> {
 	
 	/**
@@ -31,28 +43,111 @@ public class CardDeserializer extends StdDeserializer<Card> {
 	@Override
 	public Card deserialize(JsonParser jp, DeserializationContext ctxt)
 			throws IOException, JsonProcessingException {
-		JsonNode node = jp.getCodec().readTree(jp);
+		String name = null, layout = null, manaCost = null, type = null, rarity = null, text = null, flavor = null,
+				artist = null, number = null, power = null, toughness = null, imageName = null, setCode = null;
+		Integer cmc = null, loyalty = null, multiverseid = null;
+		
+		JsonToken token = jp.getCurrentToken();
+		if (token == JsonToken.START_OBJECT) {
+			token = jp.nextToken();
+		}
+		
+		for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+			String fieldName = jp.getCurrentName();
+			jp.nextToken();
+			switch (fieldName) {
+			case "name": name = readString(jp); break;
+			case "layout": layout = readString(jp); break;
+			case "manaCost": manaCost = readString(jp); break;
+			case "cmc": cmc = readInteger(jp); break;
+			case "type": type = readString(jp); break;
+			case "rarity": rarity = readString(jp); break;
+			case "text": text = readString(jp); break;
+			case "flavor": flavor = readString(jp); break;
+			case "artist": artist = readString(jp); break;
+			case "number": number = readString(jp); break;
+			case "power": power = readString(jp); break;
+			case "toughness": toughness = readString(jp); break;
+			case "loyalty": loyalty = readInteger(jp); break;
+			case "multiverseid": multiverseid = readInteger(jp); break;
+			case "imageName": imageName = readString(jp); break;
+			case "setCode": setCode = readString(jp); break;
+			default: jp.skipChildren(); break;
+			}
+		}
+		
+		if (token != JsonToken.END_OBJECT) {
+			throw ctxt.wrongTokenException(jp, JsonToken.END_OBJECT, "Expected the end of a card object.");
+		}
+		
+		StringDictionary dictionary = StringDictionary.CARD_VALUES;
+		layout = dictionary.canonical(layout);
+		type = dictionary.canonical(type);
+		rarity = dictionary.canonical(rarity);
+		artist = dictionary.canonical(artist);
+		setCode = dictionary.canonical(setCode);
 		
 		Card newCard = new Card();
 		
-		newCard.name = new StringCardField("name", node.hasNonNull("name") ? node.get("name").asText() : null);
-		newCard.layout = new StringCardField("layout", node.hasNonNull("layout") ? node.get("layout").asText() : null);
-		newCard.manaCost = new StringCardField("manaCost", node.hasNonNull("manaCost") ? node.get("manaCost").asText() : null);
-		newCard.cmc = new IntegerCardField("cmc", node.hasNonNull("cmc") ? node.get("cmc").asInt() : null);
-		newCard.type = new StringCardField("type", node.hasNonNull("type") ? node.get("type").asText() : null);
-		newCard.rarity = new StringCardField("rarity", node.hasNonNull("rarity") ? node.get("rarity").asText() : null);
-		newCard.text = new StringCardField("text", node.hasNonNull("text") ? node.get("text").asText() : null);
-		newCard.flavor = new StringCardField("flavor", node.hasNonNull("flavor") ? node.get("flavor").asText() : null);
-		newCard.artist = new StringCardField("artist", node.hasNonNull("artist") ? node.get("artist").asText() : null);
-		newCard.number = new StringCardField("number", node.hasNonNull("number") ? node.get("number").asText() : null);
-		newCard.power = new StringCardField("power", node.hasNonNull("power") ? node.get("power").asText() : null);
-		newCard.toughness = new StringCardField("toughness", node.hasNonNull("toughness") ? node.get("toughness").asText() : null);
-		newCard.loyalty = new IntegerCardField("loyalty", node.hasNonNull("loyalty") ? node.get("loyalty").asInt() : null);
-		newCard.multiverseid = new IntegerCardField("multiverseid", node.hasNonNull("multiverseid") ? node.get("multiverseid").asInt() : null);
-		newCard.imageName = new StringCardField("imageName", node.hasNonNull("imageName") ? node.get("imageName").asText() : null);
-		newCard.setCode = new StringCardField("setCode", node.hasNonNull("setCode") ? node.get("setCode").asText() : null);
+		newCard.name = new StringCardField("name", name);
+		newCard.layout = new StringCardField("layout", layout);
+		newCard.manaCost = new StringCardField("manaCost", manaCost);
+		newCard.cmc = new IntegerCardField("cmc", cmc);
+		newCard.type = new StringCardField("type", type);
+		newCard.rarity = new StringCardField("rarity", rarity);
+		newCard.text = new StringCardField("text", text);
+		newCard.flavor = new StringCardField("flavor", flavor);
+		newCard.artist = new StringCardField("artist", artist);
+		newCard.number = new StringCardField("number", number);
+		newCard.power = new StringCardField("power", power);
+		newCard.toughness = new StringCardField("toughness", toughness);
+		newCard.loyalty = new IntegerCardField("loyalty", loyalty);
+		newCard.multiverseid = new IntegerCardField("multiverseid", multiverseid);
+		newCard.imageName = new StringCardField("imageName", imageName);
+		newCard.setCode = new StringCardField("setCode", setCode);
  
         return newCard;
 	}
 
+	/**
+	 * Reads the current value as text. Nested values are skipped and read as an
+	 * empty string, which is what the tree model would have produced.
+	 *
+	 * @param jp the parser, positioned on the value to read.
+	 * @return the value as text, or null if the value is null.
+	 * @throws IOException if a low-level I/O problem (unexpected end-of-input, network error) occurs.
+	 */
+	private static String readString(JsonParser jp) throws IOException {
+		switch (jp.getCurrentToken()) {
+		case VALUE_NULL:
+			return null;
+		case START_OBJECT:
+		case START_ARRAY:
+			jp.skipChildren();
+			return "";
+		default:
+			return jp.getText();
+		}
+	}
+
+	/**
+	 * Reads the current value as an integer. Values which cannot be coerced to
+	 * an integer are read as 0, which is what the tree model would have produced.
+	 *
+	 * @param jp the parser, positioned on the value to read.
+	 * @return the value as an integer, or null if the value is null.
+	 * @throws IOException if a low-level I/O problem (unexpected end-of-input, network error) occurs.
+	 */
+	private static Integer readInteger(JsonParser jp) throws IOException {
+		switch (jp.getCurrentToken()) {
+		case VALUE_NULL:
+			return null;
+		case START_OBJECT:
+		case START_ARRAY:
+			jp.skipChildren();
+			return 0;
+		default:
+			return jp.getValueAsInt();
+		}
+	}
 }
@@ -3,27 +3,38 @@ package eu.equalparts.cardbase.json;
 
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 
 import eu.equalparts.cardbase.card.Card;
 import eu.equalparts.cardbase.card.FullCardSet;
+import eu.equalparts.cardbase.utils.StringDictionary;
 
+/**
+ * Reads a {@code FullCardSet} in a single pass over the parser's token stream.
+ * Cards are deserialized one at a time straight into the set's number-indexed
+ * map, so no intermediate tree or list of the whole set is ever built.
+ *
+ * @author Eduardo Pedroni
+ */
 public class FullCardSetDeserializer extends StdDeserializer<FullCardSet> {
-	
+
 	/**
-	 * 
+	 *
 	 */
 	private static final long serialVersionUID = 1894617997342518472L;
 
+	/**
+	 * Used to read each individual card in the set.
+	 */
+	private final CardDeserializer cardDeserializer = new CardDeserializer();
+
 	protected FullCardSetDeserializer(Class<?> vc) {
 		super(vc);
 	}
@@ -35,57 +46,104 @@ public class FullCardSetDeserializer extends StdDeserializer<FullCardSet> {
 	@Override
 	public FullCardSet deserialize(JsonParser jp, DeserializationContext ctxt)
 			throws IOException, JsonProcessingException {
-		JsonNode jsonTree = jp.getCodec().readTree(jp);
-
 		FullCardSet fcs = new FullCardSet();
-		
+
+		JsonToken token = jp.getCurrentToken();
+		if (token == JsonToken.START_OBJECT) {
+			token = jp.nextToken();
+		}
+
+		for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+			String fieldName = jp.getCurrentName();
+			token = jp.nextToken();
+			switch (fieldName) {
+			case "name": fcs.name = readString(jp); break;
+			case "code": fcs.code = StringDictionary.CARD_VALUES.canonical(readString(jp)); break;
+			case "releaseDate": fcs.releaseDate = readString(jp); break;
+			case "border": fcs.border = readString(jp); break;
+			case "type": fcs.type = readString(jp); break;
+			case "block": fcs.block = readString(jp); break;
+			case "magicCardsInfoCode": fcs.magicCardsInfoCode = readString(jp); break;
+			case "cards":
+				if (token == JsonToken.START_ARRAY) {
+					fcs.cards = readCards(jp, ctxt, fcs.code);
+				} else {
+					jp.skipChildren();
+				}
+				break;
+			default: jp.skipChildren(); break;
+			}
+		}
+
 		/*
 		 * These fields are critical, if any of them is not present an exception is thrown.
 		 */
-		if (jsonTree.hasNonNull("name")) {
-			fcs.name = jsonTree.get("name").asText();
-		} else {
+		if (fcs.name == null) {
 			throw new JsonMappingException(jp, "Field \"name\" not found.");
 		}
-		
-		String setCode;
-		if (jsonTree.hasNonNull("code")) {
-			setCode = jsonTree.get("code").asText();
-			fcs.code = setCode;
-		} else {
+
+		if (fcs.code == null) {
 			throw new JsonMappingException(jp, "Field \"code\" not found.");
 		}
-			
-		if (jsonTree.hasNonNull("releaseDate")) {
-			fcs.releaseDate = jsonTree.get("releaseDate").asText();
-		} else {
+
+		if (fcs.releaseDate == null) {
 			throw new JsonMappingException(jp, "Field \"releaseDate\" not found.");
 		}
-		
-		if (jsonTree.hasNonNull("cards")) {
-			// attempt to read card list as a POJO using the standard mapper
-			List<Card> rawList = jsonTree.get("cards").traverse(JSON.mapper).readValueAs(new TypeReference<List<Card>>() {});
-			// generate the map
-			Map<String, Card> cardMap = new HashMap<String, Card>();
-			for (Card card : rawList) {
-				// add set code for convenience
-				card.setCode.set(setCode);
-				cardMap.put(card.number.get(), card);
-			}
-			fcs.cards = cardMap;
-		} else {
+
+		if (fcs.cards == null) {
 			throw new JsonMappingException(jp, "Field \"cards\" not found.");
 		}
-		
-		/*
-		 * These fields are optional and are set to null if not present.
-		 */
-		fcs.border = jsonTree.hasNonNull("border") ? jsonTree.get("border").asText() : null;
-		fcs.type = jsonTree.hasNonNull("type") ? jsonTree.get("type").asText() : null;
-		fcs.block = jsonTree.hasNonNull("block") ? jsonTree.get("block").asText() : null;
-		fcs.magicCardsInfoCode = jsonTree.hasNonNull("magicCardsInfoCode") ? jsonTree.get("magicCardsInfoCode").asText() : null;
-		
+
+		// if the set code came after the cards, it could not be stamped as they were read
+		for (Card card : fcs.cards.values()) {
+			if (card.setCode.get() == null) {
+				card.setCode.set(fcs.code);
+			}
+		}
+
 		return fcs;
 	}
 
+	/**
+	 * Reads the card array into a map indexed by card number.
+	 *
+	 * @param jp the parser, positioned on the start of the card array.
+	 * @param ctxt the current deserialization context.
+	 * @param setCode the code of the set being read, or null if it has not been read yet,
+	 * given to cards which do not have their own.
+	 * @return the map of cards, indexed by number.
+	 * @throws IOException if a low-level I/O problem (unexpected end-of-input, network error) occurs.
+	 */
+	private Map<String, Card> readCards(JsonParser jp, DeserializationContext ctxt, String setCode) throws IOException {
+		Map<String, Card> cardMap = new HashMap<String, Card>();
+		for (JsonToken token = jp.nextToken(); token != JsonToken.END_ARRAY; token = jp.nextToken()) {
+			if (token == JsonToken.START_OBJECT) {
+				Card card = cardDeserializer.deserialize(jp, ctxt);
+				// add set code for convenience, unless the card has its own
+				if (card.setCode.get() == null) {
+					card.setCode.set(setCode);
+				}
+				cardMap.put(card.number.get(), card);
+			} else {
+				throw ctxt.wrongTokenException(jp, JsonToken.START_OBJECT, "Expected a card object.");
+			}
+		}
+		return cardMap;
+	}
+
+	/**
+	 * Reads the current value as text, skipping nested values.
+	 *
+	 * @param jp the parser, positioned on the value to read.
+	 * @return the value as text, or null if the value is null or not a scalar.
+	 * @throws IOException if a low-level I/O problem (unexpected end-of-input, network error) occurs.
+	 */
+	private static String readString(JsonParser jp) throws IOException {
+		if (jp.getCurrentToken().isScalarValue()) {
+			return jp.getValueAsString();
+		} else {
+			jp.skipChildren();
+			return null;
+		}
+	}
 }
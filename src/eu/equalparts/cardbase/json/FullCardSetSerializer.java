@@ -0,0 +1,43 @@
+package eu.equalparts.cardbase.json;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.card.FullCardSet;
+
+/**
+ * Writes a {@code FullCardSet} with only the fields that {@code FullCardSetDeserializer}
+ * and {@code CardDeserializer} read back, in the same layout as the upstream set files.
+ * This makes for a much smaller file than the upstream one, which also contains
+ * rulings, translations and legalities for every card.
+ *
+ * @author Eduardo Pedroni
+ */
+public class FullCardSetSerializer extends JsonSerializer<FullCardSet> {
+	@Override
+	public void serialize(FullCardSet fullCardSet, JsonGenerator jGen, SerializerProvider serializerProvider) throws IOException {
+		jGen.writeStartObject();
+
+		jGen.writeStringField("name", fullCardSet.name);
+		jGen.writeStringField("code", fullCardSet.code);
+		jGen.writeStringField("magicCardsInfoCode", fullCardSet.magicCardsInfoCode);
+		jGen.writeStringField("releaseDate", fullCardSet.releaseDate);
+		jGen.writeStringField("border", fullCardSet.border);
+		jGen.writeStringField("type", fullCardSet.type);
+		jGen.writeStringField("block", fullCardSet.block);
+
+		jGen.writeArrayFieldStart("cards");
+		if (fullCardSet.cards != null) {
+			for (Card card : fullCardSet.cards.values()) {
+				serializerProvider.defaultSerializeValue(card, jGen);
+			}
+		}
+		jGen.writeEndArray();
+
+		jGen.writeEndObject();
+	}
+}
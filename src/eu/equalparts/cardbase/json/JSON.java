@@ -45,6 +45,7 @@ public final class JSON {
 		sm.addDeserializer(Card.class, new CardDeserializer());
 		sm.addSerializer(Card.class, new CardSerializer());
 		sm.addDeserializer(FullCardSet.class, new FullCardSetDeserializer());
+		sm.addSerializer(FullCardSet.class, new FullCardSetSerializer());
 		
 		objectMapper.registerModule(sm);
 		return objectMapper;
@@ -1,11 +1,27 @@
 package eu.equalparts.cardbase.sorting;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.function.ToIntFunction;
 
 import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.cardfield.CardFieldAccessor;
 import eu.equalparts.cardbase.comparator.CardComparator;
+import eu.equalparts.cardbase.comparator.SortCriterion;
+import eu.equalparts.cardbase.comparator.SortKeys;
 
 public abstract class CardSorting {
+	
+	/**
+	 * Lists with at least this many cards are sorted with {@code Arrays.parallelSort()}.
+	 * Smaller lists are sorted sequentially. Both sorts are stable, so the result is the
+	 * same either way.
+	 */
+	public static final int PARALLEL_THRESHOLD = 50000;
 
 	/**
 	 * @param cards
@@ -13,6 +29,170 @@ public abstract class CardSorting {
 	 * @throws NoSuchFieldException if the field provided is invalid.
 	 */
 	public static void sortByField(List<Card> cards, String fieldName) throws NoSuchFieldException {
-		cards.sort(new CardComparator(Card.class.getDeclaredField(fieldName)));
+		CardFieldAccessor field = CardFieldAccessor.forName(fieldName);
+		// fields with special comparison rules are converted into keys once per card, rather than once per comparison
+		if (field.isDirtyNumber()) {
+			sortByKey(cards, card -> SortKeys.dirtyNumber((String) field.get(card).get()));
+		} else if (field.isRarity()) {
+			sortByKey(cards, card -> SortKeys.rarity((String) field.get(card).get()));
+		} else {
+			sort(cards, new CardComparator(field));
+		}
+	}
+	
+	/**
+	 * Sorts the cards by several fields at once, such as "rarity, then cmc, then name".
+	 * The result is the same as sorting with a {@code CompositeCardComparator} built from
+	 * the same criteria, but the value of each field is converted into a key once for
+	 * each card, so each comparison only compares a handful of {@code long}s. Cards
+	 * which are equal in every field keep their original order.
+	 * 
+	 * @param cards the cards to sort.
+	 * @param criteria the fields by which to sort, in order of priority.
+	 * @throws NoSuchFieldException if any of the criteria refers to a field which {@code Card} does not have.
+	 */
+	public static void sortByFields(List<Card> cards, List<SortCriterion> criteria) throws NoSuchFieldException {
+		CardFieldAccessor[] fields = new CardFieldAccessor[criteria.size()];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = CardFieldAccessor.forName(criteria.get(i).fieldName);
+		}
+		
+		Card[] unsorted = cards.toArray(new Card[cards.size()]);
+		KeyedCard[] keyedCards = new KeyedCard[unsorted.length];
+		for (int i = 0; i < unsorted.length; i++) {
+			keyedCards[i] = new KeyedCard(unsorted[i], fields.length);
+		}
+		for (int f = 0; f < fields.length; f++) {
+			long[] column = keyColumn(unsorted, fields[f]);
+			boolean descending = criteria.get(f).direction == SortCriterion.Direction.DESCENDING;
+			for (int i = 0; i < keyedCards.length; i++) {
+				// keys never reach Long.MIN_VALUE, so negating them is safe
+				keyedCards[i].keys[f] = descending ? -column[i] : column[i];
+			}
+		}
+		
+		// both sorts are stable, so cards with equal keys keep their original order
+		if (keyedCards.length >= PARALLEL_THRESHOLD) {
+			Arrays.parallelSort(keyedCards, KeyedCard::compareKeys);
+		} else {
+			Arrays.sort(keyedCards, KeyedCard::compareKeys);
+		}
+		
+		ListIterator<Card> iterator = cards.listIterator();
+		for (KeyedCard keyedCard : keyedCards) {
+			iterator.next();
+			iterator.set(keyedCard.card);
+		}
+	}
+	
+	/**
+	 * Computes the key of the specified field for every card. Keys sort in the same
+	 * order as {@code CardComparator} sorts the values they came from, null values first.
+	 * String values are replaced by their rank among the distinct values of the field.
+	 * 
+	 * @param cards the cards for which to compute keys.
+	 * @param field the field from which to compute the keys.
+	 * @return the key of each card, in the same order as the cards.
+	 */
+	private static long[] keyColumn(Card[] cards, CardFieldAccessor field) {
+		long[] keys = new long[cards.length];
+		if (field.isDirtyNumber()) {
+			for (int i = 0; i < cards.length; i++) {
+				keys[i] = SortKeys.dirtyNumber((String) field.get(cards[i]).get());
+			}
+		} else if (field.isRarity()) {
+			for (int i = 0; i < cards.length; i++) {
+				keys[i] = SortKeys.rarity((String) field.get(cards[i]).get());
+			}
+		} else if (field.isInteger()) {
+			for (int i = 0; i < cards.length; i++) {
+				Integer value = (Integer) field.get(cards[i]).get();
+				keys[i] = value == null ? (long) Integer.MIN_VALUE - 1 : value;
+			}
+		} else {
+			Map<String, Integer> ranks = new HashMap<>();
+			for (Card card : cards) {
+				String value = (String) field.get(card).get();
+				if (value != null) {
+					ranks.put(value, 0);
+				}
+			}
+			String[] distinctValues = ranks.keySet().toArray(new String[ranks.size()]);
+			Arrays.sort(distinctValues);
+			for (int rank = 0; rank < distinctValues.length; rank++) {
+				ranks.put(distinctValues[rank], rank);
+			}
+			for (int i = 0; i < cards.length; i++) {
+				String value = (String) field.get(cards[i]).get();
+				keys[i] = value == null ? -1 : ranks.get(value);
+			}
+		}
+		return keys;
+	}
+	
+	/**
+	 * A card along with its precomputed sort keys, already negated for descending fields.
+	 */
+	private static final class KeyedCard {
+		final Card card;
+		final long[] keys;
+		
+		KeyedCard(Card card, int keyCount) {
+			this.card = card;
+			this.keys = new long[keyCount];
+		}
+		
+		static int compareKeys(KeyedCard o1, KeyedCard o2) {
+			for (int i = 0; i < o1.keys.length; i++) {
+				if (o1.keys[i] != o2.keys[i]) {
+					return o1.keys[i] < o2.keys[i] ? -1 : 1;
+				}
+			}
+			return 0;
+		}
+	}
+	
+	/**
+	 * Sorts the cards by an integer key, computed once for each card. The key and the
+	 * original position of each card are packed into a single {@code long}, key first,
+	 * so that a plain primitive sort orders cards by key and then by original position,
+	 * which is exactly what a stable sort would do.
+	 * 
+	 * @param cards the cards to sort.
+	 * @param key the function which computes each card's key.
+	 */
+	private static void sortByKey(List<Card> cards, ToIntFunction<Card> key) {
+		Card[] unsorted = cards.toArray(new Card[cards.size()]);
+		long[] packedKeys = new long[unsorted.length];
+		for (int i = 0; i < unsorted.length; i++) {
+			packedKeys[i] = ((long) key.applyAsInt(unsorted[i]) << 32) | i;
+		}
+		
+		if (packedKeys.length >= PARALLEL_THRESHOLD) {
+			Arrays.parallelSort(packedKeys);
+		} else {
+			Arrays.sort(packedKeys);
+		}
+		
+		ListIterator<Card> iterator = cards.listIterator();
+		for (long packedKey : packedKeys) {
+			iterator.next();
+			// the lower 32 bits hold the original position
+			iterator.set(unsorted[(int) packedKey]);
+		}
+	}
+	
+	private static void sort(List<Card> cards, Comparator<Card> comparator) {
+		if (cards.size() >= PARALLEL_THRESHOLD) {
+			Card[] sorted = cards.toArray(new Card[cards.size()]);
+			Arrays.parallelSort(sorted, comparator);
+			ListIterator<Card> iterator = cards.listIterator();
+			for (Card card : sorted) {
+				iterator.next();
+				iterator.set(card);
+			}
+		} else {
+			cards.sort(comparator);
+		}
 	}
 }
@@ -0,0 +1,158 @@
+package eu.equalparts.cardbase.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+import com.fasterxml.jackson.databind.JavaType;
+
+import eu.equalparts.cardbase.json.JSON;
+
+/**
+ * Keeps local copies of the files fetched by {@code MTGUniverse}, along with the
+ * validators needed to check whether the upstream files have changed since.
+ * <br><br>
+ * Files are not stored as they were downloaded, but as the objects parsed from them
+ * written back out, which leaves out everything the parser ignores and so makes
+ * for much smaller files which are much faster to read.
+ * <br><br>
+ * Every file is written to a temporary file first and then moved into place, so
+ * an interrupted write never leaves a half-written file behind. The validators are
+ * written after the data, and a file is only read if its validators are present.
+ *
+ * @author Eduardo Pedroni
+ */
+final class DiskSetCache {
+
+	/**
+	 * The {@code ETag} header sent by the server along with the file, if any.
+	 */
+	static final String ETAG = "etag";
+	/**
+	 * The {@code Last-Modified} header sent by the server along with the file, if any.
+	 */
+	static final String LAST_MODIFIED = "lastModified";
+	/**
+	 * A hash of the file as it was downloaded, used when the server sends no other validators.
+	 */
+	static final String CONTENT_HASH = "sha256";
+	/**
+	 * When the file was last found to match the upstream file, in milliseconds since the epoch.
+	 */
+	static final String CHECKED = "checked";
+
+	private static final String VALIDATORS_SUFFIX = ".validators";
+
+	/**
+	 * The directory in which the cached files are kept.
+	 */
+	private final File directory;
+
+	/**
+	 * @param directory the directory in which to keep cached files, created when the first file is written.
+	 */
+	DiskSetCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @param fileName the name of the upstream file.
+	 * @return the validators of the cached copy of the file, or null if there is no usable cached copy.
+	 */
+	Properties readValidators(String fileName) {
+		File validatorsFile = new File(directory, fileName + VALIDATORS_SUFFIX);
+		if (!validatorsFile.isFile() || !new File(directory, fileName).isFile()) {
+			return null;
+		}
+
+		Properties validators = new Properties();
+		try (InputStream in = new FileInputStream(validatorsFile)) {
+			validators.load(in);
+			return validators;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param fileName the name of the upstream file.
+	 * @param type the type of object stored in the file.
+	 * @return the object read from the cached copy of the file.
+	 * @throws IOException if the cached copy is missing or cannot be read.
+	 */
+	<T> T read(String fileName, JavaType type) throws IOException {
+		return JSON.mapper.readValue(new File(directory, fileName), type);
+	}
+
+	/**
+	 * Stores the object parsed from an upstream file, replacing any previous copy.
+	 *
+	 * @param fileName the name of the upstream file.
+	 * @param value the object parsed from the file.
+	 * @param validators the validators sent along with the file.
+	 * @throws IOException if the cache directory cannot be created or written to.
+	 */
+	void write(String fileName, Object value, Properties validators) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create cache directory " + directory + ".");
+		}
+
+		File dataTemp = File.createTempFile(fileName, ".tmp", directory);
+		try {
+			JSON.mapper.writeValue(dataTemp, value);
+			moveIntoPlace(dataTemp, new File(directory, fileName));
+		} finally {
+			dataTemp.delete();
+		}
+
+		writeValidators(fileName, validators);
+	}
+
+	/**
+	 * Replaces the validators of a cached file, leaving the file as it is.
+	 *
+	 * @param fileName the name of the upstream file.
+	 * @param validators the new validators of the file.
+	 * @throws IOException if the cache directory cannot be written to.
+	 */
+	void writeValidators(String fileName, Properties validators) throws IOException {
+		File validatorsTemp = File.createTempFile(fileName, ".tmp", directory);
+		try {
+			try (OutputStream out = new FileOutputStream(validatorsTemp)) {
+				validators.store(out, null);
+			}
+			moveIntoPlace(validatorsTemp, new File(directory, fileName + VALIDATORS_SUFFIX));
+		} finally {
+			validatorsTemp.delete();
+		}
+	}
+
+	/**
+	 * @param content the content to hash.
+	 * @return the SHA-256 hash of the content, in hexadecimal.
+	 */
+	static String hash(byte[] content) {
+		try {
+			StringBuilder hex = new StringBuilder();
+			for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void moveIntoPlace(File source, File target) throws IOException {
+		Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,143 @@
+package eu.equalparts.cardbase.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import eu.equalparts.cardbase.card.FullCardSet;
+
+/**
+ * A least-recently-used cache of {@code FullCardSet}s, bounded by the total number
+ * of cards in the cached sets rather than the number of sets, since sets range
+ * from a handful of cards to several hundred.
+ * <br><br>
+ * When adding a set takes the total over the limit, the least recently used sets are
+ * evicted until it no longer does. A set which is over the limit on its own is still
+ * cached, but evicts every other set.
+ * <br><br>
+ * The cache counts its hits, misses and evictions, which is useful to tune the limit.
+ * All methods are synchronized.
+ * 
+ * @author Eduardo Pedroni
+ */
+public final class FullCardSetCache {
+
+	/**
+	 * The default limit, enough for every set in several blocks.
+	 */
+	public static final int DEFAULT_MAX_CARDS = 20000;
+
+	/**
+	 * The cached sets, ordered from least to most recently used.
+	 */
+	private final LinkedHashMap<String, FullCardSet> sets = new LinkedHashMap<>(16, 0.75f, true);
+	/**
+	 * The maximum total number of cards in the cached sets.
+	 */
+	private final int maxCards;
+	/**
+	 * The current total number of cards in the cached sets.
+	 */
+	private int cards = 0;
+	private long hits = 0, misses = 0, evictions = 0;
+
+	/**
+	 * @param maxCards the maximum total number of cards in the cached sets.
+	 */
+	public FullCardSetCache(int maxCards) {
+		if (maxCards < 0) {
+			throw new IllegalArgumentException("Cache limit cannot be negative.");
+		}
+		this.maxCards = maxCards;
+	}
+
+	/**
+	 * @param setCode the code of the set to return.
+	 * @return the cached set, or null if the set is not cached.
+	 */
+	public synchronized FullCardSet get(String setCode) {
+		FullCardSet set = sets.get(setCode);
+		if (set != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return set;
+	}
+
+	/**
+	 * Looks a set up without counting a hit or a miss, for when the caller has already counted one.
+	 * 
+	 * @param setCode the code of the set to return.
+	 * @return the cached set, or null if the set is not cached.
+	 */
+	synchronized FullCardSet peek(String setCode) {
+		return sets.get(setCode);
+	}
+
+	/**
+	 * Caches a set, replacing any set previously cached under the same code
+	 * and evicting the least recently used sets if necessary.
+	 * 
+	 * @param setCode the code of the set.
+	 * @param set the set to cache.
+	 */
+	public synchronized void put(String setCode, FullCardSet set) {
+		FullCardSet previous = sets.put(setCode, set);
+		if (previous != null) {
+			cards -= weigh(previous);
+		}
+		cards += weigh(set);
+
+		Iterator<Map.Entry<String, FullCardSet>> leastRecentlyUsed = sets.entrySet().iterator();
+		while (cards > maxCards && sets.size() > 1) {
+			Map.Entry<String, FullCardSet> eldest = leastRecentlyUsed.next();
+			cards -= weigh(eldest.getValue());
+			leastRecentlyUsed.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * @return the number of sets in the cache.
+	 */
+	public synchronized int size() {
+		return sets.size();
+	}
+
+	/**
+	 * @return the total number of cards in the cached sets.
+	 */
+	public synchronized int getCardCount() {
+		return cards;
+	}
+
+	/**
+	 * @return the number of calls to {@code get()} which found the set in the cache.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of calls to {@code get()} which did not find the set in the cache.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of sets evicted to stay within the limit.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @param set a set.
+	 * @return the weight of the set, which is its number of cards.
+	 */
+	private static int weigh(FullCardSet set) {
+		return set.cards == null ? 0 : set.cards.size();
+	}
+}
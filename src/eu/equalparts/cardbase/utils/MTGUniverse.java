@@ -1,15 +1,34 @@
 package eu.equalparts.cardbase.utils;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonMappingException;
 
 import eu.equalparts.cardbase.card.Card;
@@ -25,6 +44,20 @@ import eu.equalparts.cardbase.json.JSON;
  * Conversely, {@code Cardbase}'s methods are used solely to
  * acquire information regarding the loaded cardbase, which will
  * most likely contain only a subset of the MTG universe of cards.
+ * <br><br>
+ * If a cache directory is provided, fetched files are also kept on disk,
+ * and later fetches of the same file only download it again if the server
+ * reports that it has changed. If the server cannot be reached at all,
+ * cached files are used as they are. Cached files which were checked against the
+ * server less than a maximum age ago are used without asking the server at all.
+ * <br><br>
+ * Instances are safe to share between threads. Each set is fetched at most
+ * once at a time: if several threads ask for the same set while it is being
+ * fetched, they all wait for and share the result of that one fetch.
+ * <br><br>
+ * If an {@code OfflineCardDatabase} is provided, single cards of the sets it contains
+ * are read straight from it, and whole sets and the set list are read from it when
+ * they cannot be fetched.
  * 
  * @author Eduardo Pedroni
  */
@@ -33,7 +66,7 @@ public final class MTGUniverse {
 	/**
 	 * The base URL from where the information is fetched.
 	 */
-	private String BASE_DATA_URL;
+	private final String BASE_DATA_URL;
 	/**
 	 * If the upstream set code list can't be loaded, this local copy is loaded instead.
 	 */
@@ -41,14 +74,88 @@ public final class MTGUniverse {
 	/**
 	 * A cache of CardSets to avoid querying the server many times for the same information.
 	 */
-	private List<CardSetInformation> cardSets;
+	private volatile List<CardSetInformation> cardSets;
+	/**
+	 * The sets in {@code cardSets}, keyed by upper case set code, built along with it
+	 * and assigned before it, so that it is never null once {@code cardSets} is not.
+	 */
+	private volatile Map<String, CardSetInformation> cardSetIndex;
 	/**
 	 * A cache of {@code FullCardSets} to avoid querying the server many times for the same information.
+	 * Evicted sets are simply fetched again, from the disk cache if there is one.
+	 */
+	private final FullCardSetCache cardSetCache;
+	/**
+	 * Local copies of fetched files, null if files are not to be kept on disk.
+	 */
+	private final DiskSetCache diskCache;
+	/**
+	 * The fetches currently in progress, keyed by set code. Threads which need a set
+	 * that is already being fetched wait for the fetch in progress instead of starting another.
 	 */
-	private HashMap<String, FullCardSet> cardSetCache = new HashMap<String, FullCardSet>();
+	private final ConcurrentHashMap<String, CompletableFuture<FullCardSet>> fetchesInProgress = new ConcurrentHashMap<>();
+	/**
+	 * A local database of cards to use instead of fetching, null if there is none.
+	 */
+	private final OfflineCardDatabase offlineDatabase;
+	/**
+	 * How long a cached file is used without asking the server whether it has changed, in milliseconds.
+	 */
+	private final long maxCacheAgeMillis;
+	
+	/**
+	 * A maximum cache age suitable for interactive use, as upstream files change a few times a month at most.
+	 */
+	public static final long DEFAULT_MAX_CACHE_AGE_MILLIS = TimeUnit.HOURS.toMillis(24);
+	
+	private static final JavaType FULL_CARD_SET_TYPE = JSON.mapper.getTypeFactory().constructType(FullCardSet.class);
+	private static final JavaType SET_LIST_TYPE = JSON.mapper.getTypeFactory().constructType(new TypeReference<ArrayList<CardSetInformation>>() {});
 	
 	public MTGUniverse(String dataLocation) {
+		this(dataLocation, null);
+	}
+	
+	/**
+	 * @param dataLocation the base URL from where the information is fetched.
+	 * @param cacheDirectory the directory in which to keep fetched files, or null to keep them in memory only.
+	 */
+	public MTGUniverse(String dataLocation, File cacheDirectory) {
+		this(dataLocation, cacheDirectory, FullCardSetCache.DEFAULT_MAX_CARDS);
+	}
+	
+	/**
+	 * @param dataLocation the base URL from where the information is fetched.
+	 * @param cacheDirectory the directory in which to keep fetched files, or null to keep them in memory only.
+	 * @param maxCachedCards the maximum total number of cards in the sets kept in memory.
+	 */
+	public MTGUniverse(String dataLocation, File cacheDirectory, int maxCachedCards) {
+		this(dataLocation, cacheDirectory, maxCachedCards, null);
+	}
+	
+	/**
+	 * @param dataLocation the base URL from where the information is fetched.
+	 * @param cacheDirectory the directory in which to keep fetched files, or null to keep them in memory only.
+	 * @param maxCachedCards the maximum total number of cards in the sets kept in memory.
+	 * @param offlineDatabase a local database of cards to use instead of fetching, or null.
+	 */
+	public MTGUniverse(String dataLocation, File cacheDirectory, int maxCachedCards, OfflineCardDatabase offlineDatabase) {
+		this(dataLocation, cacheDirectory, maxCachedCards, offlineDatabase, 0);
+	}
+	
+	/**
+	 * @param dataLocation the base URL from where the information is fetched.
+	 * @param cacheDirectory the directory in which to keep fetched files, or null to keep them in memory only.
+	 * @param maxCachedCards the maximum total number of cards in the sets kept in memory.
+	 * @param offlineDatabase a local database of cards to use instead of fetching, or null.
+	 * @param maxCacheAgeMillis how long a cached file is used without asking the server whether it
+	 * has changed, 0 to ask every time.
+	 */
+	public MTGUniverse(String dataLocation, File cacheDirectory, int maxCachedCards, OfflineCardDatabase offlineDatabase, long maxCacheAgeMillis) {
 		this.BASE_DATA_URL = dataLocation;
+		this.maxCacheAgeMillis = maxCacheAgeMillis;
+		this.diskCache = cacheDirectory == null ? null : new DiskSetCache(cacheDirectory);
+		this.cardSetCache = new FullCardSetCache(maxCachedCards);
+		this.offlineDatabase = offlineDatabase;
 	}
 	
 	/**
@@ -65,6 +172,14 @@ public final class MTGUniverse {
 	 * @throws IOException if a low-level I/O problem (unexpected end-of-input, network error) occurs.
 	 */
 	public Card getCard(String setCode, String number) throws JsonParseException, JsonMappingException, IOException {
+		if (offlineDatabase != null) {
+			String validCode = validateSetCode(setCode);
+			// a set which is already in memory is as fast as the offline database, and may be more recent
+			if (validCode != null && cardSetCache.peek(validCode) == null && offlineDatabase.hasSet(validCode)) {
+				return offlineDatabase.getCard(validCode, number);
+			}
+		}
+		
 		Card card = null;
 		FullCardSet fullCardSet = getFullCardSet(setCode);
 		
@@ -94,42 +209,251 @@ public final class MTGUniverse {
 		String validCode = validateSetCode(setCode);
 		if (validCode != null) {
 			// if the set is cached, no need to fetch
-			if (cardSetCache.containsKey(validCode)) {
-				requestedSet = cardSetCache.get(validCode);
-			} 
-			// not cached; fetch and cache
-			else {			
-				requestedSet = JSON.mapper.readValue(getInputStream(BASE_DATA_URL + validCode + ".json"), FullCardSet.class);
-				cardSetCache.put(validCode, requestedSet);
+			requestedSet = cardSetCache.get(validCode);
+			// not cached; fetch and cache, unless another thread is already doing so
+			if (requestedSet == null) {
+				CompletableFuture<FullCardSet> fetch = new CompletableFuture<>();
+				CompletableFuture<FullCardSet> fetchInProgress = fetchesInProgress.putIfAbsent(validCode, fetch);
+				if (fetchInProgress != null) {
+					requestedSet = await(fetchInProgress);
+				} else {
+					requestedSet = fetchAndCache(validCode, fetch);
+				}
 			}
 		}
 		return requestedSet;
 	}
 	
+	/**
+	 * Fetches a set, caches it and completes the future with it, which must already
+	 * be registered as the fetch in progress for the set.
+	 * 
+	 * @param validCode the code of the set to fetch.
+	 * @param fetch the future through which other threads wait for the set.
+	 * @return the fetched set.
+	 * @throws IOException if the set could not be fetched, in which case the future completes with the same exception.
+	 */
+	private FullCardSet fetchAndCache(String validCode, CompletableFuture<FullCardSet> fetch) throws IOException {
+		try {
+			// another thread may have finished fetching the set after it was looked up, but before this fetch was registered
+			FullCardSet fetchedSet = cardSetCache.peek(validCode);
+			if (fetchedSet == null) {
+				fetchedSet = fetchOrReadOffline(validCode);
+				cardSetCache.put(validCode, fetchedSet);
+			}
+			fetch.complete(fetchedSet);
+			return fetchedSet;
+		} catch (IOException | RuntimeException | Error e) {
+			fetch.completeExceptionally(e);
+			throw e;
+		} finally {
+			// the set is cached before the fetch is deregistered, so no thread can miss both
+			fetchesInProgress.remove(validCode, fetch);
+		}
+	}
+	
+	/**
+	 * Fetches a set, reading it from the offline database instead if it cannot be fetched.
+	 * 
+	 * @param validCode the code of the set to fetch.
+	 * @return the set.
+	 * @throws IOException if the set could not be fetched and is not in the offline database.
+	 */
+	private FullCardSet fetchOrReadOffline(String validCode) throws IOException {
+		try {
+			return fetch(validCode + ".json", FULL_CARD_SET_TYPE);
+		} catch (IOException e) {
+			FullCardSet offlineSet = offlineDatabase != null ? offlineDatabase.getFullCardSet(validCode) : null;
+			if (offlineSet == null) {
+				throw e;
+			}
+			return offlineSet;
+		}
+	}
+	
+	/**
+	 * Waits for a fetch started by another thread.
+	 * 
+	 * @param fetch the fetch in progress.
+	 * @return the fetched set.
+	 * @throws IOException if the fetch failed, or the wait was interrupted.
+	 */
+	private static FullCardSet await(CompletableFuture<FullCardSet> fetch) throws IOException {
+		try {
+			return fetch.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for set to be fetched.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new IOException(cause);
+			}
+		}
+	}
+	
+	/**
+	 * Fetches several sets in parallel, so that they are ready in memory when they are needed.
+	 * The number of concurrent fetches is twice the number of processors, as fetching
+	 * spends much of its time waiting for the network.
+	 * 
+	 * @param setCodes the codes of the sets to fetch, duplicates are only fetched once.
+	 * @return the outcome of fetching each distinct set, in the order in which they were requested.
+	 */
+	public List<PrefetchTiming> prefetch(Collection<String> setCodes) {
+		return prefetch(setCodes, Runtime.getRuntime().availableProcessors() * 2);
+	}
+	
+	/**
+	 * Fetches several sets in parallel, so that they are ready in memory when they are needed.
+	 * Each set is parsed as soon as it is downloaded, while other sets are still downloading.
+	 * Failures are reported in the result rather than thrown, so one bad set does not stop the others.
+	 * <br>
+	 * If the calling thread is interrupted, this stops waiting and returns straight away with the interrupt
+	 * flag set. Sets which had not been prefetched by then are reported as failed with an {@code InterruptedIOException}.
+	 * <br>
+	 * Prefetched sets still count towards the memory cache limit, so prefetching more cards
+	 * than the limit evicts the sets which were fetched first.
+	 * 
+	 * @param setCodes the codes of the sets to fetch, duplicates are only fetched once.
+	 * @param parallelism the maximum number of sets to fetch at the same time.
+	 * @return the outcome of fetching each distinct set, in the order in which they were requested.
+	 */
+	public List<PrefetchTiming> prefetch(Collection<String> setCodes, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1.");
+		}
+		
+		Set<String> distinctCodes = new LinkedHashSet<>(setCodes);
+		// load the set list up front, so it is not counted in the timing of whichever set happens to go first
+		getCardSetList();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, distinctCodes.size())), runnable -> {
+			Thread thread = new Thread(runnable, "set-prefetch");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long start = System.nanoTime();
+		try {
+			List<Future<PrefetchTiming>> timings = new ArrayList<>(distinctCodes.size());
+			for (String setCode : distinctCodes) {
+				timings.add(executor.submit(() -> prefetch(setCode)));
+			}
+			
+			List<PrefetchTiming> results = new ArrayList<>(timings.size());
+			boolean interrupted = false;
+			Iterator<String> setCode = distinctCodes.iterator();
+			for (Future<PrefetchTiming> timing : timings) {
+				String code = setCode.next();
+				try {
+					// once interrupted, only the sets which are already done are waited for
+					if (!interrupted || timing.isDone()) {
+						results.add(timing.get());
+						continue;
+					}
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+				results.add(new PrefetchTiming(code, false, System.nanoTime() - start,
+						new InterruptedIOException("Interrupted before the set was prefetched.")));
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			return results;
+		} catch (ExecutionException e) {
+			// prefetch(String) catches everything but errors
+			throw (Error) e.getCause();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Fetches a single set, timing how long it takes.
+	 * 
+	 * @param setCode the code of the set to fetch.
+	 * @return the outcome of the fetch.
+	 */
+	private PrefetchTiming prefetch(String setCode) {
+		long start = System.nanoTime();
+		try {
+			String validCode = validateSetCode(setCode);
+			boolean fetched = validCode != null && cardSetCache.peek(validCode) == null && getFullCardSet(validCode) != null;
+			return new PrefetchTiming(setCode, fetched, System.nanoTime() - start, null);
+		} catch (IOException | RuntimeException e) {
+			return new PrefetchTiming(setCode, false, System.nanoTime() - start, e);
+		}
+	}
+	
+	/**
+	 * @return the in-memory cache of full card sets, mostly useful for its statistics.
+	 */
+	public FullCardSetCache getCardSetCache() {
+		return cardSetCache;
+	}
+	
 	/**
 	 * @return a list of all card sets in the form of {@code CardSet} objects.
 	 */
 	public List<CardSetInformation> getCardSetList() {
+		List<CardSetInformation> loadedSets = cardSets;
+		if (loadedSets == null) {
+			loadedSets = loadCardSetList();
+		}
+		return loadedSets;
+	}
+	
+	/**
+	 * Fetches the set list and builds its index, unless another thread has already done so.
+	 * 
+	 * @return the set list.
+	 */
+	private synchronized List<CardSetInformation> loadCardSetList() {
 		// if the list isn't cached, fetch and cache it
 		if (cardSets == null) {
+			List<CardSetInformation> loadedSets = null;
 			try {
-				cardSets = JSON.mapper.readValue(getInputStream(BASE_DATA_URL + "SetList.json"), new TypeReference<ArrayList<CardSetInformation>>() {});
+				loadedSets = fetch("SetList.json", SET_LIST_TYPE);
 			} catch (Exception e) {
+				List<CardSetInformation> offlineSets = offlineDatabase != null ? offlineDatabase.getCardSetList() : null;
+				if (offlineSets != null && !offlineSets.isEmpty()) {
+					loadedSets = offlineSets;
+				}
+			}
+			if (loadedSets == null) {
 				System.out.println("Error: could not fetch or parse set code list from upstream, using fallback json...");
-//				e.printStackTrace();
 				
 				try {
-					cardSets = JSON.mapper.readValue(MTGUniverse.class.getResourceAsStream(FALLBACK_LIST_PATH), new TypeReference<ArrayList<CardSetInformation>>() {});
+					loadedSets = JSON.mapper.readValue(MTGUniverse.class.getResourceAsStream(FALLBACK_LIST_PATH), new TypeReference<ArrayList<CardSetInformation>>() {});
 				} catch (Exception f) {
 					System.out.println("Error: could not parse fallback set code list, aborting...");
 //					f.printStackTrace();
 					System.exit(1);
 				}
 			}
+			cardSetIndex = indexByCode(loadedSets);
+			cardSets = loadedSets;
 		}
 		return cardSets;
 	}
 	
+	/**
+	 * Returns the information of the specified set. Set codes are matched regardless of case.
+	 * 
+	 * @param setCode the code of the set.
+	 * @return the set's information, or null if no set matches the given code.
+	 */
+	public CardSetInformation getCardSetInformation(String setCode) {
+		getCardSetList();
+		return setCode == null ? null : cardSetIndex.get(setCode.toUpperCase(Locale.ROOT));
+	}
+	
 	/**
 	 * This method converts different set code spellings
 	 * into the format parsed from the set code list.
@@ -143,26 +467,209 @@ public final class MTGUniverse {
 	 * @return the valid form of the set code if any, null otherwise.
 	 */
 	public String validateSetCode(String setCode) {
-		for (CardSetInformation cardSet : getCardSetList()) {
-			if (cardSet.getCode().equalsIgnoreCase(setCode)) {
-				return cardSet.getCode();
+		CardSetInformation cardSet = getCardSetInformation(setCode);
+		return cardSet != null ? cardSet.getCode() : null;
+	}
+	
+	/**
+	 * @param cardSets a list of sets.
+	 * @return the sets keyed by upper case set code. If several sets have the
+	 * same code regardless of case, the first one in the list is kept.
+	 */
+	private static Map<String, CardSetInformation> indexByCode(List<CardSetInformation> cardSets) {
+		Map<String, CardSetInformation> index = new HashMap<>(cardSets.size() * 2);
+		for (CardSetInformation cardSet : cardSets) {
+			index.putIfAbsent(cardSet.getCode().toUpperCase(Locale.ROOT), cardSet);
+		}
+		return index;
+	}
+	
+	/**
+	 * Fetches and parses the specified upstream file, going through the disk cache if there is one.
+	 * 
+	 * @param fileName the name of the file, relative to the base URL.
+	 * @param type the type of object to parse from the file.
+	 * @return the parsed object.
+	 * @throws IOException if the file could not be fetched or parsed, and there is no cached copy.
+	 */
+	private <T> T fetch(String fileName, JavaType type) throws IOException {
+		if (diskCache == null) {
+			URLConnection connection = openConnection(BASE_DATA_URL + fileName, null);
+			try {
+				return JSON.mapper.readValue(connection.getInputStream(), type);
+			} catch (IOException e) {
+				discard(connection);
+				throw e;
+			}
+		}
+		
+		Properties validators = diskCache.readValidators(fileName);
+		if (validators != null && isFresh(validators)) {
+			T cached = readCached(fileName, type);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		
+		URLConnection connection = null;
+		byte[] content;
+		try {
+			connection = openConnection(BASE_DATA_URL + fileName, validators);
+			if (isNotModified(connection)) {
+				discard(connection);
+				T cached = readCached(fileName, type);
+				if (cached != null) {
+					refresh(fileName, validators);
+					return cached;
+				}
+				// the cached copy is unreadable after all, download the file unconditionally
+				connection = openConnection(BASE_DATA_URL + fileName, null);
+			}
+			content = readFully(connection.getInputStream());
+		} catch (IOException e) {
+			if (connection != null) {
+				discard(connection);
+			}
+			T cached = validators != null ? readCached(fileName, type) : null;
+			if (cached != null) {
+				return cached;
 			}
+			throw e;
+		}
+		
+		// servers without ETag or Last-Modified send the whole file every time, but there is no need to parse it again
+		String hash = DiskSetCache.hash(content);
+		if (validators != null && hash.equals(validators.getProperty(DiskSetCache.CONTENT_HASH))) {
+			T cached = readCached(fileName, type);
+			if (cached != null) {
+				refresh(fileName, validators);
+				return cached;
+			}
+		}
+		
+		T parsed = JSON.mapper.readValue(content, type);
+		
+		Properties newValidators = new Properties();
+		newValidators.setProperty(DiskSetCache.CONTENT_HASH, hash);
+		newValidators.setProperty(DiskSetCache.CHECKED, Long.toString(System.currentTimeMillis()));
+		if (connection.getHeaderField("ETag") != null) {
+			newValidators.setProperty(DiskSetCache.ETAG, connection.getHeaderField("ETag"));
+		}
+		if (connection.getHeaderField("Last-Modified") != null) {
+			newValidators.setProperty(DiskSetCache.LAST_MODIFIED, connection.getHeaderField("Last-Modified"));
+		}
+		try {
+			diskCache.write(fileName, parsed, newValidators);
+		} catch (IOException e) {
+			// the file was fetched successfully, failing to cache it only means fetching it again next time
+		}
+		return parsed;
+	}
+	
+	/**
+	 * @return true if the cached copy of the file was checked against the server less than the maximum cache age ago.
+	 */
+	private boolean isFresh(Properties validators) {
+		long checked;
+		try {
+			checked = Long.parseLong(validators.getProperty(DiskSetCache.CHECKED, "0"));
+		} catch (NumberFormatException e) {
+			return false;
+		}
+		long age = System.currentTimeMillis() - checked;
+		// a cache checked in the future was written with a wrong clock, so it is not trusted
+		return age >= 0 && age < maxCacheAgeMillis;
+	}
+	
+	/**
+	 * Records that the cached copy of the file was found to match the server just now.
+	 */
+	private void refresh(String fileName, Properties validators) {
+		if (maxCacheAgeMillis > 0) {
+			validators.setProperty(DiskSetCache.CHECKED, Long.toString(System.currentTimeMillis()));
+			try {
+				diskCache.writeValidators(fileName, validators);
+			} catch (IOException e) {
+				// the cached copy is only checked again sooner than it needs to be
+			}
+		}
+	}
+	
+	/**
+	 * @return the object read from the cached copy of the file, or null if it could not be read.
+	 */
+	private <T> T readCached(String fileName, JavaType type) {
+		try {
+			return diskCache.read(fileName, type);
+		} catch (IOException e) {
+			return null;
 		}
-		return null;
 	}
 	
 	/**
-	 * Generates and returns a proper input stream with the correct user agent to ensure
-	 * MTG JSON doesn't return any annoying 403s.
+	 * Opens a connection with the correct user agent, which is conditional if validators are provided.
 	 * 
-	 * @param URL
-	 * @return
-	 * @throws IOException 
+	 * @param url the URL to connect to.
+	 * @param validators the validators of a cached copy of the file, or null.
+	 * @return the open connection.
+	 * @throws IOException if the connection could not be opened.
 	 */
-	private InputStream getInputStream(String url) throws IOException {
+	private URLConnection openConnection(String url, Properties validators) throws IOException {
 		URLConnection connection = new URL(url).openConnection();
 		connection.setRequestProperty("User-Agent", "Mozilla/5.0 (Windows NT 6.1; WOW64) AppleWebKit/537.11 (KHTML, like Gecko) Chrome/23.0.1271.95 Safari/537.11");
+		if (validators != null) {
+			if (validators.getProperty(DiskSetCache.ETAG) != null) {
+				connection.setRequestProperty("If-None-Match", validators.getProperty(DiskSetCache.ETAG));
+			}
+			if (validators.getProperty(DiskSetCache.LAST_MODIFIED) != null) {
+				connection.setRequestProperty("If-Modified-Since", validators.getProperty(DiskSetCache.LAST_MODIFIED));
+			}
+		}
 		connection.connect();
-		return connection.getInputStream();
+		return connection;
+	}
+	
+	private static boolean isNotModified(URLConnection connection) throws IOException {
+		return connection instanceof HttpURLConnection
+				&& ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED;
+	}
+	
+	/**
+	 * Lets go of a connection whose content is not going to be read, closing its stream so that
+	 * the underlying socket can be reused, or disconnecting it if the stream cannot be closed.
+	 * 
+	 * @param connection the connection to let go of.
+	 */
+	private static void discard(URLConnection connection) {
+		if (connection instanceof HttpURLConnection) {
+			HttpURLConnection httpConnection = (HttpURLConnection) connection;
+			try {
+				// error responses have no input stream, only an error stream
+				InputStream content = httpConnection.getErrorStream();
+				if (content == null) {
+					content = httpConnection.getInputStream();
+				}
+				content.close();
+			} catch (IOException e) {
+				httpConnection.disconnect();
+			}
+		} else {
+			try {
+				connection.getInputStream().close();
+			} catch (IOException e) {
+				// there is nothing left to let go of
+			}
+		}
+	}
+	
+	private static byte[] readFully(InputStream in) throws IOException {
+		try (InputStream input = in) {
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+				content.write(buffer, 0, read);
+			}
+			return content.toByteArray();
+		}
 	}
 }
\ No newline at end of file
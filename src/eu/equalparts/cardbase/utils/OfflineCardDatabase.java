@@ -0,0 +1,435 @@
+package eu.equalparts.cardbase.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.card.CardSetInformation;
+import eu.equalparts.cardbase.card.FullCardSet;
+import eu.equalparts.cardbase.cardfield.IntegerCardField;
+import eu.equalparts.cardbase.cardfield.StringCardField;
+
+/**
+ * A read-only, memory-mapped database of cards, which lets {@code MTGUniverse}
+ * work without a connection to the upstream server.
+ * <br><br>
+ * The file holds a table of every distinct string, a table of sets, one fixed-width
+ * record per card and a hash table of records keyed by set code and number. Each
+ * record is 16 {@code int}s, one per field of {@code Card}: strings are indices into
+ * the string table and integers are stored as they are. Looking up a card is a
+ * probe of the hash table followed by reading one record, with no parsing at all,
+ * and the operating system only pages in the parts of the file which are used.
+ * <br><br>
+ * Instances are safe to share between threads, as the mapped file is only ever
+ * read with absolute indices.
+ *
+ * @author Eduardo Pedroni
+ */
+public final class OfflineCardDatabase implements Closeable {
+
+	/**
+	 * "CBDB" in ASCII.
+	 */
+	private static final int MAGIC = 0x43424442;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 44;
+	/**
+	 * The number of {@code int}s in each set entry: code, name, release date, first record and record count.
+	 */
+	private static final int SET_WIDTH = 5;
+	/**
+	 * The number of {@code int}s in each card record, one per field of {@code Card}.
+	 */
+	private static final int RECORD_WIDTH = 16;
+	/**
+	 * Stands for a null string, or a null integer, in a card record.
+	 */
+	private static final int NULL_STRING = -1;
+	private static final int NULL_INTEGER = Integer.MIN_VALUE;
+
+	/*
+	 * Positions of the fields in a card record. The order is part of the file format.
+	 */
+	private static final int NAME = 0, LAYOUT = 1, MANA_COST = 2, CMC = 3, TYPE = 4, RARITY = 5, TEXT = 6, FLAVOR = 7,
+			ARTIST = 8, NUMBER = 9, POWER = 10, TOUGHNESS = 11, LOYALTY = 12, MULTIVERSEID = 13, IMAGE_NAME = 14, SET_CODE = 15;
+
+	private final RandomAccessFile file;
+	private final ByteBuffer buffer;
+	private final int setCount, cardCount, slotCount;
+	private final int stringOffsetsPosition, stringDataPosition, setsPosition, recordsPosition, slotsPosition;
+
+	private OfflineCardDatabase(RandomAccessFile file, ByteBuffer buffer) throws IOException {
+		this.file = file;
+		this.buffer = buffer;
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not an offline card database.");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported offline card database version " + buffer.getInt(4) + ".");
+		}
+		setCount = buffer.getInt(12);
+		cardCount = buffer.getInt(16);
+		slotCount = buffer.getInt(20);
+		stringOffsetsPosition = buffer.getInt(24);
+		stringDataPosition = buffer.getInt(28);
+		setsPosition = buffer.getInt(32);
+		recordsPosition = buffer.getInt(36);
+		slotsPosition = buffer.getInt(40);
+	}
+
+	/**
+	 * Maps an offline card database file into memory.
+	 *
+	 * @param databaseFile the file to open, as written by {@code write()}.
+	 * @return the opened database.
+	 * @throws IOException if the file cannot be read or is not an offline card database.
+	 */
+	public static OfflineCardDatabase open(File databaseFile) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(databaseFile, "r");
+		try {
+			return new OfflineCardDatabase(file, file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length()));
+		} catch (IOException | RuntimeException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the specified card, read straight from its record.
+	 *
+	 * @param setCode the set to which the requested card belongs, exactly as in the set list.
+	 * @param number the requested card's set number.
+	 * @return the requested {@code Card} or null if the database has no such card.
+	 */
+	public Card getCard(String setCode, String number) {
+		byte[] setCodeBytes = encode(setCode), numberBytes = encode(number);
+		int mask = slotCount - 1;
+		for (int slot = spread(Card.makeHash(setCode, number)) & mask; ; slot = (slot + 1) & mask) {
+			int record = buffer.getInt(slotsPosition + slot * 4) - 1;
+			if (record < 0) {
+				return null;
+			}
+			if (stringEquals(field(record, SET_CODE), setCodeBytes) && stringEquals(field(record, NUMBER), numberBytes)) {
+				return readCard(record);
+			}
+		}
+	}
+
+	/**
+	 * @param setCode the code of a set, exactly as in the set list.
+	 * @return true if the database contains the set.
+	 */
+	public boolean hasSet(String setCode) {
+		return findSet(setCode) >= 0;
+	}
+
+	/**
+	 * Reads a whole set out of the database.
+	 *
+	 * @param setCode the code of the set, exactly as in the set list.
+	 * @return the set, or null if the database does not contain it.
+	 */
+	public FullCardSet getFullCardSet(String setCode) {
+		int set = findSet(setCode);
+		if (set < 0) {
+			return null;
+		}
+
+		FullCardSet fullCardSet = new FullCardSet();
+		fullCardSet.code = readString(setField(set, 0));
+		fullCardSet.name = readString(setField(set, 1));
+		fullCardSet.releaseDate = readString(setField(set, 2));
+		int firstRecord = setField(set, 3), recordCount = setField(set, 4);
+		fullCardSet.cards = new HashMap<>(recordCount * 2);
+		for (int record = firstRecord; record < firstRecord + recordCount; record++) {
+			Card card = readCard(record);
+			fullCardSet.cards.put(card.number.get(), card);
+		}
+		return fullCardSet;
+	}
+
+	/**
+	 * @return the information of every set in the database, in the order in which they were written.
+	 */
+	public List<CardSetInformation> getCardSetList() {
+		List<CardSetInformation> cardSets = new ArrayList<>(setCount);
+		for (int set = 0; set < setCount; set++) {
+			cardSets.add(new CardSetInformation(readString(setField(set, 1)), readString(setField(set, 0)), readString(setField(set, 2))));
+		}
+		return cardSets;
+	}
+
+	/**
+	 * @return the number of cards in the database.
+	 */
+	public int getCardCount() {
+		return cardCount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Writes the specified sets to a new offline card database file, replacing the file if it exists.
+	 *
+	 * @param sets the sets to write. Sets with the same code as an earlier set are skipped.
+	 * @param databaseFile the file to write.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void write(Iterable<FullCardSet> sets, File databaseFile) throws IOException {
+		Builder builder = new Builder();
+		for (FullCardSet set : sets) {
+			builder.add(set);
+		}
+		builder.writeTo(databaseFile);
+	}
+
+	/**
+	 * Fetches every set in the universe's set list, one at a time, and writes them to a
+	 * new offline card database file. Sets which cannot be fetched are left out.
+	 *
+	 * @param universe the universe from which to fetch the sets.
+	 * @param databaseFile the file to write.
+	 * @return the codes of the sets which could not be fetched.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static List<String> build(MTGUniverse universe, File databaseFile) throws IOException {
+		Builder builder = new Builder();
+		List<String> missingSets = new ArrayList<>();
+		for (CardSetInformation setInformation : universe.getCardSetList()) {
+			try {
+				FullCardSet set = universe.getFullCardSet(setInformation.getCode());
+				if (set != null) {
+					builder.add(set);
+				} else {
+					missingSets.add(setInformation.getCode());
+				}
+			} catch (IOException e) {
+				missingSets.add(setInformation.getCode());
+			}
+		}
+		builder.writeTo(databaseFile);
+		return missingSets;
+	}
+
+	private int findSet(String setCode) {
+		byte[] setCodeBytes = encode(setCode);
+		for (int set = 0; set < setCount; set++) {
+			if (stringEquals(setField(set, 0), setCodeBytes)) {
+				return set;
+			}
+		}
+		return -1;
+	}
+
+	private int setField(int set, int field) {
+		return buffer.getInt(setsPosition + (set * SET_WIDTH + field) * 4);
+	}
+
+	private int field(int record, int field) {
+		return buffer.getInt(recordsPosition + (record * RECORD_WIDTH + field) * 4);
+	}
+
+	private Card readCard(int record) {
+		Card card = new Card();
+		card.name = new StringCardField("name", readString(field(record, NAME)));
+		card.layout = new StringCardField("layout", readString(field(record, LAYOUT)));
+		card.manaCost = new StringCardField("manaCost", readString(field(record, MANA_COST)));
+		card.cmc = new IntegerCardField("cmc", readInteger(field(record, CMC)));
+		card.type = new StringCardField("type", readString(field(record, TYPE)));
+		card.rarity = new StringCardField("rarity", readString(field(record, RARITY)));
+		card.text = new StringCardField("text", readString(field(record, TEXT)));
+		card.flavor = new StringCardField("flavor", readString(field(record, FLAVOR)));
+		card.artist = new StringCardField("artist", readString(field(record, ARTIST)));
+		card.number = new StringCardField("number", readString(field(record, NUMBER)));
+		card.power = new StringCardField("power", readString(field(record, POWER)));
+		card.toughness = new StringCardField("toughness", readString(field(record, TOUGHNESS)));
+		card.loyalty = new IntegerCardField("loyalty", readInteger(field(record, LOYALTY)));
+		card.multiverseid = new IntegerCardField("multiverseid", readInteger(field(record, MULTIVERSEID)));
+		card.imageName = new StringCardField("imageName", readString(field(record, IMAGE_NAME)));
+		card.setCode = new StringCardField("setCode", readString(field(record, SET_CODE)));
+		return card;
+	}
+
+	private static Integer readInteger(int value) {
+		return value == NULL_INTEGER ? null : value;
+	}
+
+	private String readString(int id) {
+		if (id == NULL_STRING) {
+			return null;
+		}
+		int start = stringDataPosition + buffer.getInt(stringOffsetsPosition + id * 4);
+		int end = stringDataPosition + buffer.getInt(stringOffsetsPosition + (id + 1) * 4);
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Compares a string in the table with an encoded string, without decoding the former.
+	 */
+	private boolean stringEquals(int id, byte[] bytes) {
+		if (id == NULL_STRING || bytes == null) {
+			return id == NULL_STRING && bytes == null;
+		}
+		int start = stringDataPosition + buffer.getInt(stringOffsetsPosition + id * 4);
+		int end = stringDataPosition + buffer.getInt(stringOffsetsPosition + (id + 1) * 4);
+		if (end - start != bytes.length) {
+			return false;
+		}
+		for (int i = 0; i < bytes.length; i++) {
+			if (buffer.get(start + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static byte[] encode(String string) {
+		return string == null ? null : string.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Mixes the high bits of the hash into the low bits, which are the ones used to index the table.
+	 */
+	private static int spread(int hash) {
+		int mixed = hash * 0x9E3779B9;
+		return mixed ^ (mixed >>> 16);
+	}
+
+	/**
+	 * Accumulates sets in the database format, then writes them out in one go.
+	 */
+	private static final class Builder {
+		private final Map<String, Integer> stringIds = new HashMap<>();
+		private final List<byte[]> strings = new ArrayList<>();
+		private int[] sets = new int[64 * SET_WIDTH];
+		private int[] records = new int[1024 * RECORD_WIDTH];
+		private int[] recordHashes = new int[1024];
+		private int setCount = 0, cardCount = 0;
+		private final Map<String, Boolean> setCodes = new HashMap<>();
+
+		void add(FullCardSet set) {
+			if (setCodes.put(set.code, Boolean.TRUE) != null) {
+				return;
+			}
+			if ((setCount + 1) * SET_WIDTH > sets.length) {
+				sets = Arrays.copyOf(sets, sets.length * 2);
+			}
+			int cardsInSet = set.cards == null ? 0 : set.cards.size();
+			int[] setEntry = { stringId(set.code), stringId(set.name), stringId(set.releaseDate), cardCount, cardsInSet };
+			System.arraycopy(setEntry, 0, sets, setCount++ * SET_WIDTH, SET_WIDTH);
+
+			if (set.cards != null) {
+				for (Card card : set.cards.values()) {
+					addCard(card, set.code);
+				}
+			}
+		}
+
+		private void addCard(Card card, String setCode) {
+			if ((cardCount + 1) * RECORD_WIDTH > records.length) {
+				records = Arrays.copyOf(records, records.length * 2);
+				recordHashes = Arrays.copyOf(recordHashes, recordHashes.length * 2);
+			}
+			// cards are filed under the set they came in, which is how they are looked up
+			int[] record = {
+					stringId(card.name.get()), stringId(card.layout.get()), stringId(card.manaCost.get()), integer(card.cmc.get()),
+					stringId(card.type.get()), stringId(card.rarity.get()), stringId(card.text.get()), stringId(card.flavor.get()),
+					stringId(card.artist.get()), stringId(card.number.get()), stringId(card.power.get()), stringId(card.toughness.get()),
+					integer(card.loyalty.get()), integer(card.multiverseid.get()), stringId(card.imageName.get()), stringId(setCode) };
+			System.arraycopy(record, 0, records, cardCount * RECORD_WIDTH, RECORD_WIDTH);
+			recordHashes[cardCount++] = Card.makeHash(setCode, card.number.get());
+		}
+
+		void writeTo(File databaseFile) throws IOException {
+			int slotCount = Integer.highestOneBit(Math.max(2, cardCount * 2) - 1) << 1;
+			int[] slots = new int[slotCount];
+			for (int record = 0; record < cardCount; record++) {
+				int slot = spread(recordHashes[record]) & (slotCount - 1);
+				while (slots[slot] != 0) {
+					slot = (slot + 1) & (slotCount - 1);
+				}
+				slots[slot] = record + 1;
+			}
+
+			int stringDataLength = 0;
+			for (byte[] string : strings) {
+				stringDataLength += string.length;
+			}
+			int stringOffsetsPosition = HEADER_SIZE;
+			int stringDataPosition = stringOffsetsPosition + (strings.size() + 1) * 4;
+			int setsPosition = stringDataPosition + stringDataLength;
+			int recordsPosition = setsPosition + setCount * SET_WIDTH * 4;
+			int slotsPosition = recordsPosition + cardCount * RECORD_WIDTH * 4;
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(databaseFile)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(strings.size());
+				out.writeInt(setCount);
+				out.writeInt(cardCount);
+				out.writeInt(slotCount);
+				out.writeInt(stringOffsetsPosition);
+				out.writeInt(stringDataPosition);
+				out.writeInt(setsPosition);
+				out.writeInt(recordsPosition);
+				out.writeInt(slotsPosition);
+
+				int offset = 0;
+				for (byte[] string : strings) {
+					out.writeInt(offset);
+					offset += string.length;
+				}
+				out.writeInt(offset);
+				for (byte[] string : strings) {
+					out.write(string);
+				}
+				for (int i = 0; i < setCount * SET_WIDTH; i++) {
+					out.writeInt(sets[i]);
+				}
+				for (int i = 0; i < cardCount * RECORD_WIDTH; i++) {
+					out.writeInt(records[i]);
+				}
+				for (int slot : slots) {
+					out.writeInt(slot);
+				}
+			}
+		}
+
+		private int stringId(String string) {
+			if (string == null) {
+				return NULL_STRING;
+			}
+			Integer id = stringIds.get(string);
+			if (id == null) {
+				id = strings.size();
+				stringIds.put(string, id);
+				strings.add(string.getBytes(StandardCharsets.UTF_8));
+			}
+			return id;
+		}
+
+		private static int integer(Integer value) {
+			return value == null ? NULL_INTEGER : value;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package eu.equalparts.cardbase.utils;
+
+/**
+ * The outcome of prefetching a single set with {@code MTGUniverse.prefetch()}.
+ * 
+ * @author Eduardo Pedroni
+ */
+public class PrefetchTiming {
+	
+	/**
+	 * The set code as it was requested.
+	 */
+	public final String setCode;
+	/**
+	 * True if the set was fetched, false if it was already in memory,
+	 * if there is no such set, or if the fetch failed.
+	 */
+	public final boolean fetched;
+	/**
+	 * How long it took to make the set available, including time spent
+	 * waiting for a fetch of the same set started by another thread.
+	 */
+	public final long elapsedNanos;
+	/**
+	 * The reason the fetch failed, or null if it did not.
+	 */
+	public final Exception failure;
+	
+	PrefetchTiming(String setCode, boolean fetched, long elapsedNanos, Exception failure) {
+		this.setCode = setCode;
+		this.fetched = fetched;
+		this.elapsedNanos = elapsedNanos;
+		this.failure = failure;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%1$-6s %2$8.1f ms%3$s", setCode, elapsedNanos / 1e6,
+				failure != null ? " failed: " + failure : fetched ? "" : " (not fetched)");
+	}
+}
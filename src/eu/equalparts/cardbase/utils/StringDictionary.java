@@ -0,0 +1,73 @@
+package eu.equalparts.cardbase.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a single instance of each distinct string added to it, so that values
+ * which repeat across thousands of cards, such as rarity or set code, are only
+ * kept in memory once. Values stay in the dictionary for good, so it holds at most
+ * a fixed number of them: once it is full, strings which are not in it yet are
+ * returned as they are, rather than added.
+ * <br><br>
+ * Instances are safe to share between threads.
+ *
+ * @author Eduardo Pedroni
+ */
+public final class StringDictionary {
+
+	/**
+	 * The number of strings a dictionary holds at most, by default. This is well above the
+	 * number of distinct values of all {@code LowCardinality} fields across every set printed.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1 << 15;
+	/**
+	 * The dictionary used for the {@code LowCardinality} fields of every card read from JSON.
+	 */
+	public static final StringDictionary CARD_VALUES = new StringDictionary();
+
+	private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+	private final int maxSize;
+
+	/**
+	 * Creates a dictionary which holds at most {@code DEFAULT_MAX_SIZE} strings.
+	 */
+	public StringDictionary() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Creates a dictionary which holds at most the specified number of strings.
+	 *
+	 * @param maxSize the number of strings after which no more are added.
+	 */
+	public StringDictionary(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the dictionary's instance of the specified string, adding the string if
+	 * the dictionary does not have it yet and is not full.
+	 *
+	 * @param value the string.
+	 * @return an equal string, which is the same instance for all equal strings which are in the dictionary,
+	 * or null if the string is null.
+	 */
+	public String canonical(String value) {
+		if (value == null) {
+			return null;
+		}
+		String existing = values.get(value);
+		if (existing == null && values.size() < maxSize) {
+			// threads adding at the same time may take the dictionary slightly past its size
+			existing = values.putIfAbsent(value, value);
+		}
+		return existing != null ? existing : value;
+	}
+
+	/**
+	 * @return the number of distinct strings in the dictionary.
+	 */
+	public int size() {
+		return values.size();
+	}
+}
@@ -12,4 +12,25 @@ public class Utils {
 		}
 		return false;
 	}
+	
+	/**
+	 * Reads the digits in a dirty number as a single integer, ignoring
+	 * any other characters. For instance, "31a" is read as 31.
+	 * 
+	 * @param dirtyNumber the string to read.
+	 * @return the number, or -1 if the string has no digits or the number does not fit in an {@code int}.
+	 */
+	public static int parseDirtyNumber(String dirtyNumber) {
+		long number = -1;
+		for (int i = 0; i < dirtyNumber.length(); i++) {
+			char c = dirtyNumber.charAt(i);
+			if (c >= '0' && c <= '9') {
+				number = (number < 0 ? 0 : number * 10) + (c - '0');
+				if (number > Integer.MAX_VALUE) {
+					return -1;
+				}
+			}
+		}
+		return (int) number;
+	}
 }
@@ -0,0 +1,357 @@
+package eu.equalparts.cardbase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.json.JSON;
+
+public class CardbaseJournalTest {
+	private Cardbase cardbase;
+	private File cardbaseFile, journalFile;
+	private static Card testCard;
+
+	@Rule
+	public final ExpectedException exception = ExpectedException.none();
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		testCard = JSON.mapper.readValue(CardbaseJournalTest.class.getResourceAsStream("/shivandragon.json"), Card.class);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		cardbase = Cardbase.load(new File(getClass().getResource("/testbase.cb").getFile()));
+		cardbaseFile = new File(tempFolder.getRoot(), "journalled.cb");
+		journalFile = new File(cardbaseFile.getPath() + CardbaseJournal.EXTENSION);
+	}
+
+	/***********************************************************************************
+	 * Journal tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void committedChangesAreReplayed() throws Exception {
+		CardbaseJournal journal = CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL);
+		long fileLength = cardbaseFile.length();
+		Card removedCard = cardbase.getCards().get(0);
+		change(journal, testCard, 3);
+		change(journal, removedCard, -1);
+
+		journal.commit();
+		journal.close();
+
+		assertEquals("Cardbase file should not have been rewritten.", fileLength, cardbaseFile.length());
+		Cardbase reloaded = reload();
+		assertEquals("Added card was not replayed.", 3, reloaded.getCount(testCard));
+		assertEquals("Removed card was not replayed.", cardbase.getCount(removedCard), reloaded.getCount(removedCard));
+		assertEquals("Wrong number of cards.", cardbase.getCards().size(), reloaded.getCards().size());
+	}
+
+	@Test
+	public void committedChangesAreOnlyLoadedThroughJournal() throws Exception {
+		CardbaseJournal journal = CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL);
+		change(journal, testCard, 2);
+		journal.commit();
+		journal.close();
+
+		Cardbase loaded = Cardbase.load(cardbaseFile);
+		assertEquals("Loading the file alone should leave out the journalled change.", 0, loaded.getCount(testCard));
+		CardbaseJournal.open(loaded, cardbaseFile).close();
+
+		assertEquals("Opening the journal should have applied the change.", 2, loaded.getCount(testCard));
+	}
+
+	@Test
+	public void uncommittedChangesAreDiscarded() throws Exception {
+		CardbaseJournal journal = CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL);
+		change(journal, testCard, 1);
+		journal.commit();
+		change(journal, testCard, 2);
+
+		journal.close();
+
+		assertEquals("Only committed changes should have been replayed.", 1, reload().getCount(testCard));
+	}
+
+	@Test
+	public void journalIsCompactedIntoCardbaseFile() throws Exception {
+		CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL).close();
+		Cardbase loaded = Cardbase.load(cardbaseFile);
+		CardbaseJournal journal = CardbaseJournal.open(loaded, cardbaseFile, 2);
+		change(journal, testCard, 1);
+		journal.commit();
+		change(journal, testCard, 1);
+		journal.commit();
+
+		journal.close();
+
+		assertFalse("Journal should have been emptied.", journalFile.exists());
+		assertEquals("Changes were not compacted into the cardbase file.", 2, Cardbase.load(cardbaseFile).getCount(testCard));
+		assertEquals("Changes should not be replayed twice.", 2, reload().getCount(testCard));
+	}
+
+	@Test
+	public void rewriteIncludesUncommittedChanges() throws Exception {
+		CardbaseJournal journal = CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL);
+		change(journal, testCard, 1);
+		journal.commit();
+		change(journal, testCard, 1);
+
+		journal.rewrite(Cardbase.SaveMode.REFERENCES);
+		journal.close();
+
+		assertFalse("Journal should have been emptied.", journalFile.exists());
+		assertEquals("Wrong save mode.", Cardbase.SaveMode.REFERENCES, journal.getSaveMode());
+		assertEquals("Cardbase file is missing changes.", 2, Cardbase.load(cardbaseFile).getCount(testCard));
+	}
+
+	@Test
+	public void changesAfterInterruptedCompactionAreReplayedOnce() throws Exception {
+		CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL).close();
+		byte[] oldContents = Files.readAllBytes(cardbaseFile.toPath());
+		// as if the cardbase file was rewritten with one card, but the journal was not
+		cardbase.addCard(testCard, 1);
+		byte[] newContents = JSON.mapper.writeValueAsBytes(cardbase);
+		Files.write(cardbaseFile.toPath(), newContents);
+		writeJournal("cardbase-journal 1 " + checksum(oldContents),
+				"add 1 " + JSON.mapper.writeValueAsString(testCard),
+				"snapshot " + checksum(newContents),
+				"add 2 " + JSON.mapper.writeValueAsString(testCard));
+
+		assertEquals("Only changes after the snapshot should have been replayed.", 3, reload().getCount(testCard));
+	}
+
+	@Test
+	public void changesBeforeInterruptedCompactionAreReplayed() throws Exception {
+		CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL).close();
+		// as if the journal was compacted, but the cardbase file was not rewritten
+		writeJournal("cardbase-journal 1 " + checksum(Files.readAllBytes(cardbaseFile.toPath())),
+				"add 1 " + JSON.mapper.writeValueAsString(testCard),
+				"snapshot 1234abcd",
+				"add 2 " + JSON.mapper.writeValueAsString(testCard));
+
+		assertEquals("All changes should have been replayed.", 3, reload().getCount(testCard));
+	}
+
+	@Test
+	public void referencesFileIsCompactedAsReferences() throws Exception {
+		CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.REFERENCES).close();
+		long fileLength = cardbaseFile.length();
+		Cardbase loaded = Cardbase.load(cardbaseFile);
+
+		CardbaseJournal journal = CardbaseJournal.open(loaded, cardbaseFile, 1);
+		change(journal, cardbase.getCards().get(0), 1);
+		journal.commit();
+		journal.close();
+
+		assertEquals("Wrong save mode.", Cardbase.SaveMode.REFERENCES, journal.getSaveMode());
+		assertFalse("Journal should have been compacted.", journalFile.exists());
+		assertTrue("Cardbase file should still hold references only.", cardbaseFile.length() < fileLength + 100);
+	}
+
+	@Test
+	public void journalOfLazilyLoadedCardbaseIsReplayed() throws Exception {
+		CardbaseJournal journal = CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL);
+		change(journal, testCard, 2);
+		journal.commit();
+		journal.close();
+
+		Cardbase loaded = Cardbase.loadLazily(cardbaseFile, null);
+		CardbaseJournal.open(loaded, cardbaseFile).close();
+
+		assertEquals("Change was not replayed.", 2, loaded.getCount(testCard));
+	}
+
+	@Test
+	public void changesAreMadeToCardbase() throws Exception {
+		CardbaseJournal journal = CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL);
+		Card removedCard = cardbase.getCards().get(0);
+		int removedCount = cardbase.getCount(removedCard);
+
+		journal.addCard(testCard, 2);
+		int removed = journal.removeCard(removedCard, removedCount + 1);
+		journal.close();
+
+		assertEquals("Card was not added.", 2, cardbase.getCount(testCard));
+		assertEquals("Wrong amount removed.", removedCount, removed);
+		assertEquals("Card was not removed.", 0, cardbase.getCount(removedCard));
+	}
+
+	/***********************************************************************************
+	 * Autosave tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void changesAreAutosavedAfterEnoughChanges() throws Exception {
+		CardbaseJournal journal = CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL);
+		journal.startAutosave(3, 1, TimeUnit.HOURS);
+
+		change(journal, testCard, 1);
+		change(journal, testCard, 1);
+		change(journal, testCard, 1);
+
+		assertTrue("Journal should be autosaving.", journal.isAutosaving());
+		assertTrue("Journal should have been autosaved.", journal.awaitAutosave(10, TimeUnit.SECONDS));
+		assertEquals("Changes were not autosaved.", 3, reload().getCount(testCard));
+		journal.close();
+	}
+
+	@Test
+	public void changesAreAutosavedAfterDelay() throws Exception {
+		CardbaseJournal journal = CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL);
+		journal.startAutosave(100, 50, TimeUnit.MILLISECONDS);
+
+		change(journal, testCard, 2);
+
+		assertTrue("Journal should have been autosaved.", journal.awaitAutosave(10, TimeUnit.SECONDS));
+		assertEquals("Changes were not autosaved.", 2, reload().getCount(testCard));
+		journal.close();
+	}
+
+	@Test
+	public void closingSavesChangesIfAutosaving() throws Exception {
+		CardbaseJournal journal = CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL);
+		journal.startAutosave(100, 1, TimeUnit.HOURS);
+		change(journal, testCard, 1);
+		assertTrue("Change should not have been saved yet.", journal.hasUncommittedChanges());
+
+		journal.close();
+
+		assertEquals("Changes were not saved on close.", 1, reload().getCount(testCard));
+	}
+
+	@Test
+	public void stoppingAutosaveKeepsChangesRecorded() throws Exception {
+		CardbaseJournal journal = CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL);
+		journal.startAutosave(100, 1, TimeUnit.HOURS);
+		change(journal, testCard, 1);
+
+		journal.stopAutosave();
+
+		assertFalse("Autosave should be off.", journal.isAutosaving());
+		assertTrue("Change should still be recorded.", journal.hasUncommittedChanges());
+		journal.commit();
+		journal.close();
+		assertEquals("Change was not committed.", 1, reload().getCount(testCard));
+	}
+
+	/*
+	 * Edge cases
+	 */
+	@Test
+	public void incompleteLastLineIsIgnored() throws Exception {
+		CardbaseJournal journal = CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL);
+		change(journal, testCard, 1);
+		journal.commit();
+		journal.close();
+		try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+			out.write("add 5 {\"name\":".getBytes(StandardCharsets.UTF_8));
+		}
+
+		Cardbase reloaded = Cardbase.load(cardbaseFile);
+		journal = CardbaseJournal.open(reloaded, cardbaseFile);
+		assertEquals("Incomplete line should have been ignored.", 1, reloaded.getCount(testCard));
+
+		// appending must not leave the incomplete line in the way
+		journal.addCard(testCard, 1);
+		journal.commit();
+		journal.close();
+		assertEquals("Change after incomplete line was not replayed.", 2, reload().getCount(testCard));
+	}
+
+	@Test
+	public void createReplacesOldJournal() throws Exception {
+		CardbaseJournal journal = CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL);
+		change(journal, testCard, 1);
+		journal.commit();
+		journal.close();
+
+		CardbaseJournal.create(new Cardbase(), cardbaseFile, Cardbase.SaveMode.FULL).close();
+
+		assertFalse("Old journal should have been removed.", journalFile.exists());
+		assertEquals("Old changes should not have been replayed.", 0, reload().getCards().size());
+	}
+
+	@Test
+	public void journalOfOtherContentsIsSetAside() throws Exception {
+		CardbaseJournal journal = CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL);
+		change(journal, testCard, 1);
+		journal.commit();
+		journal.close();
+		new Cardbase().write(cardbaseFile);
+
+		Cardbase reloaded = Cardbase.load(cardbaseFile);
+		journal = CardbaseJournal.open(reloaded, cardbaseFile);
+		journal.close();
+
+		assertEquals("Stale changes should not have been replayed.", 0, reloaded.getCount(testCard));
+		assertFalse("Stale journal should have been moved.", journalFile.exists());
+		assertEquals("Stale journal should have been moved aside.", new File(journalFile.getPath() + CardbaseJournal.STALE_EXTENSION), journal.getStaleJournalFile());
+		assertTrue("Stale journal should have been kept.", journal.getStaleJournalFile().isFile());
+	}
+
+	@Test
+	public void malformedJournalIsSetAsideWithoutApplyingAnything() throws Exception {
+		CardbaseJournal.create(cardbase, cardbaseFile, Cardbase.SaveMode.FULL).close();
+		writeJournal("cardbase-journal 1 " + checksum(Files.readAllBytes(cardbaseFile.toPath())),
+				"add 1 " + JSON.mapper.writeValueAsString(testCard),
+				"add one " + JSON.mapper.writeValueAsString(testCard));
+
+		Cardbase reloaded = Cardbase.load(cardbaseFile);
+		CardbaseJournal journal = CardbaseJournal.open(reloaded, cardbaseFile);
+		journal.close();
+
+		assertEquals("No change should have been applied.", 0, reloaded.getCount(testCard));
+		assertTrue("Malformed journal should have been moved aside.", journal.getStaleJournalFile().isFile());
+	}
+
+	@Test
+	public void writeLeavesNoTemporaryFile() throws Exception {
+		cardbase.write(cardbaseFile);
+
+		assertEquals("Only the cardbase file should exist.", 1, tempFolder.getRoot().list().length);
+		assertTrue("Cardbase file should exist.", cardbaseFile.isFile());
+	}
+
+	private static void change(CardbaseJournal journal, Card card, int count) {
+		if (count > 0) {
+			journal.addCard(card, count);
+		} else {
+			journal.removeCard(card, -count);
+		}
+	}
+
+	private Cardbase reload() throws IOException {
+		Cardbase reloaded = Cardbase.load(cardbaseFile);
+		CardbaseJournal.open(reloaded, cardbaseFile).close();
+		return reloaded;
+	}
+
+	private void writeJournal(String... lines) throws IOException {
+		Files.write(journalFile.toPath(), (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String checksum(byte[] contents) {
+		CRC32 crc = new CRC32();
+		crc.update(contents, 0, contents.length);
+		return Long.toHexString(crc.getValue());
+	}
+}
@@ -1,11 +1,16 @@
 package eu.equalparts.cardbase;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -164,6 +169,118 @@ public class CardbaseTest {
 		assertEquals("Cardbase should contain " + testCount + " Shivan Dragon.", testCount, uut.getCount(card));
 	}
 	
+	@Test
+	public void cardbaseIsSavedAsReferences() throws Exception {
+		uut = Cardbase.load(new File(getClass().getResource("/testbase.cb").getFile()));
+		File fullFile = tempFolder.newFile("full.cb");
+		File referencesFile = tempFolder.newFile("references.cb");
+		uut.write(fullFile);
+		
+		uut.write(referencesFile, Cardbase.SaveMode.REFERENCES);
+		Cardbase loaded = Cardbase.load(referencesFile, (setCode, number) -> uut.getCard(setCode, number));
+		
+		assertTrue("References file should be much smaller.", referencesFile.length() * 5 < fullFile.length());
+		assertEquals("Wrong number of cards.", uut.getCards().size(), loaded.getCards().size());
+		for (Card card : uut.getCards()) {
+			assertEquals("Wrong count for " + card.name.get() + ".", uut.getCount(card), loaded.getCount(card));
+			assertEquals("Wrong card data.", card.name.get(), loaded.getCard(card.setCode.get(), card.number.get()).name.get());
+		}
+	}
+	
+	@Test
+	public void binaryCardbaseIsSavedAsReferences() throws Exception {
+		uut.addCard(testCard, 2);
+		File referencesFile = tempFolder.newFile("references.cbb");
+		
+		uut.write(referencesFile, Cardbase.SaveMode.REFERENCES);
+		Cardbase loaded = Cardbase.load(referencesFile);
+		
+		assertEquals("Wrong count.", 2, loaded.getCount(testCard));
+		assertEquals("Card data should not have been saved.", 0, loaded.getCards().size());
+	}
+	
+	@Test
+	public void cardsLoadedAsReferencesAreSavedInFull() throws Exception {
+		uut.addCard(testCard, 2);
+		File referencesFile = tempFolder.newFile("references.cb");
+		uut.write(referencesFile, Cardbase.SaveMode.REFERENCES);
+		uut = Cardbase.load(referencesFile, (setCode, number) -> testCard);
+
+		uut.write(referencesFile);
+		Cardbase loaded = Cardbase.load(referencesFile);
+
+		assertNotNull("Card should have been saved with its data.", loaded.getCard(testCard.setCode.get(), testCard.number.get()));
+		assertEquals("Wrong count.", 2, loaded.getCount(testCard));
+	}
+
+	/*
+	 * Edge cases
+	 */
+	@Test
+	public void cardbaseIsNotSavedInFullIfCardsCannotBeLookedUp() throws Exception {
+		uut.addCard(testCard, 2);
+		File referencesFile = tempFolder.newFile("references.cb");
+		uut.write(referencesFile, Cardbase.SaveMode.REFERENCES);
+		byte[] references = Files.readAllBytes(referencesFile.toPath());
+		uut = Cardbase.load(referencesFile);
+
+		try {
+			uut.write(referencesFile);
+			fail("Cardbase should not have been saved.");
+		} catch (IOException e) {
+			assertArrayEquals("File should not have been changed.", references, Files.readAllBytes(referencesFile.toPath()));
+		}
+	}
+
+	/***********************************************************************************
+	 * Snapshot tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void snapshotIsUnaffectedByLaterChanges() throws Exception {
+		uut = Cardbase.load(new File(getClass().getResource("/testbase.cb").getFile()));
+		Card existingCard = uut.getCards().get(0);
+		int existingCount = uut.getCount(existingCard);
+
+		Cardbase snapshot = uut.snapshot();
+		uut.addCard(testCard, 2);
+		uut.removeCard(existingCard, 1);
+		uut.setPlains(5);
+
+		assertEquals("Snapshot should not have the added card.", 0, snapshot.getCount(testCard));
+		assertEquals("Snapshot should have the original count.", existingCount, snapshot.getCount(existingCard));
+		assertEquals("Snapshot should have the original plains.", 0, snapshot.getPlains());
+		assertEquals("Cardbase should have the added card.", 2, uut.getCount(testCard));
+		assertEquals("Cardbase should have the new count.", existingCount - 1, uut.getCount(existingCard));
+	}
+
+	@Test
+	public void cardbaseIsUnaffectedByChangesToSnapshot() throws Exception {
+		uut.addCard(testCard, 1);
+
+		Cardbase snapshot = uut.snapshot();
+		snapshot.addCard(testCard, 3);
+
+		assertEquals("Cardbase should have the original count.", 1, uut.getCount(testCard));
+		assertEquals("Snapshot should have the new count.", 4, snapshot.getCount(testCard));
+	}
+
+	@Test
+	public void snapshotKeepsLookedUpCardRemovedFromCardbase() throws Exception {
+		uut.addCard(testCard, 2);
+		File referencesFile = tempFolder.newFile("references.cb");
+		uut.write(referencesFile, Cardbase.SaveMode.REFERENCES);
+		AtomicBoolean lookedUp = new AtomicBoolean();
+		Cardbase loaded = Cardbase.load(referencesFile, (setCode, number) -> lookedUp.getAndSet(true) ? null : testCard);
+		loaded.getCard(testCard.setCode.get(), testCard.number.get());
+
+		Cardbase snapshot = loaded.snapshot();
+		loaded.removeCard(testCard, 2);
+		File snapshotFile = tempFolder.newFile("snapshot.cb");
+		snapshot.write(snapshotFile);
+
+		assertNotNull("Snapshot should have been written with the card's data.", Cardbase.load(snapshotFile).getCard(testCard.setCode.get(), testCard.number.get()));
+	}
+
 	/*
 	 * Edge cases
 	 */
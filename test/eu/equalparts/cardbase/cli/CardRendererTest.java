@@ -0,0 +1,149 @@
+package eu.equalparts.cardbase.cli;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.equalparts.cardbase.Cardbase;
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.json.JSON;
+
+/**
+ * Checks that the renderer prints exactly what printing each line separately would.
+ * 
+ * @author Eduardo Pedroni
+ */
+public class CardRendererTest {
+	private Card testCard;
+	private Cardbase testbase;
+	private ByteArrayOutputStream rendered = new ByteArrayOutputStream(), expected = new ByteArrayOutputStream();
+	private CardRenderer renderer;
+	private PrintStream expectedOut;
+
+	@Before
+	public void setUp() throws Exception {
+		testCard = JSON.mapper.readValue(getClass().getResourceAsStream("/shivandragon.json"), Card.class);
+		testbase = Cardbase.load(new File(getClass().getResource("/testbase.cb").getFile()));
+		renderer = new CardRenderer(new PrintStream(rendered));
+		expectedOut = new PrintStream(expected);
+	}
+
+	/***********************************************************************************
+	 * Rendering tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void glancesMatchPrintedLines() throws Exception {
+		for (Card card : testbase.getCards()) {
+			renderer.glance(card, testbase.getCount(card));
+			printGlance(card, testbase.getCount(card));
+		}
+		renderer.line("Total: 12");
+		expectedOut.println("Total: 12");
+		renderer.flush();
+
+		assertArrayEquals("Wrong glance.", expected.toByteArray(), rendered.toByteArray());
+	}
+
+	@Test
+	public void perusalsMatchPrintedLines() throws Exception {
+		for (Card card : testbase.getCards()) {
+			renderer.perusal(card, testbase.getCount(card));
+			printPerusal(card, testbase.getCount(card));
+		}
+		renderer.flush();
+
+		assertArrayEquals("Wrong perusal.", expected.toByteArray(), rendered.toByteArray());
+	}
+
+	@Test
+	public void outputIsPrintedInChunks() throws Exception {
+		for (int i = 0; i < 5000; i++) {
+			renderer.perusal(testCard, i);
+			printPerusal(testCard, i);
+		}
+		int printedBeforeFlush = rendered.size();
+		renderer.flush();
+
+		assertTrue("Full chunks should have been printed before flushing.", printedBeforeFlush > 0);
+		assertArrayEquals("Wrong output.", expected.toByteArray(), rendered.toByteArray());
+	}
+
+	/*
+	 * Edge cases
+	 */
+	@Test
+	public void unusualCountsArePaddedAsFormatted() throws Exception {
+		int[] counts = {0, -3, 1234, 123456, Integer.MIN_VALUE};
+		for (int count : counts) {
+			renderer.glance(testCard, count);
+			printGlance(testCard, count);
+		}
+		renderer.flush();
+
+		assertArrayEquals("Wrong padding.", expected.toByteArray(), rendered.toByteArray());
+	}
+
+	@Test
+	public void multipleLineTextIsIndented() throws Exception {
+		testCard.text.set("First line.\n\nThird line.\n");
+		testCard.flavor.set("\nFlavour");
+		testCard.type.set("Not\nindented");
+
+		renderer.perusal(testCard, 1);
+		printPerusal(testCard, 1);
+		renderer.flush();
+
+		assertArrayEquals("Wrong indentation.", expected.toByteArray(), rendered.toByteArray());
+	}
+
+	@Test
+	public void nullFieldsAreLeftOut() throws Exception {
+		testCard.name.set(null);
+		testCard.type.set(null);
+		testCard.manaCost.set(null);
+		testCard.power.set(null);
+		testCard.loyalty.set(null);
+		testCard.text.set(null);
+		testCard.flavor.set(null);
+		testCard.rarity.set(null);
+		testCard.multiverseid.set(null);
+		testCard.artist.set(null);
+
+		renderer.perusal(testCard, 1);
+		printPerusal(testCard, 1);
+		renderer.flush();
+
+		assertArrayEquals("Wrong output for empty card.", expected.toByteArray(), rendered.toByteArray());
+	}
+
+	/**
+	 * How glances were printed before the renderer.
+	 */
+	private void printGlance(Card card, int count) {
+		expectedOut.println(String.format("%1$-4d %2$s (%3$s, %4$s)", count, card.name.get(), card.setCode.get(), card.number.get()));
+	}
+
+	/**
+	 * How perusals were printed before the renderer.
+	 */
+	private void printPerusal(Card card, int count) {
+		printGlance(card, count);
+		if (card.type.get() != null) expectedOut.println("\t" + card.type.get());
+		if (card.manaCost.get() != null) expectedOut.println("\tCost: " + card.manaCost.get());
+		if (card.power.get() != null && card.toughness.get() != null) expectedOut.println("\t" + card.power.get() + "/" + card.toughness.get());
+		if (card.loyalty.get() != null) expectedOut.println("\tLoyalty: " + card.loyalty.get());
+
+		if (card.text.get() != null) expectedOut.println("\t" + card.text.get().replaceAll("\n", "\n\t"));
+		if (card.flavor.get() != null) expectedOut.println("\t" + card.flavor.get().replaceAll("\n", "\n\t"));
+
+		if (card.rarity.get() != null) expectedOut.println("\t" + card.rarity.get());
+		if (card.multiverseid.get() != null) expectedOut.println("\tMID: " + card.multiverseid.get());
+		if (card.artist.get() != null) expectedOut.println("\tIllus. " + card.artist.get());
+	}
+}
@@ -7,6 +7,7 @@ import java.io.File;
 import java.io.PrintStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.util.Scanner;
 
 import org.junit.Before;
@@ -16,6 +17,8 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 
+import eu.equalparts.cardbase.Cardbase;
+
 /**
  * These are interface tests, and as such they do some unusual things. The objective here is not to
  * strictly test the class, but rather simulate user interaction and judge based on program output
@@ -265,9 +268,52 @@ public class CardbaseCLITest {
 		assertEquals(contents("multipleCardsPerusal") + EOL, testOutput.toString());
 	}
 	
+	@Test
+	public void referencesFileIsWrittenInFull() throws Exception {
+		String referencesPath = tempFolder.getRoot().getAbsolutePath() + "/references.cb";
+		uut.interpretInput("set FRF");
+		uut.interpretInput("128");
+		uut.interpretInput("129 2");
+		uut.interpretInput("write -r " + referencesPath);
+
+		uut = new CardbaseCLI(TEST_REMOTE, referencesPath);
+		try {
+			System.setOut(new PrintStream(testOutput));
+			uut.interpretInput("write");
+		} finally {
+			System.setOut(console);
+		}
+
+		assertEquals("Cardbase was saved to \"" + referencesPath + "\". "
+				+ "Subsequent writes will be done to this same file unless otherwise requested." + EOL, testOutput.toString());
+		Cardbase written = Cardbase.load(new File(referencesPath));
+		assertEquals("Every card should have been written with its data.", 2, written.getCards().size());
+	}
+
 	/*
 	 * Edge cases
 	 */
+	@Test
+	public void referencesFileIsNotWrittenInFullIfCardsCannotBeLookedUp() throws Exception {
+		uut = new CardbaseCLI(TEST_REMOTE, path("/testbase.cb"));
+		String referencesPath = tempFolder.getRoot().getAbsolutePath() + "/references.cb";
+		uut.interpretInput("write -r " + referencesPath);
+		byte[] references = Files.readAllBytes(new File(referencesPath).toPath());
+
+		uut = new CardbaseCLI(TEST_REMOTE, referencesPath);
+		try {
+			System.setOut(new PrintStream(testOutput));
+			uut.interpretInput("write");
+		} finally {
+			System.setOut(console);
+		}
+
+		// only the FRF cards can be looked up in the test remote
+		assertEquals("Error: 3 cards could not be looked up, so the cardbase cannot be written in full. "
+				+ "Use \"write -r\" to write card counts only." + EOL, testOutput.toString());
+		assertArrayEquals("File should not have been changed.", references, Files.readAllBytes(new File(referencesPath).toPath()));
+	}
+
 	@Test
 	public void writeFailsIfProvidedPathIsDirectory() throws Exception {
 		File directory = tempFolder.newFolder("testdirectory.cb");
@@ -280,6 +326,43 @@ public class CardbaseCLITest {
 		assertEquals("Could not write to \"" + directory.getAbsolutePath() + "\"." + EOL, testOutput.toString());
 	}
 	
+	@Test
+	public void changesAreNotAutosavedToPreviousFile() throws Exception {
+		String firstPath = tempFolder.getRoot().getAbsolutePath() + "/first.cb";
+		String secondPath = tempFolder.getRoot().getAbsolutePath() + "/second.cb";
+		try {
+			System.setOut(new PrintStream(testOutput));
+			uut.interpretInput("write " + firstPath);
+			uut.interpretInput("autosave on");
+			uut.interpretInput("set FRF");
+			uut.interpretInput("150");
+			uut.interpretInput("write " + secondPath);
+			uut.interpretInput("exit");
+		} finally {
+			System.setOut(console);
+		}
+
+		uut = new CardbaseCLI(TEST_REMOTE, firstPath);
+		testOutput.reset();
+		try {
+			System.setOut(new PrintStream(testOutput));
+			uut.interpretInput("glance");
+		} finally {
+			System.setOut(console);
+		}
+		assertEquals("Previous file should not have been changed.", "Total: 0" + EOL, testOutput.toString());
+
+		uut = new CardbaseCLI(TEST_REMOTE, secondPath);
+		testOutput.reset();
+		try {
+			System.setOut(new PrintStream(testOutput));
+			uut.interpretInput("glance");
+		} finally {
+			System.setOut(console);
+		}
+		assertEquals("New file should have the change.", "1    Cunning Strike (FRF, 150)\nTotal: 1" + EOL, testOutput.toString());
+	}
+
 	@Test
 	public void extensionIsAddedEvenIfFileNameAlreadyHasOne() throws Exception {
 		uut = new CardbaseCLI(TEST_REMOTE, path("/testbase.cb"));
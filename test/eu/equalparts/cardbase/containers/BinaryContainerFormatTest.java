@@ -0,0 +1,180 @@
+package eu.equalparts.cardbase.containers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import eu.equalparts.cardbase.Cardbase;
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.cardfield.CardField;
+import eu.equalparts.cardbase.json.JSON;
+
+public class BinaryContainerFormatTest {
+	private Cardbase testbase;
+	private static Card testCard;
+
+	@Rule
+	public final ExpectedException exception = ExpectedException.none();
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		testCard = JSON.mapper.readValue(BinaryContainerFormatTest.class.getResourceAsStream("/shivandragon.json"), Card.class);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		testbase = Cardbase.load(new File(getClass().getResource("/testbase.cb").getFile()));
+	}
+
+	/***********************************************************************************
+	 * Round trip tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void cardbaseSurvivesRoundTrip() throws Exception {
+		testbase.setPlains(3);
+		testbase.setMountains(-1);
+
+		StandaloneCardContainer read = roundTrip(testbase);
+
+		List<Card> expectedCards = testbase.getCards(), actualCards = read.getCards();
+		assertEquals("Wrong number of cards.", expectedCards.size(), actualCards.size());
+		for (int i = 0; i < expectedCards.size(); i++) {
+			assertSameFields(expectedCards.get(i), actualCards.get(i));
+			assertEquals("Wrong count.", testbase.getCount(expectedCards.get(i)), read.getCount(actualCards.get(i)));
+		}
+		assertEquals("Wrong plains.", 3, read.getPlains());
+		assertEquals("Wrong mountains.", -1, read.getMountains());
+	}
+
+	@Test
+	public void cardbaseIsWrittenInBinaryByExtension() throws Exception {
+		File binaryFile = tempFolder.newFile("binary" + BinaryContainerFormat.EXTENSION);
+		File jsonFile = tempFolder.newFile("json.cb");
+
+		testbase.write(binaryFile);
+		testbase.write(jsonFile);
+
+		assertTrue("File should have been written in binary.", BinaryContainerFormat.isBinary(binaryFile));
+		assertFalse("File should have been written in JSON.", BinaryContainerFormat.isBinary(jsonFile));
+		assertTrue("Binary file should be smaller than JSON.", binaryFile.length() < jsonFile.length());
+	}
+
+	@Test
+	public void binaryFileIsLoadedWhateverItsExtension() throws Exception {
+		File binaryFile = tempFolder.newFile("binary.cb");
+		BinaryContainerFormat.write(testbase, binaryFile);
+
+		Cardbase loaded = Cardbase.load(binaryFile);
+
+		assertEquals("Wrong number of cards.", testbase.getCards().size(), loaded.getCards().size());
+	}
+
+	@Test
+	public void unresolvedLegacyCountsSurviveRoundTrip() throws Exception {
+		String json = "{\"cardReferences\":{\"" + testCard.hashCode() + "\":4}}";
+		StandaloneCardContainer legacy = JSON.mapper.readValue(json, StandaloneCardContainer.class);
+
+		StandaloneCardContainer read = roundTrip(legacy);
+
+		assertEquals("Legacy count was not read back.", 4, read.getCount(testCard));
+	}
+
+	/*
+	 * Edge cases
+	 */
+	@Test
+	public void cardsWhichWereNotLookedUpAreWrittenAsReferences() throws Exception {
+		StandaloneCardContainer references = JSON.mapper.readValue("{\"cardReferences\":{\"M15/281\":3}}", StandaloneCardContainer.class);
+		AtomicInteger lookups = new AtomicInteger();
+		references.setCardSource((setCode, number) -> {
+			lookups.incrementAndGet();
+			return testCard;
+		});
+
+		StandaloneCardContainer read = roundTrip(references);
+
+		assertEquals("Nothing should have been looked up while writing.", 0, lookups.get());
+		assertNull("Card should have been written as a reference.", read.getCard("M15", "281"));
+		assertEquals("Count should have been written.", 3, read.getCount(testCard));
+	}
+
+	@Test
+	public void nullFieldsSurviveRoundTrip() throws Exception {
+		StandaloneCardContainer container = new StandaloneCardContainer();
+		Card card = JSON.mapper.readValue(BinaryContainerFormatTest.class.getResourceAsStream("/shivandragon.json"), Card.class);
+		card.flavor.set(null);
+		card.loyalty.set(null);
+		card.cmc.set(Integer.MIN_VALUE);
+		container.addCard(card, 2);
+
+		Card read = roundTrip(container).getCard(card.setCode.get(), card.number.get());
+
+		assertNotNull("Card was not read back.", read);
+		assertNull("Null string should have been read back.", read.flavor.get());
+		assertNull("Null integer should have been read back.", read.loyalty.get());
+		assertEquals("Extreme integer should have been read back.", Integer.valueOf(Integer.MIN_VALUE), read.cmc.get());
+	}
+
+	@Test
+	public void emptyContainerSurvivesRoundTrip() throws Exception {
+		assertEquals("Container should be empty.", 0, roundTrip(new StandaloneCardContainer()).getCards().size());
+	}
+
+	@Test
+	public void unsupportedVersionIsRejected() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryContainerFormat.write(testbase, out);
+		byte[] bytes = out.toByteArray();
+		bytes[4] = 99;
+
+		exception.expect(IOException.class);
+		BinaryContainerFormat.read(new ByteArrayInputStream(bytes), new StandaloneCardContainer());
+	}
+
+	@Test
+	public void truncatedFileIsRejected() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryContainerFormat.write(testbase, out);
+		byte[] bytes = out.toByteArray();
+
+		exception.expect(IOException.class);
+		BinaryContainerFormat.read(new ByteArrayInputStream(bytes, 0, bytes.length / 2), new StandaloneCardContainer());
+	}
+
+	private static StandaloneCardContainer roundTrip(StandaloneCardContainer container) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryContainerFormat.write(container, out);
+		StandaloneCardContainer read = new StandaloneCardContainer();
+		BinaryContainerFormat.read(new ByteArrayInputStream(out.toByteArray()), read);
+		return read;
+	}
+
+	private static void assertSameFields(Card expected, Card actual) throws Exception {
+		for (Field field : Card.class.getFields()) {
+			if (CardField.class.isAssignableFrom(field.getType())) {
+				assertEquals("Wrong " + field.getName() + " for card " + expected.number.get() + ".",
+						((CardField<?>) field.get(expected)).get(), ((CardField<?>) field.get(actual)).get());
+			}
+		}
+	}
+}
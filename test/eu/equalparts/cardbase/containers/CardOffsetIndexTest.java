@@ -0,0 +1,207 @@
+package eu.equalparts.cardbase.containers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import eu.equalparts.cardbase.Cardbase;
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.cardfield.CardField;
+import eu.equalparts.cardbase.json.JSON;
+
+public class CardOffsetIndexTest {
+	private Cardbase testbase;
+	private File cardbaseFile, indexFile;
+	private static Card testCard;
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		testCard = JSON.mapper.readValue(CardOffsetIndexTest.class.getResourceAsStream("/shivandragon.json"), Card.class);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		testbase = Cardbase.load(new File(getClass().getResource("/testbase.cb").getFile()));
+		cardbaseFile = new File(tempFolder.getRoot(), "lazy.cb");
+		indexFile = new File(cardbaseFile.getPath() + CardOffsetIndex.EXTENSION);
+		testbase.write(cardbaseFile);
+	}
+
+	/***********************************************************************************
+	 * Lazy load tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void lazyLoadMatchesFullLoad() throws Exception {
+		Cardbase loaded = Cardbase.loadLazily(cardbaseFile, null);
+
+		assertSameContents(testbase, loaded);
+	}
+
+	@Test
+	public void cardsAreNotParsedUntilNeeded() throws Exception {
+		StandaloneCardContainer loaded = new StandaloneCardContainer();
+		assertTrue("File should have been loaded.", CardOffsetIndex.load(cardbaseFile, loaded, null));
+
+		int entry = loaded.cardReferences.next(0);
+		assertNull("Card should not have been parsed yet.", loaded.cardReferences.card(entry));
+		Card card = loaded.card(entry);
+		assertEquals("Wrong card parsed.", CardCountMap.key(loaded.cardReferences.setCode(entry), loaded.cardReferences.number(entry)),
+				CardCountMap.key(card.setCode.get(), card.number.get()));
+		assertSame("Card should have been kept once parsed.", card, loaded.card(entry));
+	}
+
+	@Test
+	public void indexIsWrittenAndReused() throws Exception {
+		Cardbase.loadLazily(cardbaseFile, null);
+		assertTrue("Index should have been written.", indexFile.isFile());
+		long indexModified = indexFile.lastModified();
+
+		Cardbase loaded = Cardbase.loadLazily(cardbaseFile, null);
+
+		assertEquals("Index should not have been written again.", indexModified, indexFile.lastModified());
+		assertSameContents(testbase, loaded);
+	}
+
+	@Test
+	public void cardsAreReadFromLoadedFileAfterItIsReplaced() throws Exception {
+		Cardbase loaded = Cardbase.loadLazily(cardbaseFile, null);
+
+		Cardbase other = new Cardbase();
+		other.addCard(testCard, 1);
+		other.write(cardbaseFile);
+
+		assertSameContents(testbase, loaded);
+	}
+
+	@Test
+	public void cardsMissingFromFileAreLookedUpInSource() throws Exception {
+		testbase.write(cardbaseFile, Cardbase.SaveMode.REFERENCES);
+		Card expected = testbase.getCards().get(0);
+
+		Cardbase loaded = Cardbase.loadLazily(cardbaseFile,
+				(setCode, number) -> testbase.getCard(setCode, number));
+
+		assertSame("Card was not looked up in source.", expected, loaded.getCard(expected.setCode.get(), expected.number.get()));
+	}
+
+	@Test
+	public void unparsedCardsAreWrittenInFull() throws Exception {
+		Cardbase loaded = Cardbase.loadLazily(cardbaseFile, null);
+		File copyFile = tempFolder.newFile("copy.cb");
+
+		loaded.write(copyFile);
+
+		assertSameContents(testbase, Cardbase.load(copyFile));
+	}
+
+	@Test
+	public void indexIsTrustedWhileLengthAndTimeMatch() throws Exception {
+		// as if the file had been written in an earlier session
+		long modified = System.currentTimeMillis() / 1000 * 1000 - 60000;
+		cardbaseFile.setLastModified(modified);
+		Cardbase.loadLazily(cardbaseFile, null);
+		String contents = new String(Files.readAllBytes(cardbaseFile.toPath()), StandardCharsets.UTF_8);
+		Files.write(cardbaseFile.toPath(), contents.replace("\"FRF/129\":8", "\"FRF/129\":9").getBytes(StandardCharsets.UTF_8));
+		cardbaseFile.setLastModified(modified);
+
+		Cardbase loaded = Cardbase.loadLazily(cardbaseFile, null);
+
+		assertEquals("Counts should have been read from the index, not the file.", 8, loaded.getCount(testbase.getCard("FRF", "129")));
+	}
+
+	@Test
+	public void checksumOfLoadedFileIsKept() throws Exception {
+		CRC32 crc = new CRC32();
+		crc.update(Files.readAllBytes(cardbaseFile.toPath()));
+
+		assertEquals("Wrong checksum.", crc.getValue(), Cardbase.loadLazily(cardbaseFile, null).getFileChecksum());
+	}
+
+	/*
+	 * Edge cases
+	 */
+	@Test
+	public void staleIndexIsMadeAgain() throws Exception {
+		Cardbase.loadLazily(cardbaseFile, null);
+		testbase.addCard(testCard, 2);
+		testbase.write(cardbaseFile);
+
+		Cardbase loaded = Cardbase.loadLazily(cardbaseFile, null);
+
+		assertEquals("Card added after the index was made is missing.", 2, loaded.getCount(testCard));
+		assertSameContents(testbase, loaded);
+	}
+
+	@Test
+	public void indexIsMadeAgainWhenOnlyContentsChange() throws Exception {
+		testbase.addCard(testCard, 2);
+		testbase.write(cardbaseFile);
+		long length = cardbaseFile.length(), modified = cardbaseFile.lastModified();
+		Cardbase.loadLazily(cardbaseFile, null);
+		testbase.addCard(testCard, 1);
+		testbase.write(cardbaseFile);
+		// the file was modified too recently for its modification time to be trusted
+		cardbaseFile.setLastModified(modified);
+		assertEquals("File should have kept its length.", length, cardbaseFile.length());
+
+		Cardbase loaded = Cardbase.loadLazily(cardbaseFile, null);
+
+		assertEquals("Index should have been made again.", 3, loaded.getCount(testCard));
+	}
+
+	@Test
+	public void damagedIndexIsMadeAgain() throws Exception {
+		Cardbase.loadLazily(cardbaseFile, null);
+		Files.write(indexFile.toPath(), Arrays.copyOf(Files.readAllBytes(indexFile.toPath()), 30));
+
+		assertSameContents(testbase, Cardbase.loadLazily(cardbaseFile, null));
+	}
+
+	@Test
+	public void legacyFileIsNotLoadedLazily() throws Exception {
+		File legacyFile = new File(getClass().getResource("/testbase.cb").getFile());
+
+		assertFalse("Legacy file should not have been loaded.", CardOffsetIndex.load(legacyFile, new StandaloneCardContainer(), null));
+		assertSameContents(testbase, Cardbase.loadLazily(legacyFile, null));
+	}
+
+	@Test
+	public void emptyCardbaseIsLoaded() throws Exception {
+		new Cardbase().write(cardbaseFile);
+
+		assertEquals("Cardbase should be empty.", 0, Cardbase.loadLazily(cardbaseFile, null).getCards().size());
+	}
+
+	private static void assertSameContents(Cardbase expected, Cardbase actual) throws Exception {
+		List<Card> expectedCards = expected.getCards(), actualCards = actual.getCards();
+		assertEquals("Wrong number of cards.", expectedCards.size(), actualCards.size());
+		for (int i = 0; i < expectedCards.size(); i++) {
+			for (Field field : Card.class.getFields()) {
+				if (CardField.class.isAssignableFrom(field.getType())) {
+					assertEquals("Wrong " + field.getName() + " for card " + expectedCards.get(i).number.get() + ".",
+							((CardField<?>) field.get(expectedCards.get(i))).get(), ((CardField<?>) field.get(actualCards.get(i))).get());
+				}
+			}
+			assertEquals("Wrong count.", expected.getCount(expectedCards.get(i)), actual.getCount(actualCards.get(i)));
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package eu.equalparts.cardbase.containers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.card.FullCardSet;
+import eu.equalparts.cardbase.cardfield.CardField;
+import eu.equalparts.cardbase.json.JSON;
+import eu.equalparts.cardbase.sorting.CardSorting;
+
+public class ColumnarCardStoreTest {
+	private ColumnarCardStore uut;
+	private static List<Card> testCards;
+
+	@Rule
+	public final ExpectedException exception = ExpectedException.none();
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		testCards = new ArrayList<>();
+		for (String setFile : new String[] { "FRF.json", "M15.json" }) {
+			try (InputStream in = ColumnarCardStoreTest.class.getResourceAsStream("/eu/equalparts/cardbase/cli/" + setFile)) {
+				testCards.addAll(JSON.mapper.readValue(in, FullCardSet.class).cards.values());
+			}
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		uut = new ColumnarCardStore();
+	}
+
+	/***********************************************************************************
+	 * Storing card tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void viewsHaveAllFieldsOfAddedCards() throws Exception {
+		uut.addAll(testCards);
+
+		assertEquals("Wrong number of cards in store.", testCards.size(), uut.size());
+		for (int i = 0; i < testCards.size(); i++) {
+			assertSameFields(testCards.get(i), uut.get(i));
+		}
+	}
+
+	@Test
+	public void addReturnsIndexOfCard() throws Exception {
+		assertEquals("Wrong index for first card.", 0, uut.add(testCards.get(0)));
+		assertEquals("Wrong index for second card.", 1, uut.add(testCards.get(1)));
+		assertEquals("Wrong card at index.", testCards.get(1).name.get(), uut.get(1).name.get());
+	}
+
+	@Test
+	public void iteratorReturnsCardsInOrder() throws Exception {
+		uut.addAll(testCards);
+
+		Iterator<Card> iterator = uut.iterator();
+		for (Card expected : testCards) {
+			Card actual = iterator.next();
+			assertEquals("Wrong card from iterator.", expected.setCode.get() + expected.number.get(), actual.setCode.get() + actual.number.get());
+		}
+		assertFalse("Iterator should have been exhausted.", iterator.hasNext());
+	}
+
+	@Test
+	public void settingViewFieldChangesStore() throws Exception {
+		uut.addAll(testCards);
+
+		uut.get(3).name.set("Renamed");
+		uut.get(3).artist.set("Someone New");
+		uut.get(3).cmc.set(42);
+
+		assertEquals("String field was not changed.", "Renamed", uut.get(3).name.get());
+		assertEquals("Dictionary field was not changed.", "Someone New", uut.get(3).artist.get());
+		assertEquals("Integer field was not changed.", Integer.valueOf(42), uut.get(3).cmc.get());
+		assertEquals("Other cards should not have changed.", testCards.get(4).name.get(), uut.get(4).name.get());
+	}
+
+	@Test
+	public void addedCardIsCopied() throws Exception {
+		Card card = JSON.mapper.readValue(ColumnarCardStoreTest.class.getResourceAsStream("/shivandragon.json"), Card.class);
+		uut.add(card);
+		String originalName = card.name.get();
+
+		card.name.set("Changed Afterwards");
+
+		assertEquals("Store should not reflect changes to the added card.", originalName, uut.get(0).name.get());
+	}
+
+	@Test
+	public void viewsCanBeSorted() throws Exception {
+		uut.addAll(testCards);
+		List<Card> views = new ArrayList<>();
+		uut.forEach(views::add);
+		List<Card> cards = new ArrayList<>(testCards);
+
+		CardSorting.sortByField(views, "name");
+		CardSorting.sortByField(cards, "name");
+
+		for (int i = 0; i < cards.size(); i++) {
+			assertEquals("Views were sorted differently from cards.", cards.get(i).name.get(), views.get(i).name.get());
+		}
+	}
+
+	/*
+	 * Edge cases
+	 */
+	@Test
+	public void nullFieldsStayNull() throws Exception {
+		Card card = JSON.mapper.readValue(ColumnarCardStoreTest.class.getResourceAsStream("/shivandragon.json"), Card.class);
+		card.artist.set(null);
+		card.loyalty.set(null);
+		card.flavor.set(null);
+
+		uut.add(card);
+
+		assertNull("Dictionary field should be null.", uut.get(0).artist.get());
+		assertNull("Integer field should be null.", uut.get(0).loyalty.get());
+		assertNull("String field should be null.", uut.get(0).flavor.get());
+	}
+
+	@Test
+	public void trimmedStoreKeepsCardsAndGrowsAgain() throws Exception {
+		uut.addAll(testCards.subList(0, 20));
+		uut.trimToSize();
+		uut.add(testCards.get(20));
+
+		for (int i = 0; i <= 20; i++) {
+			assertSameFields(testCards.get(i), uut.get(i));
+		}
+	}
+
+	@Test
+	public void indexOutOfRange() throws Exception {
+		uut.add(testCards.get(0));
+
+		exception.expect(IndexOutOfBoundsException.class);
+		uut.get(1);
+	}
+
+	private static void assertSameFields(Card expected, Card actual) throws Exception {
+		for (Field field : Card.class.getFields()) {
+			if (CardField.class.isAssignableFrom(field.getType())) {
+				assertEquals("Wrong " + field.getName() + " for card " + expected.number.get() + ".",
+						((CardField<?>) field.get(expected)).get(), ((CardField<?>) field.get(actual)).get());
+			}
+		}
+	}
+}
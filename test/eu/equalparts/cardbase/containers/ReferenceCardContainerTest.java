@@ -2,6 +2,12 @@ package eu.equalparts.cardbase.containers;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Rule;
@@ -124,6 +130,116 @@ public class ReferenceCardContainerTest {
 		assertEquals("Container reports wrong removed count.", 0, removed);
 	}
 	
+	/***********************************************************************************
+	 * Card identity tests
+	 ***********************************************************************************/
+	@Test
+	public void cardsWithCollidingHashesAreCountedSeparately() throws Exception {
+		Card first = cardWith("M12", "2");
+		Card second = cardWith("M22", "1");
+		assertEquals("Test cards should have colliding hashes.", first.hashCode(), second.hashCode());
+		
+		uut.addCard(first, 2);
+		uut.addCard(second, 3);
+		
+		assertEquals("Wrong count for first card.", 2, uut.getCount(first));
+		assertEquals("Wrong count for second card.", 3, uut.getCount(second));
+		
+		uut.removeCard(first, 2);
+		
+		assertEquals("First card should have been removed.", 0, uut.getCount(first));
+		assertEquals("Second card should be unaffected.", 3, uut.getCount(second));
+	}
+	
+	@Test
+	public void countsMatchAfterManyAddsAndRemoves() throws Exception {
+		Map<String, Integer> expected = new HashMap<>();
+		List<Card> cards = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			cards.add(cardWith("S" + (i % 7), Integer.toString(i)));
+		}
+		Random random = new Random(0);
+		for (int i = 0; i < 20000; i++) {
+			Card card = cards.get(random.nextInt(cards.size()));
+			String key = card.setCode.get() + card.number.get();
+			int count = random.nextInt(5) + 1;
+			if (random.nextBoolean()) {
+				uut.addCard(card, count);
+				expected.merge(key, count, Integer::sum);
+			} else {
+				uut.removeCard(card, count);
+				expected.computeIfPresent(key, (k, present) -> present > count ? present - count : null);
+			}
+		}
+		
+		for (Card card : cards) {
+			assertEquals("Wrong count for card " + card.number.get(), expected.getOrDefault(card.setCode.get() + card.number.get(), 0).intValue(), uut.getCount(card));
+		}
+	}
+	
+	/***********************************************************************************
+	 * JSON tests
+	 ***********************************************************************************/
+	@Test
+	public void countsAreReadBack() throws Exception {
+		Card other = cardWith("M22", "1");
+		uut.addCard(testCard, 3);
+		uut.addCard(other, 1);
+		
+		ReferenceCardContainer read = JSON.mapper.readValue(JSON.mapper.writeValueAsString(uut), ReferenceCardContainer.class);
+		
+		assertEquals("Wrong count for test card.", 3, read.getCount(testCard));
+		assertEquals("Wrong count for other card.", 1, read.getCount(other));
+	}
+	
+	@Test
+	public void countsKeyedByHashAreRead() throws Exception {
+		ReferenceCardContainer read = JSON.mapper.readValue("{\"cardReferences\":{\"" + testCard.hashCode() + "\":4}}", ReferenceCardContainer.class);
+		
+		assertEquals("Wrong count for test card.", 4, read.getCount(testCard));
+		
+		read.addCard(testCard, 1);
+		
+		assertEquals("Wrong count after adding to test card.", 5, read.getCount(testCard));
+	}
+	
+	@Test
+	public void unresolvedCountsKeyedByHashAreWrittenBack() throws Exception {
+		String json = "{\"cardReferences\":{\"" + testCard.hashCode() + "\":4}}";
+		ReferenceCardContainer read = JSON.mapper.readValue(json, ReferenceCardContainer.class);
+		
+		ReferenceCardContainer reread = JSON.mapper.readValue(JSON.mapper.writeValueAsString(read), ReferenceCardContainer.class);
+		
+		assertEquals("Wrong count for test card.", 4, reread.getCount(testCard));
+	}
+	
+	@Test
+	public void countingCardKeyedByHashDoesNotChangeContainer() throws Exception {
+		ReferenceCardContainer read = JSON.mapper.readValue("{\"cardReferences\":{\"" + testCard.hashCode() + "\":4}}", ReferenceCardContainer.class);
+		
+		assertEquals("Wrong count for test card.", 4, read.getCount(testCard));
+		
+		assertEquals("Counting should not have created an entry.", 0, read.cardReferences.size());
+		assertEquals("Counting should not have moved the legacy count.", Integer.valueOf(4), read.legacyReferences.get(testCard.hashCode()));
+	}
+	
+	@Test
+	public void removingCardKeyedByHashMovesItsCount() throws Exception {
+		ReferenceCardContainer read = JSON.mapper.readValue("{\"cardReferences\":{\"" + testCard.hashCode() + "\":4}}", ReferenceCardContainer.class);
+		
+		assertEquals("Wrong amount removed.", 1, read.removeCard(testCard, 1));
+		
+		assertEquals("Wrong count after removing test card.", 3, read.getCount(testCard));
+		assertEquals("Legacy count should have been moved.", 0, read.legacyReferences.size());
+	}
+	
+	private static Card cardWith(String setCode, String number) throws Exception {
+		Card card = JSON.mapper.readValue(ReferenceCardContainerTest.class.getResourceAsStream("/shivandragon.json"), Card.class);
+		card.setCode.set(setCode);
+		card.number.set(number);
+		return card;
+	}
+	
 	/***********************************************************************************
 	 * Land tests
 	 ***********************************************************************************/
@@ -1,11 +1,20 @@
 package eu.equalparts.cardbase.containers;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -14,6 +23,8 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+
 import eu.equalparts.cardbase.card.Card;
 import eu.equalparts.cardbase.json.JSON;
 
@@ -165,4 +176,172 @@ public class StandaloneCardContainerTest {
 	public void getCardIsNotInCardbase() throws Exception {
 		assertNull("Method should have returned null", uut.getCard(testCard.setCode.get(), testCard.number.get()));
 	}
+	
+	@Test
+	public void cardsAndCountsAreReadBack() throws Exception {
+		uut.addCard(testCard, 3);
+		
+		StandaloneCardContainer read = JSON.mapper.readValue(JSON.mapper.writeValueAsString(uut), StandaloneCardContainer.class);
+		
+		assertEquals("Wrong count for test card.", 3, read.getCount(testCard));
+		assertEquals("Wrong card returned.", testCard.name.get(), read.getCard(testCard.setCode.get(), testCard.number.get()).name.get());
+	}
+	
+	@Test
+	public void cardsAndCountsKeyedByHashAreRead() throws Exception {
+		String cardJson = JSON.mapper.writeValueAsString(testCard);
+		String json = "{\"cardReferences\":{\"" + testCard.hashCode() + "\":2},\"cardData\":{\"" + testCard.hashCode() + "\":" + cardJson + "}}";
+		
+		StandaloneCardContainer read = JSON.mapper.readValue(json, StandaloneCardContainer.class);
+		
+		assertEquals("Wrong count for test card.", 2, read.getCount(testCard));
+		assertEquals("Wrong number of cards.", 1, read.getCards().size());
+		assertTrue("Legacy counts should be written by set code and number.", JSON.mapper.writeValueAsString(read).contains(testCard.setCode.get() + "/" + testCard.number.get() + "\":2"));
+	}
+	
+	/***********************************************************************************
+	 * Card view tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void forEachHandsOverCardsWithCountsInOrder() throws Exception {
+		List<Card> cards = testCards();
+		for (int i = 0; i < cards.size(); i++) {
+			uut.addCard(cards.get(i), i + 1);
+		}
+		List<Card> visited = new ArrayList<>();
+		List<Integer> counts = new ArrayList<>();
+
+		uut.forEach((card, count) -> {
+			visited.add(card);
+			counts.add(count);
+		});
+
+		assertEquals("Cards were not visited in order.", uut.getCards(), visited);
+		for (int i = 0; i < visited.size(); i++) {
+			assertEquals("Wrong count for " + visited.get(i).name.get() + ".", uut.getCount(visited.get(i)), (int) counts.get(i));
+		}
+	}
+
+	@Test
+	public void cardViewReflectsChanges() throws Exception {
+		Collection<Card> view = uut.getCardView();
+		assertTrue("View should be empty.", view.isEmpty());
+
+		uut.addCard(testCard, 2);
+
+		assertEquals("View should contain the added card.", 1, view.size());
+		assertTrue("View should contain the added card.", view.contains(testCard));
+		assertEquals("Wrong card in view.", testCard, view.iterator().next());
+
+		uut.removeCard(testCard, 2);
+
+		assertFalse("View should not contain the removed card.", view.contains(testCard));
+		assertTrue("View should be empty.", view.isEmpty());
+	}
+
+	@Test
+	public void cardsAreStreamedInOrder() throws Exception {
+		for (Card card : testCards()) {
+			uut.addCard(card, 1);
+		}
+
+		List<Card> streamed = StreamSupport.stream(uut.spliterator(), false).collect(Collectors.toList());
+
+		assertEquals("Cards were not streamed in order.", uut.getCards(), streamed);
+		assertEquals("View should stream the same cards.", streamed, uut.getCardView().stream().collect(Collectors.toList()));
+	}
+
+	/*
+	 * Edge cases
+	 */
+	@Test
+	public void cardViewIsUnmodifiable() throws Exception {
+		uut.addCard(testCard, 1);
+
+		exception.expect(UnsupportedOperationException.class);
+		uut.getCardView().clear();
+	}
+
+	@Test
+	public void cardsWhichCannotBeLookedUpAreLeftOutOfView() throws Exception {
+		StandaloneCardContainer read = JSON.mapper.readValue("{\"cardReferences\":{\"M15/281\":3,\"M15/1\":1}}", StandaloneCardContainer.class);
+		read.setCardSource((setCode, number) -> number.equals("281") ? testCard : null);
+		List<Card> visited = new ArrayList<>();
+
+		read.forEach((card, count) -> visited.add(card));
+
+		assertEquals("Only the card found should have been visited.", Arrays.asList(testCard), visited);
+		assertEquals("Only the card found should be in the view.", Arrays.asList(testCard), new ArrayList<>(read.getCardView()));
+		assertEquals("Only the card found should have been streamed.", 1, StreamSupport.stream(read.spliterator(), false).count());
+	}
+
+	@Test
+	public void viewSizeDoesNotLookCardsUp() throws Exception {
+		StandaloneCardContainer read = JSON.mapper.readValue("{\"cardReferences\":{\"M15/281\":3,\"M15/1\":1}}", StandaloneCardContainer.class);
+		AtomicInteger lookups = new AtomicInteger();
+		read.setCardSource((setCode, number) -> {
+			lookups.incrementAndGet();
+			return testCard;
+		});
+
+		assertEquals("View should have an element per entry.", 2, read.getCardView().size());
+		assertEquals("Nothing should have been looked up.", 0, lookups.get());
+	}
+
+	/***********************************************************************************
+	 * Card source tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void missingCardIsLookedUpOnceWhenNeeded() throws Exception {
+		StandaloneCardContainer read = JSON.mapper.readValue("{\"cardReferences\":{\"M15/281\":3}}", StandaloneCardContainer.class);
+		AtomicInteger lookups = new AtomicInteger();
+		read.setCardSource((setCode, number) -> {
+			lookups.incrementAndGet();
+			return setCode.equals(testCard.setCode.get()) && number.equals(testCard.number.get()) ? testCard : null;
+		});
+		
+		assertEquals("Nothing should be looked up before it is needed.", 0, lookups.get());
+		assertEquals("Wrong card returned.", testCard, read.getCard("M15", "281"));
+		assertEquals("Wrong number of cards.", 1, read.getCards().size());
+		assertEquals("Card should only have been looked up once.", 1, lookups.get());
+		assertEquals("Wrong count for looked up card.", 3, read.getCount(testCard));
+	}
+	
+	@Test
+	public void lookingUpCardLeavesEntriesAsTheyAre() throws Exception {
+		StandaloneCardContainer read = JSON.mapper.readValue("{\"cardReferences\":{\"M15/281\":3}}", StandaloneCardContainer.class);
+		AtomicInteger lookups = new AtomicInteger();
+		read.setCardSource((setCode, number) -> {
+			lookups.incrementAndGet();
+			return testCard;
+		});
+		StandaloneCardContainer copy = new StandaloneCardContainer(read);
+
+		assertEquals("Wrong card returned.", testCard, read.getCard("M15", "281"));
+
+		assertNull("Looked up card should not have been stored in the entry.", read.cardReferences.card(read.cardReferences.find("M15", "281")));
+		assertEquals("Copy should share the looked up card.", testCard, copy.getCard("M15", "281"));
+		assertEquals("Card should only have been looked up once.", 1, lookups.get());
+	}
+	
+	/*
+	 * Edge cases
+	 */
+	@Test
+	public void cardWhichCannotBeLookedUpStaysMissing() throws Exception {
+		StandaloneCardContainer read = JSON.mapper.readValue("{\"cardReferences\":{\"M15/281\":3}}", StandaloneCardContainer.class);
+		read.setCardSource((setCode, number) -> {
+			throw new IOException("Offline.");
+		});
+		
+		assertNull("Card should not have been found.", read.getCard("M15", "281"));
+		assertEquals("Card should have been left out.", 0, read.getCards().size());
+		
+		read.setCardSource((setCode, number) -> testCard);
+		assertEquals("Card should be looked up again.", testCard, read.getCard("M15", "281"));
+	}
+
+	private static List<Card> testCards() throws IOException {
+		return JSON.mapper.readValue(StandaloneCardContainerTest.class.getResourceAsStream("/testcards.json"), new TypeReference<List<Card>>() {});
+	}
 }
@@ -3,6 +3,7 @@ package eu.equalparts.cardbase.filtering;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -1062,6 +1063,150 @@ public class CardFilteringTest {
 		CardFiltering.filterByField(testCards, filter);
 	}
 
+	/*
+	 * Compiled filter tests
+	 */
+	@Test
+	public void compiledFilterIsNotAffectedByChangesToFilter() throws Exception {
+		Filter filter = new Filter(FilterType.CONTAINS, "name", "SH");
+		CompiledFilter compiledFilter = filter.compile();
+		filter.value = "Callow";
+
+		testCards.removeIf(compiledFilter.negate());
+
+		assertEquals("Wrong list size.", 3, testCards.size());
+	}
+
+	@Test
+	public void numericFilterOnTextFieldFailsToCompile() throws Exception {
+		Filter filter = new Filter(FilterType.GREATER_THAN, "text", "0");
+		exception.expect(IllegalArgumentException.class);
+
+		filter.compile();
+	}
+
+	@Test
+	public void compiledFilterFieldDoesNotExist() throws Exception {
+		Filter filter = new Filter(FilterType.EQUALS, "not a field name", "0");
+		exception.expect(NoSuchFieldException.class);
+
+		filter.compile();
+	}
+
+	/*
+	 * Filter expression tests
+	 */
+	@Test
+	public void filterByAndExpression() throws Exception {
+		FilterExpression expression = FilterExpression.and(
+				FilterExpression.of(new Filter(FilterType.CONTAINS, "type", "creature")),
+				FilterExpression.of(new Filter(FilterType.SMALLER_THAN, "cmc", "6")));
+
+		CardFiltering.filterByExpression(testCards, expression);
+
+		assertEquals("Wrong list size.", 2, testCards.size());
+		assertEquals("Callow Jushi", testCards.get(0).name.get());
+		assertEquals("Ugin's Construct", testCards.get(1).name.get());
+	}
+
+	@Test
+	public void filterByOrExpression() throws Exception {
+		FilterExpression expression = FilterExpression.or(
+				FilterExpression.of(new Filter(FilterType.REGEX, "name", "S.*")),
+				FilterExpression.of(new Filter(FilterType.EQUALS, "layout", "flip")));
+
+		CardFiltering.filterByExpression(testCards, expression);
+
+		assertEquals("Wrong list size.", 3, testCards.size());
+		assertEquals("Callow Jushi", testCards.get(0).name.get());
+		assertEquals("Shivan Dragon", testCards.get(1).name.get());
+		assertEquals("Sorin Markov", testCards.get(2).name.get());
+	}
+
+	@Test
+	public void filterByNotExpression() throws Exception {
+		FilterExpression expression = FilterExpression.not(FilterExpression.of(new Filter(FilterType.CONTAINS, "name", "sh")));
+
+		CardFiltering.filterByExpression(testCards, expression);
+
+		assertEquals("Wrong list size.", 5, testCards.size());
+	}
+
+	@Test
+	public void filterByNestedExpression() throws Exception {
+		FilterExpression expression = FilterExpression.and(
+				FilterExpression.or(
+						FilterExpression.of(new Filter(FilterType.EQUALS, "rarity", "rare")),
+						FilterExpression.of(new Filter(FilterType.EQUALS, "rarity", "mythic rare"))),
+				FilterExpression.not(FilterExpression.of(new Filter(FilterType.GREATER_THAN, "cmc", "5"))));
+
+		CardFiltering.filterByExpression(testCards, expression);
+
+		assertEquals("Wrong list size.", 1, testCards.size());
+		assertEquals("Disrupting Shoal", testCards.get(0).name.get());
+	}
+
+	@Test
+	public void expressionFieldDoesNotExist() throws Exception {
+		FilterExpression expression = FilterExpression.and(
+				FilterExpression.of(new Filter(FilterType.EQUALS, "name", "Nightmare")),
+				FilterExpression.of(new Filter(FilterType.EQUALS, "not a field name", "0")));
+		exception.expect(NoSuchFieldException.class);
+
+		CardFiltering.filterByExpression(testCards, expression);
+	}
+
+	/*
+	 * Non-destructive filtering tests
+	 */
+	@Test
+	public void selectByFieldLeavesOriginalUntouched() throws Exception {
+		Filter filter = new Filter(FilterType.CONTAINS, "name", "sh");
+
+		List<Card> selected = CardFiltering.selectByField(testCards, filter);
+
+		assertEquals("Original list should not have changed.", allTestCards.size(), testCards.size());
+		assertEquals("Wrong list size.", 3, selected.size());
+		assertEquals("Callow Jushi", selected.get(0).name.get());
+		assertEquals("Shivan Dragon", selected.get(1).name.get());
+		assertEquals("Disrupting Shoal", selected.get(2).name.get());
+	}
+
+	@Test
+	public void selectByExpressionLeavesOriginalUntouched() throws Exception {
+		FilterExpression expression = FilterExpression.and(
+				FilterExpression.of(new Filter(FilterType.EQUALS, "setCode", "M15")),
+				FilterExpression.of(new Filter(FilterType.GREATER_THAN, "number", "280")));
+
+		List<Card> selected = CardFiltering.selectByExpression(testCards, expression);
+
+		assertEquals("Original list should not have changed.", allTestCards.size(), testCards.size());
+		assertEquals("Wrong list size.", 1, selected.size());
+		assertEquals("Shivan Dragon", selected.get(0).name.get());
+	}
+
+	@Test
+	public void parallelSelectionKeepsOrder() throws Exception {
+		List<Card> largeList = new ArrayList<>();
+		while (largeList.size() < CardFiltering.PARALLEL_THRESHOLD) {
+			largeList.addAll(allTestCards);
+		}
+		CompiledFilter compiledFilter = new Filter(FilterType.CONTAINS, "type", "creature").compile();
+		List<Card> expected = new ArrayList<>();
+		for (Card card : largeList) {
+			if (compiledFilter.test(card)) {
+				expected.add(card);
+			}
+		}
+
+		List<Card> selected = CardFiltering.selectByField(largeList, new Filter(FilterType.CONTAINS, "type", "creature"));
+
+		assertEquals("Wrong list size.", expected.size(), selected.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertTrue("Wrong card at i = " + i, expected.get(i) == selected.get(i));
+		}
+	}
+
 	/*
 	 * Filter validation tests, happy path
 	 */
@@ -1151,4 +1296,20 @@ public class CardFilteringTest {
 
 		assertTrue(!CardFiltering.isFilterValid(testFilter));
 	}
+
+	@Test
+	public void lowCardinalityEqualsMatchesValuesNotFromDictionary() throws Exception {
+		// a copy of the card whose rarity is not the dictionary's instance, as a card built by hand would have
+		Card copy = JSON.mapper.readValue(JSON.mapper.writeValueAsBytes(testCards.get(0)), Card.class);
+		copy.rarity.set(new String(copy.rarity.get()));
+		testCards.set(0, copy);
+		String rarity = copy.rarity.get();
+		long expected = testCards.stream().filter(card -> card.rarity.get().equalsIgnoreCase(rarity)).count();
+		Filter filter = new Filter(FilterType.EQUALS, "rarity", rarity.toUpperCase());
+
+		List<Card> selected = CardFiltering.selectByField(testCards, filter);
+
+		assertEquals("Wrong list size.", expected, selected.size());
+		assertTrue("Card with a copied value should have matched.", selected.contains(copy));
+	}
 }
@@ -0,0 +1,148 @@
+package eu.equalparts.cardbase.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.cardfield.CardField;
+import eu.equalparts.cardbase.cardfield.IntegerCardField;
+import eu.equalparts.cardbase.cardfield.StringCardField;
+
+public class CardDeserializerTest {
+
+	@Rule
+	public final ExpectedException exception = ExpectedException.none();
+
+	/***********************************************************************************
+	 * Deserialisation tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void testCardsMatchTreeModel() throws Exception {
+		List<JsonNode> nodes = JSON.mapper.readValue(getClass().getResourceAsStream("/testcards.json"), new TypeReference<List<JsonNode>>() {});
+
+		for (JsonNode node : nodes) {
+			assertSameFields(fromTree(node), JSON.mapper.treeToValue(node, Card.class));
+			assertSameFields(fromTree(node), JSON.mapper.readValue(node.toString(), Card.class));
+		}
+	}
+
+	@Test
+	public void unknownFieldsAreSkipped() throws Exception {
+		Card card = read("{\"name\":\"Shivan Dragon\",\"colors\":[\"Red\",[1,2],{\"a\":[]}],\"foreignNames\":{\"de\":{\"name\":\"x\"}},"
+				+ "\"reserved\":true,\"rulings\":null,\"hand\":-1,\"number\":\"281\"}");
+
+		assertEquals("Wrong name.", "Shivan Dragon", card.name.get());
+		assertEquals("Field after skipped fields was not read.", "281", card.number.get());
+	}
+
+	@Test
+	public void missingFieldsAreNull() throws Exception {
+		Card card = read("{\"name\":\"Shivan Dragon\"}");
+
+		assertNull("Missing string should be null.", card.type.get());
+		assertNull("Missing integer should be null.", card.cmc.get());
+	}
+
+	@Test
+	public void scalarsAreCoercedToText() throws Exception {
+		Card card = read("{\"power\":4,\"toughness\":2.5,\"text\":true,\"flavor\":null,\"type\":{\"a\":1},\"artist\":[1]}");
+
+		assertEquals("Integer should have been read as text.", "4", card.power.get());
+		assertEquals("Decimal should have been read as text.", "2.5", card.toughness.get());
+		assertEquals("Boolean should have been read as text.", "true", card.text.get());
+		assertNull("Null should have been read as null.", card.flavor.get());
+		assertEquals("Object should have been read as empty text.", "", card.type.get());
+		assertEquals("Array should have been read as empty text.", "", card.artist.get());
+	}
+
+	@Test
+	public void scalarsAreCoercedToIntegers() throws Exception {
+		Card card = read("{\"cmc\":\"6\",\"loyalty\":true,\"multiverseid\":2.9}");
+
+		assertEquals("Numeric text should have been read as an integer.", Integer.valueOf(6), card.cmc.get());
+		assertEquals("Boolean should have been read as an integer.", Integer.valueOf(1), card.loyalty.get());
+		assertEquals("Decimal should have been truncated.", Integer.valueOf(2), card.multiverseid.get());
+	}
+
+	/*
+	 * Edge cases
+	 */
+	@Test
+	public void unusualValuesMatchTreeModel() throws Exception {
+		String json = "{\"cmc\":\"six\",\"loyalty\":null,\"multiverseid\":{\"id\":3},\"power\":[\"*\"],\"toughness\":false,\"number\":12}";
+
+		assertSameFields(fromTree(JSON.mapper.readTree(json)), read(json));
+	}
+
+	@Test
+	public void emptyObjectHasNullFields() throws Exception {
+		Card card = read("{}");
+
+		for (Field field : Card.class.getFields()) {
+			if (CardField.class.isAssignableFrom(field.getType())) {
+				assertNull("Field " + field.getName() + " should be null.", ((CardField<?>) field.get(card)).get());
+			}
+		}
+	}
+
+	@Test
+	public void truncatedCardIsRejected() throws Exception {
+		exception.expect(JsonProcessingException.class);
+		read("{\"name\":\"Shivan Dragon\",");
+	}
+
+	private static Card read(String json) throws Exception {
+		return JSON.mapper.readValue(json, Card.class);
+	}
+
+	/**
+	 * Reads a card the way {@code CardDeserializer} used to, through the tree model.
+	 */
+	private static Card fromTree(JsonNode node) {
+		Card card = new Card();
+		card.name = new StringCardField("name", text(node, "name"));
+		card.layout = new StringCardField("layout", text(node, "layout"));
+		card.manaCost = new StringCardField("manaCost", text(node, "manaCost"));
+		card.cmc = new IntegerCardField("cmc", integer(node, "cmc"));
+		card.type = new StringCardField("type", text(node, "type"));
+		card.rarity = new StringCardField("rarity", text(node, "rarity"));
+		card.text = new StringCardField("text", text(node, "text"));
+		card.flavor = new StringCardField("flavor", text(node, "flavor"));
+		card.artist = new StringCardField("artist", text(node, "artist"));
+		card.number = new StringCardField("number", text(node, "number"));
+		card.power = new StringCardField("power", text(node, "power"));
+		card.toughness = new StringCardField("toughness", text(node, "toughness"));
+		card.loyalty = new IntegerCardField("loyalty", integer(node, "loyalty"));
+		card.multiverseid = new IntegerCardField("multiverseid", integer(node, "multiverseid"));
+		card.imageName = new StringCardField("imageName", text(node, "imageName"));
+		card.setCode = new StringCardField("setCode", text(node, "setCode"));
+		return card;
+	}
+
+	private static String text(JsonNode node, String field) {
+		return node.hasNonNull(field) ? node.get(field).asText() : null;
+	}
+
+	private static Integer integer(JsonNode node, String field) {
+		return node.hasNonNull(field) ? node.get(field).asInt() : null;
+	}
+
+	private static void assertSameFields(Card expected, Card actual) throws Exception {
+		for (Field field : Card.class.getFields()) {
+			if (CardField.class.isAssignableFrom(field.getType())) {
+				assertEquals("Wrong " + field.getName() + ".", ((CardField<?>) field.get(expected)).get(), ((CardField<?>) field.get(actual)).get());
+			}
+		}
+	}
+}
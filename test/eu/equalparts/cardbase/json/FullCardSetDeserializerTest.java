@@ -0,0 +1,95 @@
+package eu.equalparts.cardbase.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import eu.equalparts.cardbase.card.FullCardSet;
+
+public class FullCardSetDeserializerTest {
+
+	@Rule
+	public final ExpectedException exception = ExpectedException.none();
+
+	/***********************************************************************************
+	 * Deserialisation tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void setIsRead() throws Exception {
+		FullCardSet set = read("{\"name\":\"Magic 2015\",\"code\":\"M15\",\"releaseDate\":\"2014-07-18\",\"border\":\"black\","
+				+ "\"type\":\"core\",\"booster\":[\"rare\",[\"a\",\"b\"]],\"cards\":[" + card("281", null) + "," + card("1", null) + "]}");
+
+		assertEquals("Wrong name.", "Magic 2015", set.name);
+		assertEquals("Wrong code.", "M15", set.code);
+		assertEquals("Wrong type.", "core", set.type);
+		assertEquals("Wrong number of cards.", 2, set.cards.size());
+		assertEquals("Card was not given the set code.", "M15", set.cards.get("281").setCode.get());
+	}
+
+	@Test
+	public void codeAfterCardsIsGivenToCards() throws Exception {
+		FullCardSet set = read("{\"name\":\"Magic 2015\",\"cards\":[" + card("281", null) + "],\"releaseDate\":\"2014-07-18\",\"code\":\"M15\"}");
+
+		assertNotNull("Card was not read.", set.cards.get("281"));
+		assertEquals("Card was not given the set code.", "M15", set.cards.get("281").setCode.get());
+	}
+
+	/*
+	 * Edge cases
+	 */
+	@Test
+	public void cardSetCodeIsKeptWhenCodeComesAfterCards() throws Exception {
+		FullCardSet set = read("{\"name\":\"Magic 2015\",\"cards\":[" + card("281", "PM15") + "," + card("1", null) + "],"
+				+ "\"releaseDate\":\"2014-07-18\",\"code\":\"M15\"}");
+
+		assertEquals("Card's own set code was overwritten.", "PM15", set.cards.get("281").setCode.get());
+		assertEquals("Card without a set code was not given one.", "M15", set.cards.get("1").setCode.get());
+	}
+
+	@Test
+	public void cardSetCodeIsKeptWhenCodeComesBeforeCards() throws Exception {
+		FullCardSet set = read("{\"name\":\"Magic 2015\",\"code\":\"M15\",\"releaseDate\":\"2014-07-18\",\"cards\":[" + card("281", "PM15") + "]}");
+
+		assertEquals("Card's own set code was overwritten.", "PM15", set.cards.get("281").setCode.get());
+	}
+
+	@Test
+	public void missingCardsAreRejected() throws Exception {
+		exception.expect(JsonMappingException.class);
+		exception.expectMessage("cards");
+		read("{\"name\":\"Magic 2015\",\"code\":\"M15\",\"releaseDate\":\"2014-07-18\"}");
+	}
+
+	@Test
+	public void cardsWhichAreNotAnArrayAreRejected() throws Exception {
+		exception.expect(JsonMappingException.class);
+		exception.expectMessage("cards");
+		read("{\"name\":\"Magic 2015\",\"code\":\"M15\",\"releaseDate\":\"2014-07-18\",\"cards\":{\"281\":" + card("281", null) + "}}");
+	}
+
+	@Test
+	public void cardWhichIsNotAnObjectIsRejected() throws Exception {
+		exception.expect(JsonMappingException.class);
+		read("{\"name\":\"Magic 2015\",\"code\":\"M15\",\"releaseDate\":\"2014-07-18\",\"cards\":[" + card("281", null) + ",\"281\"]}");
+	}
+
+	@Test
+	public void missingCodeIsRejected() throws Exception {
+		exception.expect(JsonMappingException.class);
+		exception.expectMessage("code");
+		read("{\"name\":\"Magic 2015\",\"releaseDate\":\"2014-07-18\",\"cards\":[]}");
+	}
+
+	private static FullCardSet read(String json) throws Exception {
+		return JSON.mapper.readValue(json, FullCardSet.class);
+	}
+
+	private static String card(String number, String setCode) {
+		return "{\"name\":\"Shivan Dragon\",\"number\":\"" + number + "\"" + (setCode != null ? ",\"setCode\":\"" + setCode + "\"" : "") + "}";
+	}
+}
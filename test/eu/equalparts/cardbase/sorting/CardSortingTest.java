@@ -2,6 +2,8 @@ package eu.equalparts.cardbase.sorting;
 
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.BeforeClass;
@@ -12,6 +14,10 @@ import org.junit.rules.ExpectedException;
 import com.fasterxml.jackson.core.type.TypeReference;
 
 import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.comparator.CardComparator;
+import eu.equalparts.cardbase.comparator.CompositeCardComparator;
+import eu.equalparts.cardbase.comparator.SortCriterion;
+import eu.equalparts.cardbase.comparator.SortCriterion.Direction;
 import eu.equalparts.cardbase.json.JSON;
 
 /**
@@ -329,6 +335,101 @@ public class CardSortingTest {
 		}
 	}
 	
+	@Test
+	public void parallelSortMatchesSequentialSort() throws Exception {
+		List<Card> largeList = new ArrayList<>();
+		while (largeList.size() < CardSorting.PARALLEL_THRESHOLD) {
+			largeList.addAll(testCards);
+		}
+		for (String field : new String[] {"name", "rarity", "power"}) {
+			List<Card> expected = new ArrayList<>(largeList);
+			expected.sort(new CardComparator(field));
+			
+			CardSorting.sortByField(largeList, field);
+			
+			for (int i = 0; i < expected.size(); i++) {
+				assertTrue("Wrong card when sorting by " + field + " at i = " + i, expected.get(i) == largeList.get(i));
+			}
+		}
+	}
+	
+	@Test
+	public void keySortMatchesComparatorSort() throws Exception {
+		for (String field : new String[] {"rarity", "number", "power", "toughness"}) {
+			List<Card> expected = new ArrayList<>(testCards);
+			expected.sort(new CardComparator(field));
+			List<Card> sorted = new ArrayList<>(testCards);
+			
+			CardSorting.sortByField(sorted, field);
+			
+			for (int i = 0; i < expected.size(); i++) {
+				assertTrue("Wrong card when sorting by " + field + " at i = " + i, expected.get(i) == sorted.get(i));
+			}
+		}
+	}
+	
+	@Test
+	public void sortByRarityThenName() throws Exception {
+		List<Card> sorted = new ArrayList<>(testCards);
+		CardSorting.sortByFields(sorted, Arrays.asList(new SortCriterion("rarity"), new SortCriterion("name")));
+		int i = 0;
+		String[] names = {
+				"Callow Jushi",
+				"Coerced Confession",
+				"Ugin's Construct",
+				"Disrupting Shoal",
+				"Nightmare",
+				"Shivan Dragon",
+				"Khalni Hydra",
+				"Sorin Markov",
+		};
+		for (Card card : sorted) {
+			assertTrue(card.name.get() + " should have been " + names[i] + ", i = " + i, card.name.get().equals(names[i]));
+			i++;
+		}
+	}
+	
+	@Test
+	public void multiFieldSortMatchesCompositeComparatorSort() throws Exception {
+		List<List<SortCriterion>> criteriaLists = Arrays.asList(
+				Arrays.asList(new SortCriterion("setCode"), new SortCriterion("number")),
+				Arrays.asList(new SortCriterion("rarity", Direction.DESCENDING), new SortCriterion("cmc"), new SortCriterion("name")),
+				Arrays.asList(new SortCriterion("power", Direction.DESCENDING), new SortCriterion("loyalty", Direction.DESCENDING)),
+				Arrays.asList(new SortCriterion("layout")));
+		List<Card> largeList = new ArrayList<>();
+		while (largeList.size() < CardSorting.PARALLEL_THRESHOLD) {
+			largeList.addAll(testCards);
+		}
+		for (List<Card> cards : Arrays.asList(testCards, largeList)) {
+			for (List<SortCriterion> criteria : criteriaLists) {
+				List<Card> expected = new ArrayList<>(cards);
+				expected.sort(new CompositeCardComparator(criteria));
+				List<Card> sorted = new ArrayList<>(cards);
+				
+				CardSorting.sortByFields(sorted, criteria);
+				
+				for (int i = 0; i < expected.size(); i++) {
+					assertTrue("Wrong card when sorting by " + criteria.get(0).fieldName + " at i = " + i, expected.get(i) == sorted.get(i));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void compositeComparatorMatchesRepeatedStableSorts() throws Exception {
+		List<Card> expected = new ArrayList<>(testCards);
+		CardSorting.sortByField(expected, "name");
+		CardSorting.sortByField(expected, "cmc");
+		CardSorting.sortByField(expected, "rarity");
+		List<Card> sorted = new ArrayList<>(testCards);
+		
+		sorted.sort(new CompositeCardComparator(Arrays.asList(new SortCriterion("rarity"), new SortCriterion("cmc"), new SortCriterion("name"))));
+		
+		for (int i = 0; i < expected.size(); i++) {
+			assertTrue("Wrong card at i = " + i, expected.get(i) == sorted.get(i));
+		}
+	}
+	
 	/*
 	 * Edge cases
 	 */
@@ -337,4 +438,10 @@ public class CardSortingTest {
 		exception.expect(NoSuchFieldException.class);
 		CardSorting.sortByField(testCards, "not a field name");
 	}
+	
+	@Test
+	public void oneOfSortFieldsDoesNotExist() throws Exception {
+		exception.expect(NoSuchFieldException.class);
+		CardSorting.sortByFields(testCards, Arrays.asList(new SortCriterion("name"), new SortCriterion("not a field name")));
+	}
 }
@@ -0,0 +1,122 @@
+package eu.equalparts.cardbase.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.card.FullCardSet;
+
+/**
+ * Tests the eviction and accounting of {@code FullCardSetCache}.
+ * 
+ * @author Eduardo Pedroni
+ *
+ */
+public class FullCardSetCacheTest {
+	
+	private FullCardSetCache uut;
+	
+	@Rule
+	public final ExpectedException exception = ExpectedException.none();
+	
+	@Before
+	public void setUp() throws Exception {
+		uut = new FullCardSetCache(10);
+	}
+	
+	/***********************************************************************************
+	 * Caching tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void cachedSetIsReturned() throws Exception {
+		FullCardSet set = setWith(3);
+		uut.put("AAA", set);
+		
+		assertSame("Wrong set returned.", set, uut.get("AAA"));
+		assertEquals("Wrong card count.", 3, uut.getCardCount());
+	}
+	
+	@Test
+	public void hitsAndMissesAreCounted() throws Exception {
+		uut.put("AAA", setWith(3));
+		
+		uut.get("AAA");
+		uut.get("AAA");
+		uut.get("BBB");
+		
+		assertEquals("Wrong hit count.", 2, uut.getHits());
+		assertEquals("Wrong miss count.", 1, uut.getMisses());
+	}
+	
+	@Test
+	public void leastRecentlyUsedSetIsEvicted() throws Exception {
+		uut.put("AAA", setWith(4));
+		uut.put("BBB", setWith(4));
+		uut.get("AAA");
+		
+		uut.put("CCC", setWith(4));
+		
+		assertNull("Least recently used set should have been evicted.", uut.get("BBB"));
+		assertEquals("Wrong eviction count.", 1, uut.getEvictions());
+		assertEquals("Wrong card count.", 8, uut.getCardCount());
+		assertEquals("Wrong set count.", 2, uut.size());
+	}
+	
+	@Test
+	public void severalSetsAreEvictedForLargeSet() throws Exception {
+		uut.put("AAA", setWith(3));
+		uut.put("BBB", setWith(3));
+		uut.put("CCC", setWith(3));
+		
+		uut.put("DDD", setWith(9));
+		
+		assertEquals("Wrong eviction count.", 3, uut.getEvictions());
+		assertEquals("Wrong card count.", 9, uut.getCardCount());
+	}
+	
+	@Test
+	public void replacedSetIsNotCountedTwice() throws Exception {
+		uut.put("AAA", setWith(4));
+		uut.put("AAA", setWith(5));
+		
+		assertEquals("Wrong card count.", 5, uut.getCardCount());
+		assertEquals("Nothing should have been evicted.", 0, uut.getEvictions());
+	}
+	
+	/*
+	 * Edge cases
+	 */
+	@Test
+	public void setLargerThanLimitIsStillCached() throws Exception {
+		uut.put("AAA", setWith(3));
+		FullCardSet large = setWith(11);
+		
+		uut.put("BBB", large);
+		
+		assertSame("Large set should be cached on its own.", large, uut.get("BBB"));
+		assertEquals("Wrong set count.", 1, uut.size());
+	}
+	
+	@Test
+	public void negativeLimit() throws Exception {
+		exception.expect(IllegalArgumentException.class);
+		new FullCardSetCache(-1);
+	}
+	
+	private static FullCardSet setWith(int cardCount) {
+		FullCardSet set = new FullCardSet();
+		set.cards = new HashMap<>();
+		for (int i = 0; i < cardCount; i++) {
+			set.cards.put(Integer.toString(i), new Card());
+		}
+		return set;
+	}
+}
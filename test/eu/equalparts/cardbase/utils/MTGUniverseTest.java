@@ -0,0 +1,460 @@
+package eu.equalparts.cardbase.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import eu.equalparts.cardbase.card.CardSetInformation;
+import eu.equalparts.cardbase.card.FullCardSet;
+
+/**
+ * Tests the disk cache of {@code MTGUniverse} against a local HTTP server
+ * which serves the test set files.
+ * 
+ * @author Eduardo Pedroni
+ *
+ */
+public class MTGUniverseTest {
+	
+	/**
+	 * Where the test set files are on the classpath.
+	 */
+	private static final String TEST_FILES = "/eu/equalparts/cardbase/cli/";
+	
+	private HttpServer server;
+	private String remote;
+	/**
+	 * The content served for each file name.
+	 */
+	private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+	/**
+	 * The ETag sent with each file, files without one are sent without validators.
+	 */
+	private final Map<String, String> etags = new ConcurrentHashMap<>();
+	private final AtomicInteger fullResponses = new AtomicInteger();
+	private final AtomicInteger notModifiedResponses = new AtomicInteger();
+	/**
+	 * How long the server waits before answering, to widen races between clients.
+	 */
+	private volatile int responseDelayMillis = 0;
+	private final AtomicInteger concurrentRequests = new AtomicInteger();
+	private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+	private ExecutorService serverExecutor;
+	
+	@Rule
+	public final ExpectedException exception = ExpectedException.none();
+	
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+	
+	@Before
+	public void setUp() throws Exception {
+		files.put("SetList.json", resource("SetList.json"));
+		files.put("FRF.json", resource("FRF.json"));
+		etags.put("SetList.json", "\"list-1\"");
+		etags.put("FRF.json", "\"frf-1\"");
+		
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::serve);
+		serverExecutor = Executors.newCachedThreadPool();
+		server.setExecutor(serverExecutor);
+		server.start();
+		remote = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+	
+	/***********************************************************************************
+	 * Disk cache tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void setIsNotDownloadedAgainIfUnchanged() throws Exception {
+		File cache = tempFolder.newFolder();
+		new MTGUniverse(remote, cache).getFullCardSet("FRF");
+		int downloads = fullResponses.get();
+		
+		FullCardSet set = new MTGUniverse(remote, cache).getFullCardSet("FRF");
+		
+		assertEquals("Nothing should have been downloaded again.", downloads, fullResponses.get());
+		assertEquals("Server should have been asked whether both files had changed.", 2, notModifiedResponses.get());
+		assertEquals("Wrong set read from cache.", "Fate Reforged", set.name);
+		assertEquals("Wrong card read from cache.", "Cunning Strike", set.getCardByNumber("150").name.get());
+	}
+	
+	@Test
+	public void freshSetIsNotCheckedAgain() throws Exception {
+		File cache = tempFolder.newFolder();
+		new MTGUniverse(remote, cache, FullCardSetCache.DEFAULT_MAX_CARDS, null, TimeUnit.HOURS.toMillis(1)).getFullCardSet("FRF");
+		int downloads = fullResponses.get();
+		
+		FullCardSet set = new MTGUniverse(remote, cache, FullCardSetCache.DEFAULT_MAX_CARDS, null, TimeUnit.HOURS.toMillis(1)).getFullCardSet("FRF");
+		
+		assertEquals("Nothing should have been downloaded again.", downloads, fullResponses.get());
+		assertEquals("Server should not have been asked about fresh files.", 0, notModifiedResponses.get());
+		assertEquals("Wrong card read from cache.", "Cunning Strike", set.getCardByNumber("150").name.get());
+	}
+	
+	@Test
+	public void staleSetIsCheckedAgainAndBecomesFresh() throws Exception {
+		File cache = tempFolder.newFolder();
+		new MTGUniverse(remote, cache, FullCardSetCache.DEFAULT_MAX_CARDS, null, TimeUnit.HOURS.toMillis(1)).getFullCardSet("FRF");
+		File validatorsFile = new File(cache, "FRF.json.validators");
+		Properties validators = new Properties();
+		try (InputStream in = new FileInputStream(validatorsFile)) {
+			validators.load(in);
+		}
+		validators.setProperty(DiskSetCache.CHECKED, Long.toString(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+		try (OutputStream out = new FileOutputStream(validatorsFile)) {
+			validators.store(out, null);
+		}
+		
+		new MTGUniverse(remote, cache, FullCardSetCache.DEFAULT_MAX_CARDS, null, TimeUnit.HOURS.toMillis(1)).getFullCardSet("FRF");
+		
+		assertEquals("Stale set should have been checked with the server.", 1, notModifiedResponses.get());
+		
+		new MTGUniverse(remote, cache, FullCardSetCache.DEFAULT_MAX_CARDS, null, TimeUnit.HOURS.toMillis(1)).getFullCardSet("FRF");
+		
+		assertEquals("Checked set should be fresh again.", 1, notModifiedResponses.get());
+	}
+	
+	@Test
+	public void changedSetIsDownloadedAgain() throws Exception {
+		File cache = tempFolder.newFolder();
+		new MTGUniverse(remote, cache).getFullCardSet("FRF");
+		files.put("FRF.json", new String(files.get("FRF.json"), "UTF-8").replace("Cunning Strike", "Cunning Strike II").getBytes("UTF-8"));
+		etags.put("FRF.json", "\"frf-2\"");
+		
+		FullCardSet set = new MTGUniverse(remote, cache).getFullCardSet("FRF");
+		
+		assertEquals("Changed card was not downloaded.", "Cunning Strike II", set.getCardByNumber("150").name.get());
+	}
+	
+	@Test
+	public void cachedSetIsUsedIfServerIsDown() throws Exception {
+		File cache = tempFolder.newFolder();
+		new MTGUniverse(remote, cache).getFullCardSet("FRF");
+		server.stop(0);
+		
+		FullCardSet set = new MTGUniverse(remote, cache).getFullCardSet("FRF");
+		
+		assertNotNull("Cached set should have been returned.", set);
+		assertEquals("Wrong card read from cache.", "Cunning Strike", set.getCardByNumber("150").name.get());
+	}
+	
+	@Test
+	public void setWithoutValidatorsIsCached() throws Exception {
+		etags.clear();
+		File cache = tempFolder.newFolder();
+		new MTGUniverse(remote, cache).getFullCardSet("FRF");
+		
+		FullCardSet set = new MTGUniverse(remote, cache).getFullCardSet("FRF");
+		
+		assertEquals("Server without validators cannot answer not modified.", 0, notModifiedResponses.get());
+		assertEquals("Wrong card read.", "Cunning Strike", set.getCardByNumber("150").name.get());
+	}
+	
+	@Test
+	public void cachedSetIsSmallerThanUpstreamSet() throws Exception {
+		File cache = tempFolder.newFolder();
+		new MTGUniverse(remote, cache).getFullCardSet("FRF");
+		
+		long cachedLength = new File(cache, "FRF.json").length();
+		
+		assertTrue("Cached set should not be empty.", cachedLength > 0);
+		assertTrue("Cached set should be smaller than upstream set.", cachedLength < files.get("FRF.json").length);
+	}
+	
+	@Test
+	public void noCacheDirectoryAlwaysDownloads() throws Exception {
+		new MTGUniverse(remote).getFullCardSet("FRF");
+		int downloads = fullResponses.get();
+		
+		new MTGUniverse(remote).getFullCardSet("FRF");
+		
+		assertEquals("Both files should have been downloaded again.", downloads * 2, fullResponses.get());
+	}
+	
+	/***********************************************************************************
+	 * Set code tests
+	 ***********************************************************************************/
+	@Test
+	public void setCodeIsValidatedRegardlessOfCase() throws Exception {
+		MTGUniverse uut = new MTGUniverse(remote);
+		
+		assertEquals("Wrong code for lower case.", "FRF", uut.validateSetCode("frf"));
+		assertEquals("Wrong code for mixed case.", "FRF", uut.validateSetCode("fRf"));
+		assertEquals("Wrong code for exact case.", "FRF", uut.validateSetCode("FRF"));
+	}
+	
+	@Test
+	public void setInformationIsReturned() throws Exception {
+		CardSetInformation information = new MTGUniverse(remote).getCardSetInformation("m15");
+		
+		assertEquals("Wrong set code.", "M15", information.getCode());
+		assertEquals("Wrong set name.", "Magic 2015 Core Set", information.getName());
+	}
+	
+	/*
+	 * Edge cases
+	 */
+	@Test
+	public void unknownSetCodeIsNotValid() throws Exception {
+		MTGUniverse uut = new MTGUniverse(remote);
+		
+		assertNull("Unknown code should not be valid.", uut.validateSetCode("XYZ"));
+		assertNull("Null code should not be valid.", uut.validateSetCode(null));
+		assertNull("Unknown code should have no information.", uut.getCardSetInformation("XYZ"));
+	}
+	
+	/***********************************************************************************
+	 * Memory cache tests
+	 ***********************************************************************************/
+	@Test
+	public void evictedSetIsReloaded() throws Exception {
+		files.put("M15.json", resource("M15.json"));
+		MTGUniverse uut = new MTGUniverse(remote, tempFolder.newFolder(), 1);
+		uut.getFullCardSet("FRF");
+		uut.getFullCardSet("M15");
+		
+		FullCardSet set = uut.getFullCardSet("FRF");
+		
+		assertEquals("Wrong card in reloaded set.", "Cunning Strike", set.getCardByNumber("150").name.get());
+		assertEquals("Wrong eviction count.", 2, uut.getCardSetCache().getEvictions());
+		assertEquals("Wrong miss count.", 3, uut.getCardSetCache().getMisses());
+		assertEquals("Evicted set should have come from the disk cache.", 1, notModifiedResponses.get());
+	}
+	
+	/***********************************************************************************
+	 * Concurrency tests
+	 ***********************************************************************************/
+	@Test
+	public void setRequestedByManyThreadsIsFetchedOnce() throws Exception {
+		responseDelayMillis = 200;
+		MTGUniverse uut = new MTGUniverse(remote);
+		
+		List<FullCardSet> sets = inParallel(16, 1, i -> uut.getFullCardSet("frf"));
+		
+		assertEquals("Set list and set should have been downloaded once each.", 2, fullResponses.get());
+		for (FullCardSet set : sets) {
+			assertSame("All threads should share the same set.", sets.get(0), set);
+		}
+	}
+	
+	@Test
+	public void manyThreadsLoadSetsFromFiles() throws Exception {
+		File data = tempFolder.newFolder();
+		for (String fileName : new String[] {"SetList.json", "FRF.json", "M15.json"}) {
+			Files.write(new File(data, fileName).toPath(), resource(fileName));
+		}
+		// a tiny memory cache keeps sets being evicted and fetched again while other threads read them
+		MTGUniverse uut = new MTGUniverse(data.toURI().toString(), null, 1);
+		String[] setCodes = {"FRF", "m15", "frf", "M15", "LEA"};
+		
+		List<FullCardSet> sets = inParallel(16, 50, i -> uut.getFullCardSet(setCodes[i % setCodes.length]));
+		
+		for (int i = 0; i < sets.size(); i++) {
+			FullCardSet set = sets.get(i);
+			switch (setCodes[i % setCodes.length].toUpperCase()) {
+			case "FRF": assertEquals("Wrong card in FRF.", "Cunning Strike", set.getCardByNumber("150").name.get()); break;
+			case "M15": assertEquals("Wrong set.", "M15", set.code); break;
+			default: assertNull("Missing set file should not return a set.", set); break;
+			}
+		}
+	}
+	
+	/***********************************************************************************
+	 * Prefetch tests
+	 ***********************************************************************************/
+	@Test
+	public void setsArePrefetchedInParallel() throws Exception {
+		files.put("M15.json", resource("M15.json"));
+		responseDelayMillis = 200;
+		MTGUniverse uut = new MTGUniverse(remote);
+		
+		List<PrefetchTiming> timings = uut.prefetch(Arrays.asList("FRF", "m15", "FRF"), 4);
+		
+		assertEquals("Duplicates should only be prefetched once.", 2, timings.size());
+		assertEquals("Wrong order.", "FRF", timings.get(0).setCode);
+		assertEquals("Wrong order.", "m15", timings.get(1).setCode);
+		for (PrefetchTiming timing : timings) {
+			assertTrue(timing.setCode + " should have been fetched.", timing.fetched);
+			assertNull(timing.setCode + " should not have failed.", timing.failure);
+			assertTrue(timing.setCode + " should have taken at least as long as the server.", timing.elapsedNanos >= 200 * 1000000L);
+		}
+		assertEquals("Sets should have been downloaded at the same time.", 2, maxConcurrentRequests.get());
+		
+		uut.getFullCardSet("M15");
+		
+		assertEquals("Prefetched set should be in memory.", 1, uut.getCardSetCache().getHits());
+	}
+	
+	@Test
+	public void prefetchReportsEachSet() throws Exception {
+		MTGUniverse uut = new MTGUniverse(remote);
+		uut.getFullCardSet("FRF");
+		
+		List<PrefetchTiming> timings = uut.prefetch(Arrays.asList("FRF", "M15", "XYZ"), 2);
+		
+		assertFalse("Set already in memory should not have been fetched.", timings.get(0).fetched);
+		assertNull("Set already in memory should not have failed.", timings.get(0).failure);
+		assertFalse("Missing set file should not have been fetched.", timings.get(1).fetched);
+		assertNotNull("Missing set file should have failed.", timings.get(1).failure);
+		assertFalse("Unknown set should not have been fetched.", timings.get(2).fetched);
+		assertNull("Unknown set should not have failed.", timings.get(2).failure);
+	}
+	
+	@Test
+	public void interruptedPrefetchReportsUnfinishedSets() throws Exception {
+		files.put("M15.json", resource("M15.json"));
+		MTGUniverse uut = new MTGUniverse(remote);
+		uut.getCardSetList();
+		responseDelayMillis = 500;
+		
+		Thread.currentThread().interrupt();
+		List<PrefetchTiming> timings = uut.prefetch(Arrays.asList("FRF", "M15"), 2);
+		
+		assertTrue("Interrupt flag should have been restored.", Thread.interrupted());
+		assertEquals("Every set should have been reported.", 2, timings.size());
+		for (PrefetchTiming timing : timings) {
+			assertFalse(timing.setCode + " should not have been fetched.", timing.fetched);
+			assertTrue(timing.setCode + " should have been reported as interrupted.", timing.failure instanceof InterruptedIOException);
+		}
+	}
+	
+	@Test
+	public void prefetchParallelismMustBePositive() throws Exception {
+		exception.expect(IllegalArgumentException.class);
+		new MTGUniverse(remote).prefetch(Arrays.asList("FRF"), 0);
+	}
+	
+	/**
+	 * Functional interface for the parallel tasks, which may throw.
+	 */
+	private interface SetTask {
+		FullCardSet run(int index) throws Exception;
+	}
+	
+	/**
+	 * Runs the task {@code threads * iterations} times, starting all threads at once.
+	 * Results are returned in task index order.
+	 */
+	private static List<FullCardSet> inParallel(int threads, int iterations, SetTask task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			CyclicBarrier start = new CyclicBarrier(threads);
+			List<Future<List<FullCardSet>>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				futures.add(executor.submit(() -> {
+					start.await();
+					List<FullCardSet> results = new ArrayList<>();
+					for (int i = 0; i < iterations; i++) {
+						try {
+							results.add(task.run(thread * iterations + i));
+						} catch (FileNotFoundException e) {
+							results.add(null);
+						}
+					}
+					return results;
+				}));
+			}
+			List<FullCardSet> results = new ArrayList<>();
+			for (Future<List<FullCardSet>> future : futures) {
+				results.addAll(future.get(30, TimeUnit.SECONDS));
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	private void serve(HttpExchange exchange) throws IOException {
+		maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+		try {
+			respond(exchange);
+		} finally {
+			concurrentRequests.decrementAndGet();
+		}
+	}
+	
+	private void respond(HttpExchange exchange) throws IOException {
+		if (responseDelayMillis > 0) {
+			try {
+				Thread.sleep(responseDelayMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		String fileName = exchange.getRequestURI().getPath().substring(1);
+		byte[] content = files.get(fileName);
+		String etag = etags.get(fileName);
+		if (content == null) {
+			exchange.sendResponseHeaders(404, -1);
+		} else if (etag != null && etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+			notModifiedResponses.incrementAndGet();
+			exchange.sendResponseHeaders(304, -1);
+		} else {
+			fullResponses.incrementAndGet();
+			if (etag != null) {
+				exchange.getResponseHeaders().add("ETag", etag);
+			}
+			exchange.sendResponseHeaders(200, content.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(content);
+			}
+		}
+		exchange.close();
+	}
+	
+	private static byte[] resource(String fileName) throws IOException {
+		try (InputStream in = MTGUniverseTest.class.getResourceAsStream(TEST_FILES + fileName)) {
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+				content.write(buffer, 0, read);
+			}
+			return content.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package eu.equalparts.cardbase.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.card.CardSetInformation;
+import eu.equalparts.cardbase.card.FullCardSet;
+import eu.equalparts.cardbase.cardfield.CardField;
+import eu.equalparts.cardbase.json.JSON;
+
+/**
+ * Tests writing and reading back an offline card database, and using one in {@code MTGUniverse}.
+ *
+ * @author Eduardo Pedroni
+ *
+ */
+public class OfflineCardDatabaseTest {
+
+	/**
+	 * Where the test set files are on the classpath.
+	 */
+	private static final String TEST_FILES = "/eu/equalparts/cardbase/cli/";
+
+	private FullCardSet frf, m15;
+	private File databaseFile;
+	private OfflineCardDatabase uut;
+
+	@Rule
+	public final ExpectedException exception = ExpectedException.none();
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Before
+	public void setUp() throws Exception {
+		frf = readSet("FRF.json");
+		m15 = readSet("M15.json");
+		databaseFile = tempFolder.newFile("cards.db");
+		OfflineCardDatabase.write(Arrays.asList(frf, m15), databaseFile);
+		uut = OfflineCardDatabase.open(databaseFile);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		uut.close();
+	}
+
+	/***********************************************************************************
+	 * Lookup tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void everyCardIsReadBackWithAllFields() throws Exception {
+		for (FullCardSet set : Arrays.asList(frf, m15)) {
+			for (Card expected : set.cards.values()) {
+				Card actual = uut.getCard(set.code, expected.number.get());
+				assertNotNull("Card " + set.code + " " + expected.number.get() + " is missing.", actual);
+				assertSameFields(expected, actual);
+			}
+		}
+		assertEquals("Wrong card count.", frf.cards.size() + m15.cards.size(), uut.getCardCount());
+	}
+
+	@Test
+	public void wholeSetIsReadBack() throws Exception {
+		FullCardSet set = uut.getFullCardSet("FRF");
+
+		assertEquals("Wrong set name.", frf.name, set.name);
+		assertEquals("Wrong set code.", frf.code, set.code);
+		assertEquals("Wrong release date.", frf.releaseDate, set.releaseDate);
+		assertEquals("Wrong number of cards.", frf.cards.size(), set.cards.size());
+		assertEquals("Wrong card.", "Cunning Strike", set.getCardByNumber("150").name.get());
+	}
+
+	@Test
+	public void setListIsReadBackInOrder() throws Exception {
+		List<CardSetInformation> sets = uut.getCardSetList();
+
+		assertEquals("Wrong number of sets.", 2, sets.size());
+		assertEquals("Wrong first set.", "FRF", sets.get(0).getCode());
+		assertEquals("Wrong first set name.", frf.name, sets.get(0).getName());
+		assertEquals("Wrong second set.", "M15", sets.get(1).getCode());
+		assertEquals("Wrong second set release date.", m15.releaseDate, sets.get(1).getReleaseDate());
+	}
+
+	@Test
+	public void universeWorksOfflineFromDatabase() throws Exception {
+		String unreachable = tempFolder.newFolder().toURI().toString();
+		MTGUniverse universe = new MTGUniverse(unreachable, null, FullCardSetCache.DEFAULT_MAX_CARDS, uut);
+
+		assertEquals("Set code was not validated against the database's set list.", "M15", universe.validateSetCode("m15"));
+		assertEquals("Wrong card.", "Cunning Strike", universe.getCard("frf", "150").name.get());
+		assertEquals("Wrong set.", m15.cards.size(), universe.getFullCardSet("M15").cards.size());
+	}
+
+	/*
+	 * Edge cases
+	 */
+	@Test
+	public void unknownCardsAreNull() throws Exception {
+		assertNull("Unknown number should not be found.", uut.getCard("FRF", "999"));
+		assertNull("Unknown set should not be found.", uut.getCard("XYZ", "150"));
+		assertNull("Case should matter.", uut.getCard("frf", "150"));
+		assertNull("Unknown set should not be found.", uut.getFullCardSet("XYZ"));
+		assertFalse("Unknown set should not be reported.", uut.hasSet("XYZ"));
+		assertTrue("Known set should be reported.", uut.hasSet("M15"));
+	}
+
+	@Test
+	public void duplicateSetsAreWrittenOnce() throws Exception {
+		File duplicateFile = tempFolder.newFile();
+		OfflineCardDatabase.write(Arrays.asList(frf, frf), duplicateFile);
+
+		try (OfflineCardDatabase duplicate = OfflineCardDatabase.open(duplicateFile)) {
+			assertEquals("Wrong number of sets.", 1, duplicate.getCardSetList().size());
+			assertEquals("Wrong card count.", frf.cards.size(), duplicate.getCardCount());
+		}
+	}
+
+	@Test
+	public void emptyDatabaseHasNoCards() throws Exception {
+		File emptyFile = tempFolder.newFile();
+		OfflineCardDatabase.write(Collections.emptyList(), emptyFile);
+
+		try (OfflineCardDatabase empty = OfflineCardDatabase.open(emptyFile)) {
+			assertEquals("Wrong card count.", 0, empty.getCardCount());
+			assertNull("No card should be found.", empty.getCard("FRF", "150"));
+			assertTrue("Set list should be empty.", empty.getCardSetList().isEmpty());
+		}
+	}
+
+	@Test
+	public void fileWithWrongMagicIsRejected() throws Exception {
+		File notADatabase = tempFolder.newFile();
+		Files.write(notADatabase.toPath(), new byte[64]);
+
+		exception.expect(IOException.class);
+		OfflineCardDatabase.open(notADatabase);
+	}
+
+	@Test
+	public void truncatedFileIsRejected() throws Exception {
+		File truncated = tempFolder.newFile();
+		Files.write(truncated.toPath(), new byte[] { 0x43, 0x42, 0x44, 0x42 });
+
+		exception.expect(IOException.class);
+		OfflineCardDatabase.open(truncated);
+	}
+
+	private static void assertSameFields(Card expected, Card actual) throws Exception {
+		for (Field field : Card.class.getFields()) {
+			if (CardField.class.isAssignableFrom(field.getType())) {
+				Object expectedValue = ((CardField<?>) field.get(expected)).get();
+				Object actualValue = ((CardField<?>) field.get(actual)).get();
+				assertEquals("Wrong " + field.getName() + " for card " + expected.number.get() + ".", expectedValue, actualValue);
+			}
+		}
+	}
+
+	private static FullCardSet readSet(String fileName) throws IOException {
+		try (InputStream in = OfflineCardDatabaseTest.class.getResourceAsStream(TEST_FILES + fileName)) {
+			return JSON.mapper.readValue(in, FullCardSet.class);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package eu.equalparts.cardbase.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import eu.equalparts.cardbase.card.Card;
+import eu.equalparts.cardbase.json.JSON;
+
+public class StringDictionaryTest {
+	private StringDictionary uut;
+
+	@Before
+	public void setUp() throws Exception {
+		uut = new StringDictionary();
+	}
+
+	/***********************************************************************************
+	 * Dictionary tests, happy path
+	 ***********************************************************************************/
+	@Test
+	public void equalStringsShareFirstInstance() throws Exception {
+		String first = new String("Rare");
+
+		assertSame("First instance should have been kept.", first, uut.canonical(first));
+		assertSame("Equal string should have been replaced with the first instance.", first, uut.canonical(new String("Rare")));
+		assertEquals("Wrong dictionary size.", 1, uut.size());
+	}
+
+	@Test
+	public void cardsReadFromJsonShareLowCardinalityValues() throws Exception {
+		List<Card> cards = JSON.mapper.readValue(StringDictionaryTest.class.getResourceAsStream("/testcards.json"), new TypeReference<List<Card>>() {});
+
+		for (Card card : cards) {
+			for (Card other : cards) {
+				if (card.rarity.get().equals(other.rarity.get())) {
+					assertSame("Equal rarities should be the same instance.", card.rarity.get(), other.rarity.get());
+				}
+				if (card.setCode.get().equals(other.setCode.get())) {
+					assertSame("Equal set codes should be the same instance.", card.setCode.get(), other.setCode.get());
+				}
+			}
+			assertSame("Rarity should be the shared dictionary's instance.", StringDictionary.CARD_VALUES.canonical(card.rarity.get()), card.rarity.get());
+			assertSame("Type should be the shared dictionary's instance.", StringDictionary.CARD_VALUES.canonical(card.type.get()), card.type.get());
+			assertSame("Artist should be the shared dictionary's instance.", StringDictionary.CARD_VALUES.canonical(card.artist.get()), card.artist.get());
+		}
+	}
+
+	/*
+	 * Edge cases
+	 */
+	@Test
+	public void fullDictionaryReturnsNewStringsAsTheyAre() throws Exception {
+		uut = new StringDictionary(1);
+		String first = uut.canonical(new String("Rare"));
+		String extra = new String("Common");
+
+		assertSame("String should not have been replaced.", extra, uut.canonical(extra));
+		assertNotSame("String should not have been added.", extra, uut.canonical(new String("Common")));
+		assertSame("Strings already in the dictionary should still be shared.", first, uut.canonical(new String("Rare")));
+		assertEquals("Wrong dictionary size.", 1, uut.size());
+	}
+
+	@Test
+	public void nullStaysNull() throws Exception {
+		assertNull("Null should not be added.", uut.canonical(null));
+		assertEquals("Wrong dictionary size.", 0, uut.size());
+	}
+}